@@ -101,6 +101,27 @@ public class AbstractApiDocServiceTest {
 
     }
 
+    @Test
+    public void givenEndpointMatchingJustPartOfSegment_whenPreparePath_thenDoNotUseTheRoute() {
+        ApiDocPath<PathItem> apiDocPath = new ApiDocPath<>();
+        OpenAPI openAPI = getDummyOpenApiObject(new ArrayList<>());
+
+        RoutedServices routedServices = new RoutedServices();
+        routedServices.addRoutedService(new RoutedService("api_v1", "api/v1", "/api/v1"));
+        ApiDocInfo apiDocInfo = new ApiDocInfo(null, convertOpenApiToJson(openAPI), routedServices);
+
+        // routes match whole segments of the path, /api/v1x is not a path under /api/v1
+        abstractApiDocService.preparePath(openAPI.getPaths(), apiDocPath, apiDocInfo, "/", "/api/v1x/login", "apicatalog");
+        assertThat(apiDocPath.getLongPaths(), hasKey("/api/v1x/login"));
+        assertThat(apiDocPath.getShortPaths(), hasKey("/api/v1x/login"));
+        assertTrue(apiDocPath.getPrefixes().isEmpty());
+
+        abstractApiDocService.preparePath(openAPI.getPaths(), apiDocPath, apiDocInfo, "/", "/api/v1/login", "apicatalog");
+        assertThat(apiDocPath.getLongPaths(), hasKey("/api/v1/apicatalog/login"));
+        assertThat(apiDocPath.getShortPaths(), hasKey("/login"));
+        assertTrue(apiDocPath.getPrefixes().contains("api/v1"));
+    }
+
     private String convertOpenApiToJson(OpenAPI openApi) {
         ObjectMapper objectMapper = new ObjectMapper();
         try {
@@ -0,0 +1,164 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.product.routing;
+
+import java.util.*;
+
+/**
+ * Routes of all services in one moment. The snapshot is immutable, each refresh of routes creates a new one and
+ * publishes it by {@link RouteSnapshotRegistry}. The {@link RoutedServices} in the snapshot must not be changed after
+ * the publishing, unchanged services share the same instance in successive snapshots.
+ *
+ * For rewriting of each request the snapshot also contains precomputed {@link BasePaths} of each service and the
+ * index of services by addresses (host:port) of their instances.
+ */
+public final class RouteSnapshot {
+
+    public static final RouteSnapshot EMPTY = new RouteSnapshot(0, Collections.emptyMap(), Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, RoutedServices> routedServices;
+    private final Map<String, BasePaths> basePaths;
+    private final Map<String, List<String>> serviceIdsByAddress;
+
+    RouteSnapshot(long version, Map<String, RoutedServices> routedServices, Map<String, ? extends Collection<String>> addresses) {
+        this.version = version;
+        this.routedServices = Collections.unmodifiableMap(new HashMap<>(routedServices));
+
+        Map<String, BasePaths> basePathsMap = new HashMap<>();
+        for (Map.Entry<String, RoutedServices> entry : routedServices.entrySet()) {
+            if (entry.getValue() != null) {
+                basePathsMap.put(entry.getKey(), new BasePaths(entry.getValue().getRoutedServices()));
+            }
+        }
+        this.basePaths = basePathsMap;
+
+        Map<String, List<String>> serviceIdsByAddressMap = new HashMap<>();
+        for (Map.Entry<String, ? extends Collection<String>> entry : addresses.entrySet()) {
+            for (String address : entry.getValue()) {
+                List<String> serviceIds = serviceIdsByAddressMap.computeIfAbsent(address.toLowerCase(Locale.ROOT), x -> new ArrayList<>(1));
+                if (!serviceIds.contains(entry.getKey())) serviceIds.add(entry.getKey());
+            }
+        }
+        this.serviceIdsByAddress = serviceIdsByAddressMap;
+    }
+
+    /**
+     * Create address of instance as it is used in the index of services by address.
+     *
+     * @param host hostname of instance
+     * @param port port of instance
+     * @return address in format host:port
+     */
+    public static String address(String host, int port) {
+        return host.toLowerCase(Locale.ROOT) + ":" + port;
+    }
+
+    /**
+     * @return version of the snapshot, it is increased by each publishing
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param serviceId ID of service
+     * @return routes of the service or null if the service is not known
+     */
+    public RoutedServices getRoutedServices(String serviceId) {
+        return routedServices.get(serviceId);
+    }
+
+    /**
+     * @param serviceId ID of service
+     * @return base paths of routes of the service or null if the service is not known
+     */
+    public BasePaths getBasePaths(String serviceId) {
+        return basePaths.get(serviceId);
+    }
+
+    /**
+     * Find services with an instance on the address.
+     *
+     * @param address address in format host:port (case-insensitive)
+     * @return IDs of services, empty list if there is no such service
+     */
+    public List<String> getServiceIdsByAddress(String address) {
+        List<String> serviceIds = serviceIdsByAddress.get(address.toLowerCase(Locale.ROOT));
+        return (serviceIds == null) ? Collections.emptyList() : Collections.unmodifiableList(serviceIds);
+    }
+
+    /**
+     * @return IDs of all services in the snapshot
+     */
+    public Set<String> getServiceIds() {
+        return routedServices.keySet();
+    }
+
+    /**
+     * Service urls (base paths) of routes of one service by gateway url. The base path is normalized (missing service
+     * url is an empty string). The lookup accepts a part of a string, so the caller does not have to create
+     * a substring, and it does not allocate any memory.
+     */
+    public static final class BasePaths {
+
+        private final String[] gatewayUrls;
+        private final String[] basePaths;
+        private final int mask;
+
+        BasePaths(List<RoutedService> routes) {
+            int capacity = 2;
+            while (capacity < routes.size() * 2) capacity <<= 1;
+
+            gatewayUrls = new String[capacity];
+            basePaths = new String[capacity];
+            mask = capacity - 1;
+
+            for (RoutedService route : routes) {
+                final String gatewayUrl = route.getGatewayUrl();
+                int index = hash(gatewayUrl, 0, gatewayUrl.length()) & mask;
+                while (gatewayUrls[index] != null) index = (index + 1) & mask;
+                gatewayUrls[index] = gatewayUrl;
+                basePaths[index] = (route.getServiceUrl() == null) ? "" : route.getServiceUrl();
+            }
+        }
+
+        /**
+         * Find base path of route by gateway url (case-sensitive).
+         *
+         * @param path string containing the gateway url
+         * @param from start index of gateway url in path (inclusive)
+         * @param to   end index of gateway url in path (exclusive)
+         * @return the base path or null if there is no such route
+         */
+        public String find(String path, int from, int to) {
+            final int length = to - from;
+            int index = hash(path, from, to) & mask;
+            String gatewayUrl;
+            while ((gatewayUrl = gatewayUrls[index]) != null) {
+                if ((gatewayUrl.length() == length) && path.regionMatches(from, gatewayUrl, 0, length)) {
+                    return basePaths[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int hash(String path, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.product.routing;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Holder of the current {@link RouteSnapshot}. The routing (route locator) publishes a new snapshot on each change of
+ * routes and all users of routes (filters, WebSocket handler, ...) read the current one. Reading is lock-free (just a
+ * volatile read), a user which needs a consistent view for more lookups should get the snapshot once and use it.
+ */
+public class RouteSnapshotRegistry {
+
+    private volatile RouteSnapshot snapshot = RouteSnapshot.EMPTY;
+
+    /**
+     * @return the last published snapshot
+     */
+    public RouteSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Find routes of service in the last published snapshot.
+     *
+     * @param serviceId ID of service
+     * @return routes of the service or null if the service is not known
+     */
+    public RoutedServices getRoutedServices(String serviceId) {
+        return snapshot.getRoutedServices(serviceId);
+    }
+
+    /**
+     * Publish routes of all services as a new snapshot. It replaces the previous one as a whole (services which are
+     * missing in the map are removed).
+     *
+     * @param routedServices routes of all services by serviceId
+     * @return the published snapshot
+     */
+    public RouteSnapshot publish(Map<String, RoutedServices> routedServices) {
+        return publish(routedServices, Collections.emptyMap());
+    }
+
+    /**
+     * Publish routes of all services and addresses of their instances as a new snapshot. It replaces the previous
+     * one as a whole (services which are missing in the map are removed).
+     *
+     * @param routedServices routes of all services by serviceId
+     * @param addresses      addresses (host:port) of instances by serviceId
+     * @return the published snapshot
+     */
+    public synchronized RouteSnapshot publish(Map<String, RoutedServices> routedServices, Map<String, ? extends Collection<String>> addresses) {
+        final RouteSnapshot published = new RouteSnapshot(snapshot.getVersion() + 1, routedServices, addresses);
+        snapshot = published;
+        return published;
+    }
+
+}
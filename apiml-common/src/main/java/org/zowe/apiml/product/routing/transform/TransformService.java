@@ -10,7 +10,6 @@
 
 package org.zowe.apiml.product.routing.transform;
 
-import org.zowe.apiml.util.UrlUtils;
 import org.zowe.apiml.message.log.ApimlLogger;
 import org.zowe.apiml.product.gateway.GatewayClient;
 import org.zowe.apiml.product.gateway.GatewayConfigProperties;
@@ -24,18 +23,24 @@ import java.net.URI;
 
 /**
  * Class for producing service URL using Gateway hostname and service route
+ *
+ * Simple URLs (no escaped characters, fragment or IPv6 address) are parsed in place, the others by {@link URI}. The
+ * route prefix is stripped literally and the new URL is assembled by one builder with the cached prefix of the
+ * gateway URL (scheme and hostname).
  */
 
 @RequiredArgsConstructor
 public class TransformService {
 
-    private static final String SEPARATOR = "/";
+    private static final String SIMPLE_URL_CHARACTERS = "-_.!~*'();/?:@&=+$,";
 
     private final GatewayClient gatewayClient;
 
     @InjectApimlLogger
     private ApimlLogger apimlLog = ApimlLogger.empty();
 
+    private volatile GatewayUrlPrefix gatewayUrlPrefix;
+
     /**
      * Construct the URL using gateway hostname and route
      *
@@ -56,52 +61,134 @@ public class TransformService {
             throw new URLTransformationException("Gateway not found yet, transform service cannot perform the request");
         }
 
-        URI serviceUri = URI.create(serviceUrl);
-        String serviceUriPath = serviceUri.getPath();
-        if (serviceUriPath == null) {
-            String message = String.format("The URI %s is not valid.", serviceUri);
-            throw new URLTransformationException(message);
+        // url contains path (pathFrom - pathTo), optionally followed by the query (starting by "?")
+        String url;
+        int pathFrom;
+        int pathTo;
+        int simpleUrlPathFrom = getPathStartOfSimpleUrl(serviceUrl);
+        if (simpleUrlPathFrom >= 0) {
+            url = serviceUrl;
+            pathFrom = simpleUrlPathFrom;
+            pathTo = url.indexOf('?', pathFrom);
+            if (pathTo < 0) pathTo = url.length();
+        } else {
+            URI serviceUri = URI.create(serviceUrl);
+            String serviceUriPath = serviceUri.getPath();
+            if (serviceUriPath == null) {
+                String message = String.format("The URI %s is not valid.", serviceUri);
+                throw new URLTransformationException(message);
+            }
+            url = serviceUriPath;
+            pathFrom = 0;
+            pathTo = serviceUriPath.length();
+            if (serviceUri.getQuery() != null) {
+                url += "?" + serviceUri.getQuery();
+            }
         }
 
-        RoutedService route = routes.getBestMatchingServiceUrl(serviceUriPath, type);
+        RoutedService route = routes.getBestMatchingServiceUrl(url, pathFrom, pathTo, type);
         if (route == null) {
-            String message = String.format("Not able to select route for url %s of the service %s. Original url used.", serviceUri, serviceId);
+            String message = String.format("Not able to select route for url %s of the service %s. Original url used.", serviceUrl, serviceId);
             throw new URLTransformationException(message);
         }
 
+        int endPointFrom = getShortEndPointStart(route.getServiceUrl(), url, pathFrom, pathTo);
+        if ((endPointFrom < url.length()) && (url.charAt(endPointFrom) != '/')) {
+            throw new URLTransformationException("The path " + url.substring(pathFrom, pathTo) + " of the service URL " + serviceUrl + " is not valid.");
+        }
+
+        String prefix = getGatewayUrlPrefix();
+        String gatewayUrl = route.getGatewayUrl();
+        return new StringBuilder(prefix.length() + gatewayUrl.length() + 1 + serviceId.length() + url.length() - endPointFrom)
+            .append(prefix)
+            .append(gatewayUrl)
+            .append('/')
+            .append(serviceId)
+            .append(url, endPointFrom, url.length())
+            .toString();
+    }
 
-        if (serviceUri.getQuery() != null) {
-            serviceUriPath += "?" + serviceUri.getQuery();
+    /**
+     * Get start of short endpoint, it is the path without the service url of route (without its last slash). The
+     * comparison is case-insensitive as the matching of routes.
+     *
+     * @param routeServiceUrl service url of route
+     * @param url             url containing the path of endpoint
+     * @param pathFrom        start of the path in url
+     * @param pathTo          end of the path in url
+     * @return index in url where the short endpoint starts
+     */
+    private int getShortEndPointStart(String routeServiceUrl, String url, int pathFrom, int pathTo) {
+        int from = 0;
+        int to = routeServiceUrl.length();
+        while ((from < to) && (routeServiceUrl.charAt(from) <= ' ')) from++;
+        while ((to > from) && (routeServiceUrl.charAt(to - 1) <= ' ')) to--;
+        if ((to > from) && (routeServiceUrl.charAt(to - 1) == '/')) to--;
+
+        int length = to - from;
+        if ((length <= pathTo - pathFrom) && url.regionMatches(true, pathFrom, routeServiceUrl, from, length)) {
+            return pathFrom + length;
         }
+        return pathFrom;
+    }
 
-        String endPoint = getShortEndPoint(route.getServiceUrl(), serviceUriPath);
-        if (!endPoint.isEmpty() && !endPoint.startsWith("/")) {
-            throw new URLTransformationException("The path " + serviceUri.getPath() + " of the service URL " + serviceUri + " is not valid.");
+    /**
+     * Find start of path in the URL if the URL is simple (absolute with authority and just with characters which
+     * do not need decoding, without fragment).
+     *
+     * @param url URL to parse
+     * @return index of the path or -1 if the URL is not simple
+     */
+    private static int getPathStartOfSimpleUrl(String url) {
+        int schemeEnd = url.indexOf("://");
+        if ((schemeEnd <= 0) || !isAsciiLetter(url.charAt(0))) {
+            return -1;
+        }
+        for (int i = 1; i < schemeEnd; i++) {
+            char c = url.charAt(i);
+            if (!isAsciiLetterOrDigit(c) && (c != '+') && (c != '-') && (c != '.')) return -1;
         }
 
-        GatewayConfigProperties gatewayConfigProperties = gatewayClient.getGatewayConfigProperties();
+        int authorityFrom = schemeEnd + 3;
+        int pathFrom = -1;
+        for (int i = authorityFrom; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (!isAsciiLetterOrDigit(c) && (SIMPLE_URL_CHARACTERS.indexOf(c) < 0)) return -1;
+            if ((pathFrom < 0) && ((c == '/') || (c == '?'))) pathFrom = i;
+        }
+        if (pathFrom < 0) pathFrom = url.length();
+
+        // URL without authority is not simple
+        return pathFrom > authorityFrom ? pathFrom : -1;
+    }
 
-        return String.format("%s://%s/%s/%s%s",
-            gatewayConfigProperties.getScheme(),
-            gatewayConfigProperties.getHostname(),
-            route.getGatewayUrl(),
-            serviceId,
-            endPoint);
+    private static boolean isAsciiLetter(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'));
     }
 
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isAsciiLetter(c) || ((c >= '0') && (c <= '9'));
+    }
+
+    private String getGatewayUrlPrefix() {
+        GatewayConfigProperties gatewayConfigProperties = gatewayClient.getGatewayConfigProperties();
+        GatewayUrlPrefix cached = gatewayUrlPrefix;
+        if ((cached == null) || (cached.gatewayConfigProperties != gatewayConfigProperties)) {
+            cached = new GatewayUrlPrefix(gatewayConfigProperties,
+                gatewayConfigProperties.getScheme() + "://" + gatewayConfigProperties.getHostname() + "/");
+            gatewayUrlPrefix = cached;
+        }
+        return cached.prefix;
+    }
 
     /**
-     * Get short endpoint
-     *
-     * @param routeServiceUrl service url of route
-     * @param endPoint        the endpoint of method
-     * @return short endpoint
+     * Prefix of URLs to the gateway ("scheme://hostname/") computed from the current gateway configuration
      */
-    private String getShortEndPoint(String routeServiceUrl, String endPoint) {
-        String shortEndPoint = endPoint;
-        if (!routeServiceUrl.equals(SEPARATOR)) {
-            shortEndPoint = shortEndPoint.replaceFirst(UrlUtils.removeLastSlash(routeServiceUrl), "");
-        }
-        return shortEndPoint;
+    @RequiredArgsConstructor
+    private static class GatewayUrlPrefix {
+
+        private final GatewayConfigProperties gatewayConfigProperties;
+        private final String prefix;
+
     }
 }
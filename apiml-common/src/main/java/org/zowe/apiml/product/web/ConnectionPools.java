@@ -0,0 +1,48 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.product.web;
+
+import org.zowe.apiml.security.ObservableConnectionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Registry of connection pools of http clients by name. It allows to observe pools (ie. to publish metrics) also if
+ * they are created later (ie. dedicated pools of services).
+ */
+public class ConnectionPools {
+
+    private final Map<String, ObservableConnectionManager> pools = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, ObservableConnectionManager>> listeners = new CopyOnWriteArrayList<>();
+
+    public void register(String name, ObservableConnectionManager connectionManager) {
+        pools.put(name, connectionManager);
+        listeners.forEach(x -> x.accept(name, connectionManager));
+    }
+
+    /**
+     * Call the listener for all registered pools and then for each newly registered pool
+     *
+     * @param listener listener of pools (name, connection manager)
+     */
+    public void forEachPool(BiConsumer<String, ObservableConnectionManager> listener) {
+        listeners.add(listener);
+        pools.forEach(listener);
+    }
+
+    public ObservableConnectionManager get(String name) {
+        return pools.get(name);
+    }
+
+}
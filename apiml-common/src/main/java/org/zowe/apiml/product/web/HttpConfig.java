@@ -11,9 +11,11 @@ package org.zowe.apiml.product.web;
 
 import org.zowe.apiml.message.log.ApimlLogger;
 import org.zowe.apiml.product.logging.annotations.InjectApimlLogger;
+import org.zowe.apiml.security.ConnectionPoolConfig;
 import org.zowe.apiml.security.HttpsConfig;
 import org.zowe.apiml.security.HttpsConfigError;
 import org.zowe.apiml.security.HttpsFactory;
+import org.zowe.apiml.security.ObservableConnectionManager;
 import org.zowe.apiml.security.SecurityUtils;
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClient;
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClientImpl.EurekaJerseyClientBuilder;
@@ -75,11 +77,29 @@ public class HttpConfig {
     @Value("${eureka.client.serviceUrl.defaultZone}")
     private String eurekaServerUrl;
 
+    @Value("${apiml.connectionPool.maxTotal:100}")
+    private int connectionPoolMaxTotal;
+
+    @Value("${apiml.connectionPool.maxPerRoute:20}")
+    private int connectionPoolMaxPerRoute;
+
+    @Value("${apiml.connectionPool.timeToLive:-1}")
+    private long connectionPoolTimeToLive;
+
+    @Value("${apiml.connectionPool.idleEvictionInterval:30000}")
+    private long connectionPoolIdleEvictionInterval;
+
+    @Value("${apiml.connectionPool.validateAfterInactivity:2000}")
+    private int connectionPoolValidateAfterInactivity;
+
     private CloseableHttpClient secureHttpClient;
     private CloseableHttpClient secureHttpClientWithoutKeystore;
     private SSLContext secureSslContext;
     private HostnameVerifier secureHostnameVerifier;
     private EurekaJerseyClientBuilder eurekaJerseyClientBuilder;
+    private HttpsFactory factoryWithoutKeystore;
+    private ConnectionPoolConfig connectionPoolConfig;
+    private final ConnectionPools connectionPools = new ConnectionPools();
 
     @InjectApimlLogger
     private ApimlLogger apimlLog = ApimlLogger.empty();
@@ -87,11 +107,20 @@ public class HttpConfig {
     @PostConstruct
     public void init() {
         try {
+            connectionPoolConfig = ConnectionPoolConfig.builder()
+                .maxTotal(connectionPoolMaxTotal)
+                .maxPerRoute(connectionPoolMaxPerRoute)
+                .timeToLive(connectionPoolTimeToLive)
+                .idleEvictionInterval(connectionPoolIdleEvictionInterval)
+                .validateAfterInactivity(connectionPoolValidateAfterInactivity)
+                .build();
+
             Supplier<HttpsConfig.HttpsConfigBuilder> httpsConfigSupplier = () ->
                 HttpsConfig.builder()
                     .protocol(protocol)
                     .trustStore(trustStore).trustStoreType(trustStoreType).trustStorePassword(trustStorePassword).trustStoreRequired(trustStoreRequired)
-                    .verifySslCertificatesOfServices(verifySslCertificatesOfServices);
+                    .verifySslCertificatesOfServices(verifySslCertificatesOfServices)
+                    .connectionPool(connectionPoolConfig);
 
             HttpsConfig httpsConfig = httpsConfigSupplier.get()
                 .keyAlias(keyAlias).keyStore(keyStore).keyPassword(keyPassword)
@@ -103,13 +132,13 @@ public class HttpConfig {
             log.info("Using HTTPS configuration: {}", httpsConfig.toString());
 
             HttpsFactory factory = new HttpsFactory(httpsConfig);
-            secureHttpClient = factory.createSecureHttpClient();
+            secureHttpClient = createSecureHttpClient(factory, "withKeystore");
             secureSslContext = factory.createSslContext();
             secureHostnameVerifier = factory.createHostnameVerifier();
             eurekaJerseyClientBuilder = factory.createEurekaJerseyClientBuilder(eurekaServerUrl, serviceId);
 
-            HttpsFactory factoryWithoutKeystore = new HttpsFactory(httpsConfigWithoutKeystore);
-            secureHttpClientWithoutKeystore = factoryWithoutKeystore.createSecureHttpClient();
+            factoryWithoutKeystore = new HttpsFactory(httpsConfigWithoutKeystore);
+            secureHttpClientWithoutKeystore = createSecureHttpClient(factoryWithoutKeystore, "withoutKeystore");
 
             factory.setSystemSslProperties();
         }
@@ -122,6 +151,12 @@ public class HttpConfig {
         }
     }
 
+    private CloseableHttpClient createSecureHttpClient(HttpsFactory factory, String poolName) {
+        ObservableConnectionManager connectionManager = factory.createConnectionManager(connectionPoolConfig);
+        connectionPools.register(poolName, connectionManager);
+        return factory.createSecureHttpClient(connectionManager, connectionPoolConfig);
+    }
+
     @Bean
     public SslContextFactory jettySslContextFactory() {
         SslContextFactory sslContextFactory = new SslContextFactory(SecurityUtils.replaceFourSlashes(keyStore));
@@ -170,6 +205,29 @@ public class HttpConfig {
         return secureHttpClientWithoutKeystore;
     }
 
+    /**
+     * @return factory of http clients with the same settings as secureHttpClientWithoutKeystore (ie. to create a client
+     * with a dedicated connection pool)
+     */
+    @Bean
+    @Qualifier("httpsFactoryWithoutKeystore")
+    public HttpsFactory httpsFactoryWithoutKeystore() {
+        return factoryWithoutKeystore;
+    }
+
+    /**
+     * @return global settings of connection pools (properties apiml.connectionPool.*)
+     */
+    @Bean
+    public ConnectionPoolConfig connectionPoolConfig() {
+        return connectionPoolConfig;
+    }
+
+    @Bean
+    public ConnectionPools connectionPools() {
+        return connectionPools;
+    }
+
     @Bean
     public SSLContext secureSslContext() {
         return secureSslContext;
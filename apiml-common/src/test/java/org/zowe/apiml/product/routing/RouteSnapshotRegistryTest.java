@@ -0,0 +1,81 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.product.routing;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RouteSnapshotRegistryTest {
+
+    @Test
+    public void givenNoPublishing_whenGetSnapshot_thenEmpty() {
+        RouteSnapshotRegistry registry = new RouteSnapshotRegistry();
+
+        assertSame(RouteSnapshot.EMPTY, registry.getSnapshot());
+        assertEquals(0, registry.getSnapshot().getVersion());
+        assertNull(registry.getRoutedServices("service"));
+    }
+
+    @Test
+    public void givenPublishedRoutes_whenPublishAgain_thenReplaceWholeSnapshot() {
+        RouteSnapshotRegistry registry = new RouteSnapshotRegistry();
+        RoutedServices routedServices1 = new RoutedServices();
+        RoutedServices routedServices2 = new RoutedServices();
+
+        Map<String, RoutedServices> routes = new HashMap<>();
+        routes.put("service1", routedServices1);
+        routes.put("service2", routedServices2);
+        RouteSnapshot snapshot1 = registry.publish(routes);
+
+        routes.remove("service2");
+        assertSame(routedServices2, snapshot1.getRoutedServices("service2"));
+
+        RouteSnapshot snapshot2 = registry.publish(routes);
+        assertSame(snapshot2, registry.getSnapshot());
+        assertEquals(snapshot1.getVersion() + 1, snapshot2.getVersion());
+        assertSame(routedServices1, registry.getRoutedServices("service1"));
+        assertNull(registry.getRoutedServices("service2"));
+        assertEquals(1, snapshot2.getServiceIds().size());
+
+        // the previous snapshot is not changed
+        assertEquals(2, snapshot1.getServiceIds().size());
+    }
+
+    @Test
+    public void givenPublishedRoutes_whenFindBasePath_thenMatchPartOfString() {
+        RoutedServices routedServices = new RoutedServices();
+        routedServices.addRoutedService(new RoutedService("api-v1", "api/v1", "/service/api/v1"));
+        routedServices.addRoutedService(new RoutedService("api-v2", "api/v2", null));
+        routedServices.addRoutedService(new RoutedService("ui-v1", "ui/v1", "/service/ui"));
+        RouteSnapshotRegistry registry = new RouteSnapshotRegistry();
+        registry.publish(Collections.singletonMap("service", routedServices));
+
+        RouteSnapshot.BasePaths basePaths = registry.getSnapshot().getBasePaths("service");
+        String proxy = "/api/v1/service/ui/v1/api/v2/api/v";
+        assertEquals("/service/api/v1", basePaths.find(proxy, 1, 7));
+        assertEquals("/service/ui", basePaths.find(proxy, 16, 21));
+        assertEquals("", basePaths.find(proxy, 22, 28));
+        assertNull(basePaths.find(proxy, 29, 34));
+        assertNull(basePaths.find(proxy, 1, 15));
+        assertNull(registry.getSnapshot().getBasePaths("unknown"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void givenSnapshot_whenModifyServiceIds_thenFail() {
+        RouteSnapshotRegistry registry = new RouteSnapshotRegistry();
+        registry.publish(new HashMap<>()).getServiceIds().add("service");
+    }
+
+}
@@ -150,7 +150,7 @@ public class TransformServiceTest {
 
 
     @Test
-    public void givenHomePage_whenPathIsNotValid_thenThrowException() throws URLTransformationException {
+    public void givenHomePage_whenPathMatchesJustPartOfSegment_thenThrowException() throws URLTransformationException {
         String url = "https://localhost:8080/wss";
 
         RoutedServices routedServices = new RoutedServices();
@@ -162,7 +162,7 @@ public class TransformServiceTest {
         TransformService transformService = new TransformService(gatewayClient);
 
         exception.expect(URLTransformationException.class);
-        exception.expectMessage("The path /wss of the service URL https://localhost:8080/wss is not valid.");
+        exception.expectMessage("Not able to select route for url https://localhost:8080/wss of the service service. Original url used.");
         transformService.transformURL(ServiceType.WS, SERVICE_ID, url, routedServices);
     }
 
@@ -231,5 +231,53 @@ public class TransformServiceTest {
         assertEquals(expectedUrl, actualUrl);
     }
 
+    @Test
+    public void givenServiceUrlWithRegexCharacters_whenTransform_thenStripItLiterally() throws URLTransformationException {
+        String url = "https://localhost:8080/service/v1.0+(beta)/login?action=secure";
+        RoutedServices routedServices = new RoutedServices();
+        routedServices.addRoutedService(new RoutedService(SERVICE_ID, "api/v1", "/service/v1.0+(beta)/"));
+
+        TransformService transformService = new TransformService(gatewayClient);
+
+        String actualUrl = transformService.transformURL(ServiceType.API, SERVICE_ID, url, routedServices);
+        assertEquals("https://localhost/api/v1/service/login?action=secure", actualUrl);
+    }
+
+    @Test
+    public void givenPathInDifferentCase_whenTransform_thenStripRoutePrefix() throws URLTransformationException {
+        String url = "https://localhost:8080/Service/API/v1/login";
+        RoutedServices routedServices = new RoutedServices();
+        routedServices.addRoutedService(new RoutedService(SERVICE_ID, "api/v1", "/service/api/v1"));
+
+        TransformService transformService = new TransformService(gatewayClient);
+
+        String actualUrl = transformService.transformURL(ServiceType.API, SERVICE_ID, url, routedServices);
+        assertEquals("https://localhost/api/v1/service/login", actualUrl);
+    }
+
+    @Test
+    public void givenEscapedUrl_whenTransform_thenUseDecodedPath() throws URLTransformationException {
+        String url = "https://localhost:8080/ui/service/a%2Fb?x=1#top";
+        RoutedServices routedServices = new RoutedServices();
+        routedServices.addRoutedService(new RoutedService(SERVICE_ID, UI_PREFIX, "/ui/service"));
+
+        TransformService transformService = new TransformService(gatewayClient);
+
+        String actualUrl = transformService.transformURL(ServiceType.UI, SERVICE_ID, url, routedServices);
+        assertEquals("https://localhost/ui/service/a/b?x=1", actualUrl);
+    }
+
+    @Test
+    public void givenChangedGateway_whenTransform_thenUseNewGatewayUrl() throws URLTransformationException {
+        String url = "https://localhost:8080/ui";
+        RoutedServices routedServices = new RoutedServices();
+        routedServices.addRoutedService(new RoutedService(SERVICE_ID, UI_PREFIX, "/ui"));
+
+        TransformService transformService = new TransformService(gatewayClient);
+        assertEquals("https://localhost/ui/service", transformService.transformURL(ServiceType.UI, SERVICE_ID, url, routedServices));
+
+        gatewayClient.setGatewayConfigProperties(GatewayConfigProperties.builder().scheme("http").hostname("gateway:10010").build());
+        assertEquals("http://gateway:10010/ui/service", transformService.transformURL(ServiceType.UI, SERVICE_ID, url, routedServices));
+    }
 
 }
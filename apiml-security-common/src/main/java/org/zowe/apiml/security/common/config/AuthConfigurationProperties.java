@@ -53,6 +53,7 @@ public class AuthConfigurationProperties {
         private String issuer = "APIML";
         private String shortTtlUsername = "expire";
         private long shortTtlExpirationInSeconds = 1;
+        private int validationCacheSize = 100000;
     }
 
     //Cookie properties
@@ -68,6 +69,10 @@ public class AuthConfigurationProperties {
     @Data
     public static class PassTicket {
         private Integer timeout = 540;
+        private Integer refreshAheadInSeconds = 60;
+        private Integer maxConcurrentGenerations = 4;
+        private Integer maxQueuedGenerations = 1000;
+        private Integer generationTimeoutInSeconds = 10;
     }
 
     public AuthConfigurationProperties() {
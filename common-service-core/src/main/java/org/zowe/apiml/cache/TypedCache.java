@@ -0,0 +1,209 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * In-memory cache with typed keys and values. It replaces Spring cache annotations on hot paths, where the cost of
+ * AOP proxy, SpEL conditions, generating of keys and wrapping of values is significant.
+ *
+ * Properties of the cache:
+ *  - values are valid for timeToLive since they were stored
+ *  - if the count of entries exceeds maxEntries, expired and then the least recently used entries are evicted (down
+ *    to 90 % of maxEntries), maxEntries lower or equal to zero means no caching
+ *  - values implementing {@link EntryExpiration} are not stored if they are expired and they are loaded again once
+ *    they expire
+ *  - null values are not cached
+ *  - loading is not synchronized, concurrent misses of the same key could load the value more times (the same
+ *    behaviour as @Cacheable without sync)
+ *
+ * The cache counts hits, misses and evictions to be published as metrics.
+ *
+ * @param <K> type of key, it has to implement equals and hashCode
+ * @param <V> type of value
+ */
+public class TypedCache<K, V> {
+
+    private static final double EVICTION_RATIO = 0.9;
+
+    private final String name;
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public TypedCache(String name, int maxEntries, long timeToLiveMillis) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * @param key key of entry
+     * @return valid cached value or null if there is no one
+     */
+    public V get(K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            final long now = System.currentTimeMillis();
+            if (isValid(entry, now)) {
+                entry.lastAccess = now;
+                hitCount.increment();
+                return entry.value;
+            }
+            if (entries.remove(key, entry)) evictionCount.increment();
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * Return the cached value. If there is no valid value, load it by the loader and store it.
+     *
+     * @param key key of entry
+     * @param loader method to load the value on a cache miss
+     * @param <E> type of exception thrown by the loader
+     * @return cached or loaded value
+     * @throws E exception of loader, nothing is stored in this case
+     */
+    public <E extends Exception> V compute(K key, Loader<K, V, E> loader) throws E {
+        V value = get(key);
+        if (value == null) {
+            value = loader.load(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Store the value (null and expired values are ignored).
+     *
+     * @param key key of entry
+     * @param value value to store
+     */
+    public void put(K key, V value) {
+        if ((maxEntries <= 0) || (value == null) || isExpired(value)) return;
+
+        final long now = System.currentTimeMillis();
+        entries.put(key, new Entry<>(value, now + timeToLiveMillis, now));
+
+        if (entries.size() > maxEntries) evictOverflow(now);
+    }
+
+    public void evict(K key) {
+        if (entries.remove(key) != null) evictionCount.increment();
+    }
+
+    /**
+     * Evict all entries with the key matching the predicate (ie. entries of one service).
+     *
+     * @param keyPredicate condition to filter keys to evict
+     */
+    public void evictIf(Predicate<K> keyPredicate) {
+        entries.keySet().removeIf(key -> {
+            if (!keyPredicate.test(key)) return false;
+            evictionCount.increment();
+            return true;
+        });
+    }
+
+    public void evictAll() {
+        evictionCount.add(entries.size());
+        entries.clear();
+    }
+
+    private void evictOverflow(long now) {
+        // just one thread cleans the cache, others continue
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            entries.entrySet().removeIf(entry -> {
+                if (isValid(entry.getValue(), now)) return false;
+                evictionCount.increment();
+                return true;
+            });
+
+            final int toEvict = entries.size() - (int) (maxEntries * EVICTION_RATIO);
+            if (toEvict <= 0) return;
+
+            final List<Map.Entry<K, Entry<V>>> snapshot = new ArrayList<>(entries.entrySet());
+            snapshot.sort(Comparator.comparingLong(x -> x.getValue().lastAccess));
+            for (int i = 0; i < Math.min(toEvict, snapshot.size()); i++) {
+                final Map.Entry<K, Entry<V>> entry = snapshot.get(i);
+                if (entries.remove(entry.getKey(), entry.getValue())) evictionCount.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private boolean isValid(Entry<V> entry, long now) {
+        return (now < entry.expireAt) && !isExpired(entry.value);
+    }
+
+    private boolean isExpired(V value) {
+        return (value instanceof EntryExpiration) && ((EntryExpiration) value).isExpired();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @FunctionalInterface
+    public interface Loader<K, V, E extends Exception> {
+
+        V load(K key) throws E;
+
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expireAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long expireAt, long lastAccess) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.lastAccess = lastAccess;
+        }
+
+    }
+
+}
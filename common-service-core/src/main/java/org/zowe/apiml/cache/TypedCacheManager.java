@@ -0,0 +1,107 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Registry of {@link TypedCache}. It keeps settings of caches by name (instead of ehcache.xml) and allows to observe
+ * all caches (ie. to publish their metrics).
+ *
+ * Example:
+ *
+ * <pre>
+ * private final TypedCache&lt;Key, Value&gt; cache;
+ *
+ * public Service(TypedCacheManager typedCacheManager) {
+ *     this.cache = typedCacheManager.getCache("&lt;cacheName&gt;");
+ * }
+ *
+ * public Value getValue(Key key) {
+ *     return cache.compute(key, this::loadValue);
+ * }
+ * </pre>
+ */
+public class TypedCacheManager {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 86400_000L;
+
+    private final Map<String, Settings> settings = new ConcurrentHashMap<>();
+    private final Map<String, TypedCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final List<Consumer<TypedCache<?, ?>>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Set settings of cache. It has to be called before the cache is created.
+     *
+     * @param name name of cache
+     * @param maxEntries maximum count of entries, zero to turn off the cache
+     * @param timeToLiveMillis validity of stored values
+     * @return this instance
+     */
+    public TypedCacheManager configure(String name, int maxEntries, long timeToLiveMillis) {
+        settings.put(name, new Settings(maxEntries, timeToLiveMillis));
+        return this;
+    }
+
+    /**
+     * Return the cache by name. If it does not exist yet, it is created with its settings (or with defaults: 1000
+     * entries valid for one day).
+     *
+     * @param name name of cache
+     * @return cache
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> TypedCache<K, V> getCache(String name) {
+        TypedCache<?, ?> cache = caches.get(name);
+        if (cache == null) {
+            synchronized (caches) {
+                cache = caches.get(name);
+                if (cache == null) {
+                    final Settings cacheSettings = settings.getOrDefault(name, new Settings(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE_MILLIS));
+                    cache = new TypedCache<>(name, cacheSettings.maxEntries, cacheSettings.timeToLiveMillis);
+                    caches.put(name, cache);
+                    final TypedCache<?, ?> created = cache;
+                    listeners.forEach(x -> x.accept(created));
+                }
+            }
+        }
+        return (TypedCache<K, V>) cache;
+    }
+
+    /**
+     * Call the consumer for each existing cache and also for each cache created later.
+     *
+     * @param consumer consumer of caches
+     */
+    public void forEachCache(Consumer<TypedCache<?, ?>> consumer) {
+        synchronized (caches) {
+            listeners.add(consumer);
+            caches.values().forEach(consumer);
+        }
+    }
+
+    private static class Settings {
+
+        private final int maxEntries;
+        private final long timeToLiveMillis;
+
+        private Settings(int maxEntries, long timeToLiveMillis) {
+            this.maxEntries = maxEntries;
+            this.timeToLiveMillis = timeToLiveMillis;
+        }
+
+    }
+
+}
@@ -41,6 +41,12 @@ public final class EurekaMetadataDefinition {
     public static final String AUTHENTICATION_SCHEME = "apiml.authentication.scheme";
     public static final String AUTHENTICATION_APPLID = "apiml.authentication.applid";
 
+    public static final String CONNECTION_POOL_MAX_TOTAL = "apiml.connectionPool.maxTotal";
+    public static final String CONNECTION_POOL_MAX_PER_ROUTE = "apiml.connectionPool.maxPerRoute";
+    public static final String CONNECTION_POOL_TIME_TO_LIVE = "apiml.connectionPool.timeToLive";
+    public static final String CONNECTION_POOL_IDLE_EVICTION_INTERVAL = "apiml.connectionPool.idleEvictionInterval";
+    public static final String CONNECTION_POOL_VALIDATE_AFTER_INACTIVITY = "apiml.connectionPool.validateAfterInactivity";
+
     //v1
     public static final String ROUTES_V1 = "routed-services";
     public static final String ROUTES_GATEWAY_URL_V1 = "gateway-url";
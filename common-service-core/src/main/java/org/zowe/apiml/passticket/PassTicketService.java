@@ -15,10 +15,11 @@ import lombok.AllArgsConstructor;
 import lombok.Value;
 import org.apache.commons.lang.StringUtils;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class allows to get a PassTicket from SAF.
@@ -51,9 +52,17 @@ public class PassTicketService {
         return stateInterface.isUsingBaseImplementation();
     }
 
+    /**
+     * Stand-in of SAF PassTickets for running outside of z/OS (development, load tests). Generated PassTickets are
+     * valid for the same time as on z/OS (10 minutes). They are stored in concurrent map and the count of stored
+     * PassTickets is limited, the oldest ones are forgotten first.
+     *
+     * The limits can be changed by system properties apiml.passticket.dummy.maxEntries and
+     * apiml.passticket.dummy.timeout (in seconds).
+     */
     public static class DefaultPassTicketImpl implements IRRPassTicket {
 
-        private static int id = 0;
+        private static final AtomicInteger id = new AtomicInteger();
 
         public static final String ZOWE_DUMMY_USERID = "user";
         public static final String ZOWE_DUMMY_PASS_TICKET_PREFIX = "ZoweDummyPassTicket";
@@ -62,7 +71,29 @@ public class PassTicketService {
         public static final String UNKNOWN_USER = "unknownUser";
         public static final String UNKNOWN_APPLID = "XBADAPPL";
 
-        private final Map<UserApp, Set<String>> userAppToPasstickets = new HashMap<>();
+        public static final int DEFAULT_MAX_ENTRIES = 100_000;
+        public static final int DEFAULT_TIMEOUT = 600;
+
+        private final int maxEntries;
+        private final long timeoutMillis;
+
+        private final Map<UserAppTicket, Long> passTickets = new ConcurrentHashMap<>();
+        /**
+         * PassTickets in order of generation, it is also the order of expiration
+         */
+        private final Queue<UserAppTicket> generated = new ConcurrentLinkedQueue<>();
+
+        public DefaultPassTicketImpl() {
+            this(
+                Integer.getInteger("apiml.passticket.dummy.maxEntries", DEFAULT_MAX_ENTRIES),
+                Integer.getInteger("apiml.passticket.dummy.timeout", DEFAULT_TIMEOUT) * 1000L
+            );
+        }
+
+        public DefaultPassTicketImpl(int maxEntries, long timeoutMillis) {
+            this.maxEntries = maxEntries;
+            this.timeoutMillis = timeoutMillis;
+        }
 
         @Override
         public void evaluate(String userId, String applId, String passTicket) throws IRRPassTicketEvaluationException {
@@ -78,9 +109,9 @@ public class PassTicketService {
                 return;
             }
 
-            final Set<String> passTickets = userAppToPasstickets.get(new UserApp(userId, applId));
+            final Long expireAt = passTickets.get(new UserAppTicket(userId, applId, passTicket));
 
-            if ((passTickets == null) || !passTickets.contains(passTicket)) {
+            if ((expireAt == null) || (expireAt <= System.currentTimeMillis())) {
                 throw new IRRPassTicketEvaluationException(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_32);
             }
         }
@@ -99,25 +130,43 @@ public class PassTicketService {
                 return ZOWE_DUMMY_PASS_TICKET_PREFIX;
             }
 
-            final UserApp userApp = new UserApp(userId, applId);
-            final int currentId;
-            synchronized (DefaultPassTicketImpl.class) {
-                currentId = DefaultPassTicketImpl.id++;
-            }
-            final String passTicket = ZOWE_DUMMY_PASS_TICKET_PREFIX + "_" + applId + "_" + userId + "_" + currentId;
+            final String passTicket = ZOWE_DUMMY_PASS_TICKET_PREFIX + "_" + applId + "_" + userId + "_" + id.getAndIncrement();
 
-            final Set<String> passTickets = userAppToPasstickets.computeIfAbsent(userApp, x -> new HashSet<>());
-            passTickets.add(passTicket);
+            final long now = System.currentTimeMillis();
+            final UserAppTicket userAppTicket = new UserAppTicket(userId, applId, passTicket);
+            passTickets.put(userAppTicket, now + timeoutMillis);
+            generated.add(userAppTicket);
+            purge(now);
 
             return passTicket;
         }
 
+        /**
+         * Remove expired PassTickets and the oldest ones over the limit
+         */
+        private void purge(long now) {
+            UserAppTicket oldest;
+            while ((oldest = generated.peek()) != null) {
+                final Long expireAt = passTickets.get(oldest);
+                final boolean remove = (expireAt == null) || (expireAt <= now) || (passTickets.size() > maxEntries);
+                if (!remove) break;
+
+                // other thread could remove the same record meanwhile
+                if (generated.remove(oldest)) passTickets.remove(oldest);
+            }
+        }
+
+        int size() {
+            return passTickets.size();
+        }
+
         @AllArgsConstructor
         @Value
-        private static class UserApp {
+        private static class UserAppTicket {
 
             private final String userId;
             private final String applId;
+            private final String passTicket;
 
         }
     }
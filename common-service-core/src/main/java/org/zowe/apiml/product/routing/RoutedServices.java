@@ -9,21 +9,24 @@
  */
 package org.zowe.apiml.product.routing;
 
-import org.zowe.apiml.util.UrlUtils;
-
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 public class RoutedServices {
-    private final Map<String, RoutedService> routedService = new HashMap<>();
+    private final Map<String, RoutedService> routedService = new LinkedHashMap<>();
+
+    /**
+     * Tries of service urls (one per service type), they are built on the first search after a change of routes
+     */
+    private volatile Map<ServiceType, RouteTrie> tries;
 
     /**
      * Add route to the service
      *
      * @param route the route
      */
-    public void addRoutedService(RoutedService route) {
+    public synchronized void addRoutedService(RoutedService route) {
         routedService.put(route.getGatewayUrl(), route);
+        tries = null;
     }
 
     /**
@@ -32,43 +35,74 @@ public class RoutedServices {
      * @param gatewayUrl the url of gateway
      * @return the route
      */
-    public RoutedService findServiceByGatewayUrl(String gatewayUrl) {
+    public synchronized RoutedService findServiceByGatewayUrl(String gatewayUrl) {
         return routedService.get(gatewayUrl);
     }
 
     /**
-     * Get best matching service url
+     * Get all routes of the service
+     *
+     * @return copy of routes in the order of adding
+     */
+    public synchronized List<RoutedService> getRoutedServices() {
+        return new ArrayList<>(routedService.values());
+    }
+
+    /**
+     * Get best matching service url. The matching is case-insensitive and by whole segments of path, the route with
+     * the longest service url wins (if more routes have the same service url, the first added one).
+     *
+     * The search takes time proportional to the depth of the path and does not allocate any memory.
      *
      * @param serviceUrl service url
      * @param type       service type
      * @return the route
      */
     public RoutedService getBestMatchingServiceUrl(String serviceUrl, ServiceType type) {
-        RoutedService result = null;
-        int maxSize = 0;
+        return getBestMatchingServiceUrl(serviceUrl, 0, serviceUrl.length(), type);
+    }
 
-        for (Map.Entry<String, RoutedService> serviceEntry : routedService.entrySet()) {
-            if (!type.equals(ServiceType.ALL)
-                && !serviceEntry.getKey().toLowerCase().startsWith(type.name().toLowerCase())) {
-                continue;
-            }
+    /**
+     * Get best matching service url of a part of the string (ie. path of an url), see
+     * {@link #getBestMatchingServiceUrl(String, ServiceType)}
+     *
+     * @param url  string containing the service url
+     * @param from start index of the service url (inclusive)
+     * @param to   end index of the service url (exclusive)
+     * @param type service type
+     * @return the route
+     */
+    public RoutedService getBestMatchingServiceUrl(String url, int from, int to, ServiceType type) {
+        Map<ServiceType, RouteTrie> localTries = tries;
+        if (localTries == null) localTries = buildTries();
 
-            RoutedService value = serviceEntry.getValue();
-            int size = value.getServiceUrl().length();
-            //Remove last slash for service url
-            String routeServiceUrl = UrlUtils.removeLastSlash(value.getServiceUrl().toLowerCase());
-            if (size > maxSize &&
-                serviceUrl.toLowerCase().startsWith(routeServiceUrl)) {
-                result = value;
-                maxSize = size;
+        return localTries.get(type).getBestMatch(url, from, to);
+    }
+
+    private synchronized Map<ServiceType, RouteTrie> buildTries() {
+        if (tries != null) return tries;
+
+        final Map<ServiceType, RouteTrie> out = new EnumMap<>(ServiceType.class);
+        for (final ServiceType type : ServiceType.values()) {
+            out.put(type, new RouteTrie());
+        }
+
+        for (final Map.Entry<String, RoutedService> serviceEntry : routedService.entrySet()) {
+            final String gatewayUrl = serviceEntry.getKey().toLowerCase();
+            for (final ServiceType type : ServiceType.values()) {
+                // service type is defined by prefix of gateway url (ie. api/v1, ui/v1)
+                if (type.equals(ServiceType.ALL) || gatewayUrl.startsWith(type.name().toLowerCase())) {
+                    out.get(type).add(serviceEntry.getValue());
+                }
             }
         }
 
-        return result;
+        tries = out;
+        return out;
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("[");
         for (Map.Entry<String, RoutedService> route : routedService.entrySet()) {
@@ -83,4 +117,137 @@ public class RoutedServices {
         builder.append("]");
         return builder.toString();
     }
+
+    /**
+     * Case-insensitive trie of path segments of service urls. Each node keeps the route with exactly its path.
+     */
+    static final class RouteTrie {
+
+        private final Node root = new Node(null, 0);
+
+        void add(RoutedService route) {
+            final String serviceUrl = route.getServiceUrl();
+            Node node = root;
+            int from = 0;
+            while (true) {
+                from = skipSlashes(serviceUrl, from);
+                if (from >= serviceUrl.length()) break;
+                final int to = segmentEnd(serviceUrl, from);
+                node = node.getOrCreateChild(serviceUrl, from, to);
+                from = to;
+            }
+            if (node.route == null) node.route = route;
+        }
+
+        RoutedService getBestMatch(String serviceUrl, int from, int end) {
+            Node node = root;
+            RoutedService best = root.route;
+            while (true) {
+                from = skipSlashes(serviceUrl, from, end);
+                if (from >= end) break;
+                final int to = segmentEnd(serviceUrl, from, end);
+                node = node.getChild(serviceUrl, from, to, hash(serviceUrl, from, to));
+                if (node == null) break;
+                if (node.route != null) best = node.route;
+                from = to;
+            }
+            return best;
+        }
+
+        private static int skipSlashes(String path, int from) {
+            return skipSlashes(path, from, path.length());
+        }
+
+        private static int skipSlashes(String path, int from, int end) {
+            while ((from < end) && (path.charAt(from) == '/')) from++;
+            return from;
+        }
+
+        private static int segmentEnd(String path, int from) {
+            return segmentEnd(path, from, path.length());
+        }
+
+        private static int segmentEnd(String path, int from, int end) {
+            final int to = path.indexOf('/', from);
+            return ((to < 0) || (to > end)) ? end : to;
+        }
+
+        private static int hash(String path, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + Character.toLowerCase(path.charAt(i));
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equalsIgnoreCase(String segment, String path, int from, int to) {
+            if (segment.length() != to - from) return false;
+            for (int i = 0; i < segment.length(); i++) {
+                if (segment.charAt(i) != Character.toLowerCase(path.charAt(from + i))) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Node of trie, children are stored in open addressing hash table to find them without allocation
+         */
+        private static final class Node {
+
+            private final String segment;
+            private final int hash;
+            private RoutedService route;
+
+            private Node[] children = new Node[0];
+            private int childrenCount;
+
+            private Node(String segment, int hash) {
+                this.segment = segment;
+                this.hash = hash;
+            }
+
+            private Node getChild(String path, int from, int to, int hash) {
+                if (childrenCount == 0) return null;
+                final int mask = children.length - 1;
+                for (int i = hash & mask; ; i = (i + 1) & mask) {
+                    final Node child = children[i];
+                    if (child == null) return null;
+                    if ((child.hash == hash) && equalsIgnoreCase(child.segment, path, from, to)) return child;
+                }
+            }
+
+            private Node getOrCreateChild(String path, int from, int to) {
+                final int childHash = hash(path, from, to);
+                Node child = getChild(path, from, to, childHash);
+                if (child == null) {
+                    final StringBuilder segment = new StringBuilder(to - from);
+                    for (int i = from; i < to; i++) {
+                        segment.append(Character.toLowerCase(path.charAt(i)));
+                    }
+                    child = new Node(segment.toString(), childHash);
+                    if ((childrenCount + 1) * 2 > children.length) resize();
+                    insert(children, child);
+                    childrenCount++;
+                }
+                return child;
+            }
+
+            private void resize() {
+                final Node[] resized = new Node[Math.max(4, children.length * 2)];
+                for (final Node child : children) {
+                    if (child != null) insert(resized, child);
+                }
+                children = resized;
+            }
+
+            private static void insert(Node[] table, Node node) {
+                final int mask = table.length - 1;
+                int i = node.hash & mask;
+                while (table[i] != null) i = (i + 1) & mask;
+                table[i] = node;
+            }
+
+        }
+
+    }
+
 }
@@ -0,0 +1,31 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Settings of the connection pool of a http client created by {@link HttpsFactory}. All times are in milliseconds.
+ */
+@Builder(toBuilder = true)
+@Value
+public class ConnectionPoolConfig {
+    // maximum of connections in the pool
+    @Builder.Default private int maxTotal = 100;
+    // maximum of connections to one route (host:port)
+    @Builder.Default private int maxPerRoute = 20;
+    // maximum lifetime of a connection, non-positive value means unlimited
+    @Builder.Default private long timeToLive = -1;
+    // connections idle longer than this interval are closed by a background thread, non-positive value turns it off
+    @Builder.Default private long idleEvictionInterval = 30000;
+    // a connection idle longer than this time is checked before it is leased, non-positive value turns it off
+    @Builder.Default private int validateAfterInactivity = 2000;
+}
@@ -29,4 +29,5 @@ public class HttpsConfig {
     @Builder.Default private String keyStoreType = "PKCS12";
     @Builder.Default private boolean clientAuth = false;
     @Builder.Default private boolean verifySslCertificatesOfServices = true;
+    @Builder.Default private ConnectionPoolConfig connectionPool = ConnectionPoolConfig.builder().build();
 }
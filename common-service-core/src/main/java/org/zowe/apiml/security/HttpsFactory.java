@@ -15,13 +15,13 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.SSLContexts;
 import org.zowe.apiml.message.log.ApimlLogger;
@@ -37,6 +37,7 @@ import java.net.URL;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Data
@@ -55,6 +56,16 @@ public class HttpsFactory {
     }
 
     public CloseableHttpClient createSecureHttpClient() {
+        return createSecureHttpClient(createConnectionManager(config.getConnectionPool()), config.getConnectionPool());
+    }
+
+    /**
+     * Create the connection manager with the given pool settings, the socket factories are given by this factory
+     *
+     * @param poolConfig settings of the pool
+     * @return a new connection manager
+     */
+    public ObservableConnectionManager createConnectionManager(ConnectionPoolConfig poolConfig) {
         Registry<ConnectionSocketFactory> socketFactoryRegistry;
         RegistryBuilder<ConnectionSocketFactory> socketFactoryRegistryBuilder = RegistryBuilder
                 .<ConnectionSocketFactory>create().register("http", PlainConnectionSocketFactory.getSocketFactory());
@@ -62,10 +73,30 @@ public class HttpsFactory {
         socketFactoryRegistryBuilder.register("https", createSslSocketFactory());
         socketFactoryRegistry = socketFactoryRegistryBuilder.build();
 
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
-                Objects.requireNonNull(socketFactoryRegistry));
-        return HttpClientBuilder.create().setConnectionManager(connectionManager).disableCookieManagement()
-                .disableAuthCaching().build();
+        ObservableConnectionManager connectionManager = new ObservableConnectionManager(
+                Objects.requireNonNull(socketFactoryRegistry), poolConfig.getTimeToLive());
+        connectionManager.setMaxTotal(poolConfig.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(poolConfig.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(poolConfig.getValidateAfterInactivity());
+        return connectionManager;
+    }
+
+    /**
+     * Create the http client over the connection manager. The client closes expired and idle connections of the pool
+     * in the background (if idle eviction is on) and it closes the connection manager on close.
+     *
+     * @param connectionManager connection manager, see {@link #createConnectionManager(ConnectionPoolConfig)}
+     * @param poolConfig settings of the pool
+     * @return a new http client
+     */
+    public CloseableHttpClient createSecureHttpClient(HttpClientConnectionManager connectionManager, ConnectionPoolConfig poolConfig) {
+        HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connectionManager)
+                .disableCookieManagement().disableAuthCaching();
+        if (poolConfig.getIdleEvictionInterval() > 0) {
+            builder.evictExpiredConnections()
+                .evictIdleConnections(poolConfig.getIdleEvictionInterval(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
     }
 
     public ConnectionSocketFactory createSslSocketFactory() {
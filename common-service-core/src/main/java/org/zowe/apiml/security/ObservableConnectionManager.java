@@ -0,0 +1,79 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.security;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooling connection manager which reports each lease of a connection (the route and how long the caller waited for
+ * a free connection) to the listener. The state of the pool (leased, available and pending connections per route) is
+ * available by the methods of {@link PoolingHttpClientConnectionManager}.
+ */
+public class ObservableConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private volatile LeaseListener leaseListener;
+
+    public ObservableConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, long timeToLive) {
+        super(socketFactoryRegistry, null, null, null, timeToLive, TimeUnit.MILLISECONDS);
+    }
+
+    public void setLeaseListener(LeaseListener leaseListener) {
+        this.leaseListener = leaseListener;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = super.requestConnection(route, state);
+        final LeaseListener listener = leaseListener;
+        if (listener == null) return request;
+
+        return new ConnectionRequest() {
+
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit)
+                throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                final long start = System.nanoTime();
+                try {
+                    return request.get(timeout, tunit);
+                } finally {
+                    listener.leased(route, System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+
+        };
+    }
+
+    public interface LeaseListener {
+
+        /**
+         * Called after each request for a connection (also if the request failed)
+         *
+         * @param route     route of the requested connection
+         * @param waitNanos time spent waiting for the connection
+         */
+        void leased(HttpRoute route, long waitNanos);
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TypedCacheTest {
+
+    private static final long ONE_DAY = 86400_000L;
+
+    @Test
+    public void testComputeAndGet() throws Exception {
+        TypedCache<String, String> cache = new TypedCache<>("test", 10, ONE_DAY);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("a"));
+        assertEquals("A", cache.compute("a", x -> { loads.incrementAndGet(); return x.toUpperCase(); }));
+        assertEquals("A", cache.compute("a", x -> { loads.incrementAndGet(); return x.toUpperCase(); }));
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, loads.get());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertEquals("test", cache.getName());
+    }
+
+    @Test
+    public void testNullAndExceptionAreNotCached() {
+        TypedCache<String, String> cache = new TypedCache<>("test", 10, ONE_DAY);
+
+        assertNull(cache.compute("a", x -> null));
+        try {
+            cache.compute("b", x -> { throw new IOException("failed"); });
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        TypedCache<String, Object> cache = new TypedCache<>("test", 10, ONE_DAY);
+        TestEntry entry = new TestEntry();
+
+        cache.put("a", entry);
+        assertSame(entry, cache.get("a"));
+
+        entry.expired = true;
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        // expired value is returned, but not stored
+        assertSame(entry, cache.compute("a", x -> entry));
+        assertEquals(0, cache.size());
+
+        TypedCache<String, String> shortCache = new TypedCache<>("short", 10, -1);
+        shortCache.put("a", "A");
+        assertNull(shortCache.get("a"));
+    }
+
+    @Test
+    public void testEvict() {
+        TypedCache<List<String>, String> cache = new TypedCache<>("test", 10, ONE_DAY);
+        List<String> a1 = key("a", "1");
+        List<String> a2 = key("a", "2");
+        List<String> b1 = key("b", "1");
+        cache.put(a1, "a1");
+        cache.put(a2, "a2");
+        cache.put(b1, "b1");
+
+        cache.evict(b1);
+        assertNull(cache.get(b1));
+        assertEquals("a1", cache.get(a1));
+
+        cache.put(b1, "b1");
+        cache.evictIf(x -> "a".equals(x.get(0)));
+        assertNull(cache.get(a1));
+        assertNull(cache.get(a2));
+        assertEquals("b1", cache.get(b1));
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        assertEquals(4, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        TypedCache<Integer, Integer> cache = new TypedCache<>("test", 10, ONE_DAY);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(10, cache.size());
+
+        cache.put(10, 10);
+        assertEquals(9, cache.size());
+        assertEquals(Integer.valueOf(10), cache.get(10));
+
+        TypedCache<Integer, Integer> disabled = new TypedCache<>("disabled", 0, ONE_DAY);
+        disabled.put(1, 1);
+        assertNull(disabled.get(1));
+        assertEquals(0, disabled.size());
+    }
+
+    @Test
+    public void testManager() {
+        TypedCacheManager manager = new TypedCacheManager().configure("disabled", 0, ONE_DAY);
+        List<String> observed = new ArrayList<>();
+
+        TypedCache<String, String> cache1 = manager.getCache("cache1");
+        manager.forEachCache(x -> observed.add(x.getName()));
+        TypedCache<String, String> disabled = manager.getCache("disabled");
+
+        assertSame(cache1, manager.getCache("cache1"));
+        assertEquals(2, observed.size());
+        assertTrue(observed.contains("cache1"));
+        assertTrue(observed.contains("disabled"));
+
+        cache1.put("a", "A");
+        disabled.put("a", "A");
+        assertEquals("A", cache1.get("a"));
+        assertNull(disabled.get("a"));
+    }
+
+    private static List<String> key(String...parts) {
+        List<String> out = new ArrayList<>();
+        for (String part : parts) out.add(part);
+        return out;
+    }
+
+    private static class TestEntry implements EntryExpiration {
+
+        private boolean expired;
+
+        @Override
+        public boolean isExpired() {
+            return expired;
+        }
+
+    }
+
+}
@@ -16,6 +16,13 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.zowe.apiml.passticket.PassTicketService.DefaultPassTicketImpl.*;
 import static org.junit.Assert.*;
 
@@ -177,6 +184,72 @@ public class PassTicketServiceTest {
         }
     }
 
+    @Test
+    public void testDefaultPassTicketImplExpiration() throws Exception {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(10, 50);
+
+        String passTicket = dpti.generate(TEST_USERID, "applId");
+        dpti.evaluate(TEST_USERID, "applId", passTicket);
+
+        Thread.sleep(100);
+        try {
+            dpti.evaluate(TEST_USERID, "applId", passTicket);
+            fail();
+        } catch (IRRPassTicketEvaluationException e) {
+            assertEquals(AbstractIRRPassTicketException.ErrorCode.ERR_8_16_32, e.getErrorCode());
+        }
+
+        // expired PassTicket is removed on next generation
+        dpti.generate(TEST_USERID, "applId");
+        assertEquals(1, dpti.size());
+    }
+
+    @Test
+    public void testDefaultPassTicketImplMaxEntries() throws Exception {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(3, 600_000);
+
+        String first = dpti.generate(TEST_USERID, "applId");
+        for (int i = 0; i < 3; i++) {
+            dpti.generate(TEST_USERID, "applId");
+        }
+        String last = dpti.generate(TEST_USERID, "applId");
+
+        assertEquals(3, dpti.size());
+        dpti.evaluate(TEST_USERID, "applId", last);
+        try {
+            dpti.evaluate(TEST_USERID, "applId", first);
+            fail();
+        } catch (IRRPassTicketEvaluationException e) {
+            // the oldest PassTicket was forgotten
+        }
+    }
+
+    @Test
+    public void testDefaultPassTicketImplConcurrency() throws Exception {
+        PassTicketService.DefaultPassTicketImpl dpti = new PassTicketService.DefaultPassTicketImpl(100_000, 600_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final String userId = "user" + i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        String passTicket = dpti.generate(userId, "applId");
+                        dpti.evaluate(userId, "applId", passTicket);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8 * 1000, dpti.size());
+    }
+
     public static class Impl implements IRRPassTicket {
 
         @Override
@@ -15,6 +15,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class RoutedServicesTest {
 
@@ -96,5 +97,29 @@ public class RoutedServicesTest {
         assertEquals("/apicatalog2", routedService.getServiceUrl());
     }
 
+    @Test
+    public void testBestMatchingServiceUrlBySegments() {
+        routedServices.addRoutedService(new RoutedService("api_v2", "api/v2", "/apicatalog/API/v2/"));
+        routedServices.addRoutedService(new RoutedService("ws_v1", "ws/v1", "/apicatalog/ws"));
+
+        // case-insensitive, the longest route wins
+        assertEquals("api_v2", routedServices.getBestMatchingServiceUrl("/APICatalog/api/V2/containers", ServiceType.API).getSubServiceId());
+        assertEquals("api_v2", routedServices.getBestMatchingServiceUrl("/apicatalog/api/v2", ServiceType.ALL).getSubServiceId());
+        assertEquals("api_v1", routedServices.getBestMatchingServiceUrl("/apicatalog/api/v3", ServiceType.API).getSubServiceId());
+
+        // just whole segments are matched
+        assertEquals("api_v1", routedServices.getBestMatchingServiceUrl("/apicatalog/api/v2x", ServiceType.API).getSubServiceId());
+        assertNull(routedServices.getBestMatchingServiceUrl("/apicatalogx", ServiceType.API));
+
+        // filtered by service type
+        assertEquals("ws_v1", routedServices.getBestMatchingServiceUrl("/apicatalog/ws/socket", ServiceType.WS).getSubServiceId());
+        assertEquals("api_v1", routedServices.getBestMatchingServiceUrl("/apicatalog/ws/socket", ServiceType.API).getSubServiceId());
+        assertNull(routedServices.getBestMatchingServiceUrl("/apicatalog/api/v2", ServiceType.WS));
+
+        // root route matches everything
+        routedServices.addRoutedService(new RoutedService("ui_v2", "ui/v2", "/"));
+        assertEquals("ui_v2", routedServices.getBestMatchingServiceUrl("/different/path", ServiceType.UI).getSubServiceId());
+        assertEquals("ui_v1", routedServices.getBestMatchingServiceUrl("/apicatalog/ui", ServiceType.UI).getSubServiceId());
+    }
 
 }
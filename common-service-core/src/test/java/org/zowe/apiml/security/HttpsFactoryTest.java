@@ -74,6 +74,22 @@ public class HttpsFactoryTest {
         assertEquals("org.apache.http.impl.client.InternalHttpClient", httpClient.getClass().getName());
     }
 
+    @Test
+    public void shouldCreateConnectionManagerWithPoolConfig() {
+        HttpsConfig httpsConfig = httpsConfigBuilder.build();
+        HttpsFactory httpsFactory = new HttpsFactory(httpsConfig);
+        ConnectionPoolConfig poolConfig = ConnectionPoolConfig.builder()
+            .maxTotal(150).maxPerRoute(30).validateAfterInactivity(500).build();
+
+        ObservableConnectionManager connectionManager = httpsFactory.createConnectionManager(poolConfig);
+        assertEquals(150, connectionManager.getMaxTotal());
+        assertEquals(30, connectionManager.getDefaultMaxPerRoute());
+        assertEquals(500, connectionManager.getValidateAfterInactivity());
+
+        HttpClient httpClient = httpsFactory.createSecureHttpClient(connectionManager, poolConfig);
+        assertNotNull(httpClient);
+    }
+
     @Test
     public void shouldCreateSecureSslContext() {
         HttpsConfig httpsConfig = httpsConfigBuilder.build();
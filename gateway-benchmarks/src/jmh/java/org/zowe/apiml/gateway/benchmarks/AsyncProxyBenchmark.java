@@ -0,0 +1,210 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.gateway.filters.route.AsyncForwarder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxying of requests to a slow service (each call takes {@value #SERVICE_DELAY_MILLIS} ms) by a Tomcat with only
+ * {@value #WORKER_THREADS} worker threads and {@value #CLIENTS} concurrent clients: the blocking http client (a worker
+ * thread is held for the whole call, throughput is limited by the count of worker threads) against
+ * {@link AsyncForwarder} (asynchronous servlet and non-blocking http client). Both run with the same heap.
+ */
+@State(Scope.Benchmark)
+@Threads(AsyncProxyBenchmark.CLIENTS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms256m", "-Xmx256m"})
+public class AsyncProxyBenchmark {
+
+    static final int CLIENTS = 64;
+    static final int WORKER_THREADS = 16;
+    static final int SERVICE_DELAY_MILLIS = 50;
+
+    private static final byte[] BODY = "{\"greeting\":\"Hello\"}".getBytes(StandardCharsets.UTF_8);
+
+    private ScheduledExecutorService scheduler;
+    private Tomcat service;
+    private Tomcat gateway;
+    private CloseableHttpClient blockingClient;
+    private CloseableHttpAsyncClient asyncClient;
+    private CloseableHttpClient client;
+
+    private String serviceUrl;
+    private String syncUrl;
+    private String asyncUrl;
+
+    @Setup
+    public void setUp() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        service = createTomcat(200);
+        addServlet(service, "/greeting", new SlowServiceServlet());
+        service.start();
+        serviceUrl = "http://localhost:" + service.getConnector().getLocalPort() + "/greeting";
+
+        blockingClient = HttpClients.custom().setMaxConnTotal(CLIENTS).setMaxConnPerRoute(CLIENTS).build();
+        asyncClient = HttpAsyncClients.custom().setMaxConnTotal(CLIENTS).setMaxConnPerRoute(CLIENTS).build();
+        asyncClient.start();
+        final AsyncForwarder forwarder = new AsyncForwarder(asyncClient, 30000, 1024 * 1024);
+
+        gateway = createTomcat(WORKER_THREADS);
+        addServlet(gateway, "/sync", new BlockingProxyServlet());
+        addServlet(gateway, "/async", new AsyncProxyServlet(forwarder));
+        gateway.start();
+        final String gatewayUrl = "http://localhost:" + gateway.getConnector().getLocalPort();
+        syncUrl = gatewayUrl + "/sync";
+        asyncUrl = gatewayUrl + "/async";
+
+        client = HttpClients.custom().setMaxConnTotal(CLIENTS).setMaxConnPerRoute(CLIENTS).build();
+        if (!new String(BODY, StandardCharsets.UTF_8).equals(call(syncUrl))
+            || !new String(BODY, StandardCharsets.UTF_8).equals(call(asyncUrl))) {
+            throw new IllegalStateException("Proxies do not return the response of the service");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        gateway.stop();
+        gateway.destroy();
+        blockingClient.close();
+        asyncClient.close();
+        service.stop();
+        service.destroy();
+        scheduler.shutdownNow();
+    }
+
+    private static Tomcat createTomcat(int maxThreads) throws IOException {
+        final Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        final Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
+        connector.setPort(0);
+        connector.setProperty("maxThreads", String.valueOf(maxThreads));
+        connector.setProperty("acceptCount", "1000");
+        tomcat.getService().addConnector(connector);
+        tomcat.setConnector(connector);
+        tomcat.addContext("", null);
+        return tomcat;
+    }
+
+    private static void addServlet(Tomcat tomcat, String path, HttpServlet servlet) {
+        final Context context = (Context) tomcat.getHost().findChildren()[0];
+        Tomcat.addServlet(context, path, servlet).setAsyncSupported(true);
+        context.addServletMappingDecoded(path, path);
+    }
+
+    private String call(String url) throws IOException {
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+            return EntityUtils.toString(response.getEntity());
+        }
+    }
+
+    @Benchmark
+    public String blockingProxy() throws IOException {
+        return call(syncUrl);
+    }
+
+    @Benchmark
+    public String asyncProxy() throws IOException {
+        return call(asyncUrl);
+    }
+
+    private static void copy(HttpResponse response, HttpServletResponse servletResponse) throws IOException {
+        servletResponse.setStatus(response.getStatusLine().getStatusCode());
+        final HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            entity.writeTo(servletResponse.getOutputStream());
+        }
+    }
+
+    private class SlowServiceServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+            final AsyncContext asyncContext = request.startAsync();
+            scheduler.schedule(() -> {
+                try {
+                    response.setContentType("application/json");
+                    response.getOutputStream().write(BODY);
+                } catch (IOException e) {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+                asyncContext.complete();
+            }, SERVICE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+    private class BlockingProxyServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try (CloseableHttpResponse serviceResponse = blockingClient.execute(new HttpGet(serviceUrl))) {
+                copy(serviceResponse, response);
+            }
+        }
+
+    }
+
+    private class AsyncProxyServlet extends HttpServlet implements AsyncForwarder.Handler {
+
+        private final transient AsyncForwarder forwarder;
+
+        AsyncProxyServlet(AsyncForwarder forwarder) {
+            this.forwarder = forwarder;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+            forwarder.forward(request, RequestBuilder.get(serviceUrl), false, this);
+        }
+
+        @Override
+        public void completed(AsyncContext asyncContext, HttpResponse response) {
+            try {
+                copy(response, (HttpServletResponse) asyncContext.getResponse());
+            } catch (IOException e) {
+                ((HttpServletResponse) asyncContext.getResponse()).setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+            }
+            asyncContext.complete();
+        }
+
+        @Override
+        public void failed(AsyncContext asyncContext, Exception exception) {
+            ((HttpServletResponse) asyncContext.getResponse()).setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+            asyncContext.complete();
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.gateway.security.service.AuthenticationException;
+import org.zowe.apiml.gateway.security.service.passticket.PassTicketProvider;
+import org.zowe.apiml.gateway.security.service.schema.*;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.auth.Authentication;
+import org.zowe.apiml.security.common.auth.AuthenticationScheme;
+import org.zowe.apiml.security.common.token.QueryResponse;
+
+import java.util.Date;
+
+/**
+ * Implementations of {@link AbstractAuthenticationScheme#createCommand(Authentication, QueryResponse)}. The PassTicket
+ * scheme uses the default (non z/OS) generator of PassTickets behind {@link PassTicketProvider}.
+ */
+@State(Scope.Benchmark)
+public class AuthenticationSchemeBenchmark {
+
+    @Param({"bypass", "zoweJwt", "httpBasicPassTicket", "zosmf"})
+    public String scheme;
+
+    private AbstractAuthenticationScheme authenticationScheme;
+    private PassTicketProvider passTicketProvider;
+    private Authentication authentication;
+    private QueryResponse queryResponse;
+
+    @Setup
+    public void setUp() {
+        final SecurityFixture fixture = new SecurityFixture();
+        final AuthenticationScheme authenticationSchemeType = AuthenticationScheme.fromScheme(scheme);
+        switch (authenticationSchemeType) {
+            case BYPASS:
+                authenticationScheme = new ByPassScheme();
+                break;
+            case ZOWE_JWT:
+                authenticationScheme = new ZoweJwtScheme();
+                break;
+            case HTTP_BASIC_PASSTICKET:
+                passTicketProvider = new PassTicketProvider(new PassTicketService(), fixture.getAuthConfigurationProperties());
+                passTicketProvider.afterPropertiesSet();
+                authenticationScheme = new HttpBasicPassTicketScheme(passTicketProvider);
+                break;
+            case ZOSMF:
+                authenticationScheme = new ZosmfScheme(fixture.createAuthenticationService(16));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scheme: " + scheme);
+        }
+
+        authentication = new Authentication(authenticationSchemeType, "APPLID");
+        final long now = System.currentTimeMillis();
+        queryResponse = new QueryResponse("security-domain", fixture.userId(1), new Date(now), new Date(now + 86400_000L));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (passTicketProvider != null) passTicketProvider.destroy();
+    }
+
+    @Benchmark
+    public AuthenticationCommand createCommand() throws AuthenticationException {
+        return authenticationScheme.createCommand(authentication, queryResponse);
+    }
+
+}
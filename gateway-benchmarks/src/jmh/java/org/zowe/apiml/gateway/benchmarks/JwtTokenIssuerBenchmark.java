@@ -0,0 +1,68 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.gateway.security.service.token.JwtTokenIssuer;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Issuing of tokens on login: {@link JwtTokenIssuer} against the generic JJWT builder. Run it also with more threads
+ * (option threads in jmh configuration) to see the contention of shared {@link java.security.SecureRandom} in {@link UUID#randomUUID()}.
+ */
+@State(Scope.Benchmark)
+public class JwtTokenIssuerBenchmark {
+
+    private static final long EXPIRATION_MILLIS = 86400_000L;
+
+    @Param({"0", "500"})
+    public int ltpaLength;
+
+    private AuthConfigurationProperties authConfigurationProperties;
+    private JwtSecurityInitializer jwtSecurityInitializer;
+    private JwtTokenIssuer jwtTokenIssuer;
+    private String ltpaToken;
+
+    @Setup
+    public void setUp() {
+        final SecurityFixture fixture = new SecurityFixture();
+        authConfigurationProperties = fixture.getAuthConfigurationProperties();
+        jwtSecurityInitializer = fixture.getJwtSecurityInitializer();
+        jwtTokenIssuer = fixture.createJwtTokenIssuer();
+        ltpaToken = fixture.ltpaToken(ltpaLength);
+    }
+
+    @Benchmark
+    public String jwtTokenIssuer() {
+        final long now = System.currentTimeMillis();
+        return jwtTokenIssuer.createJwtToken("USR00001", "security-domain", ltpaToken, now, now + EXPIRATION_MILLIS);
+    }
+
+    @Benchmark
+    public String jjwtBuilder() {
+        final long now = System.currentTimeMillis();
+        return Jwts.builder()
+            .setSubject("USR00001")
+            .claim(JwtTokenIssuer.DOMAIN_CLAIM_NAME, "security-domain")
+            .claim(JwtTokenIssuer.LTPA_CLAIM_NAME, ltpaToken)
+            .setIssuedAt(new Date(now))
+            .setExpiration(new Date(now + EXPIRATION_MILLIS))
+            .setIssuer(authConfigurationProperties.getTokenProperties().getIssuer())
+            .setId(UUID.randomUUID().toString())
+            .signWith(jwtSecurityInitializer.getSignatureAlgorithm(), jwtSecurityInitializer.getJwtSecret())
+            .compact();
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.security.common.token.TokenAuthentication;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cost of {@link AuthenticationService#validateJwtToken(String)} for the given ratio of hits in the validation cache.
+ * A miss is simulated by a service with the validation cache of size 1, the pool of tokens is much bigger.
+ */
+@State(Scope.Benchmark)
+public class JwtValidationBenchmark {
+
+    private static final int TOKENS = 1024;
+
+    @Param({"0", "500", "1500"})
+    public int ltpaLength;
+
+    @Param({"1.0", "0.9", "0.0"})
+    public double hitRatio;
+
+    private AuthenticationService cachedService;
+    private AuthenticationService uncachedService;
+    private String[] tokens;
+
+    @Setup
+    public void setUp() {
+        final SecurityFixture fixture = new SecurityFixture();
+        cachedService = fixture.createAuthenticationService(TOKENS * 2);
+        uncachedService = fixture.createAuthenticationService(1);
+        tokens = fixture.createTokens(cachedService, TOKENS, ltpaLength);
+
+        for (final String token : tokens) {
+            cachedService.validateJwtToken(token);
+        }
+    }
+
+    @Benchmark
+    public TokenAuthentication validateJwtToken() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String token = tokens[random.nextInt(TOKENS)];
+        final AuthenticationService service = random.nextDouble() < hitRatio ? cachedService : uncachedService;
+        return service.validateJwtToken(token);
+    }
+
+}
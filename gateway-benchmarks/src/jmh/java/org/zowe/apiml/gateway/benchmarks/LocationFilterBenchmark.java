@@ -0,0 +1,107 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import com.netflix.zuul.context.RequestContext;
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.gateway.filters.pre.LocationFilter;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
+import org.zowe.apiml.product.routing.RoutedService;
+import org.zowe.apiml.product.routing.RoutedServices;
+import org.zowe.apiml.util.UrlUtils;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
+
+/**
+ * {@link LocationFilter#run()} (rewriting of request URI of each proxied request) against the previous implementation
+ * which normalized the proxy and the request path by {@link UrlUtils} and looked the route up by a substring of proxy.
+ * Compare mainly gc.alloc.rate.norm (bytes allocated per request).
+ */
+@State(Scope.Thread)
+public class LocationFilterBenchmark {
+
+    private static final String SERVICE_ID = "service";
+    private static final int REQUESTS = 256;
+
+    @Param({"5", "50"})
+    public int routes;
+
+    private RouteSnapshotRegistry routeSnapshotRegistry;
+    private RoutedServices routedServices;
+    private LocationFilter locationFilter;
+    private RequestContext context;
+    private String[] proxies;
+    private String[] requestUris;
+
+    @Setup
+    public void setUp() {
+        routedServices = new RoutedServices();
+        for (int i = 0; i < routes; i++) {
+            routedServices.addRoutedService(new RoutedService("api-v" + i, "api/v" + i, "/" + SERVICE_ID + "/api/v" + i));
+        }
+        routeSnapshotRegistry = new RouteSnapshotRegistry();
+        routeSnapshotRegistry.publish(Collections.singletonMap(SERVICE_ID, routedServices));
+        locationFilter = new LocationFilter(routeSnapshotRegistry);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        proxies = new String[REQUESTS];
+        requestUris = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            proxies[i] = "api/v" + random.nextInt(routes) + "/" + SERVICE_ID;
+            requestUris[i] = "/resources/" + i + "/detail";
+        }
+
+        context = RequestContext.getCurrentContext();
+        context.set(SERVICE_ID_KEY, SERVICE_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+    }
+
+    private void prepareRequest() {
+        final int i = ThreadLocalRandom.current().nextInt(REQUESTS);
+        context.set(PROXY_KEY, proxies[i]);
+        context.set(REQUEST_URI_KEY, requestUris[i]);
+    }
+
+    @Benchmark
+    public Object locationFilter() {
+        prepareRequest();
+        locationFilter.run();
+        return context.get(REQUEST_URI_KEY);
+    }
+
+    @Benchmark
+    public Object previous() {
+        prepareRequest();
+        final RequestContext ctx = RequestContext.getCurrentContext();
+
+        final String serviceId = (String) ctx.get(SERVICE_ID_KEY);
+        final String proxy = UrlUtils.removeFirstAndLastSlash((String) ctx.get(PROXY_KEY));
+        final String requestPath = UrlUtils.addFirstSlash((String) ctx.get(REQUEST_URI_KEY));
+
+        final RoutedServices services = SERVICE_ID.equals(serviceId) ? routedServices : null;
+        if (services != null) {
+            int i = proxy.lastIndexOf('/');
+            if (i > 0) {
+                String route = proxy.substring(0, i);
+                String originalPath = services.findServiceByGatewayUrl(route).getServiceUrl();
+                ctx.set(REQUEST_URI_KEY, (originalPath == null ? "" : originalPath) + requestPath);
+            }
+        }
+        return ctx.get(REQUEST_URI_KEY);
+    }
+
+}
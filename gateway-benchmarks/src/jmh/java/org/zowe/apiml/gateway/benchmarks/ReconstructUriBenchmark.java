@@ -0,0 +1,175 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
+import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
+import org.springframework.cloud.netflix.ribbon.eureka.EurekaServerIntrospector;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.zowe.apiml.gateway.ribbon.GatewayRibbonLoadBalancingHttpClientImpl;
+import org.zowe.apiml.gateway.ribbon.InstanceInfoIndex;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.cloud.netflix.ribbon.RibbonUtils.updateToSecureConnectionIfNeeded;
+
+/**
+ * {@link GatewayRibbonLoadBalancingHttpClientImpl#reconstructURIWithServer(Server, URI)} (URI of each proxied request
+ * to the selected instance) against the previous implementation, which replaced the scheme, host and port by Ribbon
+ * and then again the scheme by {@link UriComponentsBuilder}. The setup checks that both return the same URIs.
+ */
+@State(Scope.Benchmark)
+public class ReconstructUriBenchmark {
+
+    private static final String SERVICE_ID = "service";
+    private static final int INSTANCES = 8;
+    private static final int REQUESTS = 256;
+
+    private CloseableHttpClient httpClient;
+    private IClientConfig config;
+    private ServerIntrospector serverIntrospector;
+    private InstanceInfoIndex instanceInfoIndex;
+    private GatewayRibbonLoadBalancingHttpClientImpl client;
+    private RibbonLoadBalancingHttpClient ribbonClient;
+
+    private Server[] servers;
+    private URI[] requests;
+
+    @Setup
+    public void setUp() {
+        final Application application = new Application(SERVICE_ID);
+        servers = new Server[INSTANCES];
+        for (int i = 0; i < INSTANCES; i++) {
+            // half of instances has enabled also the unsecure port
+            final InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+                .setAppName(SERVICE_ID)
+                .setInstanceId("lpar" + i + ".sysplex.example.net:" + SERVICE_ID + ":10010")
+                .setHostName("lpar" + i + ".sysplex.example.net")
+                .setPort(10010)
+                .setSecurePort(10010)
+                .enablePort(InstanceInfo.PortType.SECURE, true)
+                .enablePort(InstanceInfo.PortType.UNSECURE, i % 2 == 0)
+                .build();
+            application.addInstance(instanceInfo);
+            servers[i] = new DiscoveryEnabledServer(instanceInfo, true, false);
+        }
+        final Applications applications = new Applications();
+        applications.addApplication(application);
+
+        httpClient = HttpClients.createDefault();
+        config = IClientConfig.Builder.newBuilder(DefaultClientConfigImpl.class, SERVICE_ID)
+            .withSecure(false)
+            .withFollowRedirects(false)
+            .withDeploymentContextBasedVipAddresses(SERVICE_ID)
+            .withLoadBalancerEnabled(false)
+            .build();
+        serverIntrospector = new EurekaServerIntrospector();
+        instanceInfoIndex = new InstanceInfoIndex(createDiscoveryClient(application, applications));
+        client = new GatewayRibbonLoadBalancingHttpClientImpl(httpClient, config, serverIntrospector, instanceInfoIndex);
+        ribbonClient = new RibbonLoadBalancingHttpClient(httpClient, config, serverIntrospector);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        requests = new URI[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            switch (i % 3) {
+                case 0:
+                    requests[i] = URI.create("/" + SERVICE_ID + "/api/v1/resources/" + i);
+                    break;
+                case 1:
+                    requests[i] = URI.create("/" + SERVICE_ID + "/api/v1/resources/" + i + "?page=" + random.nextInt(10) + "&size=20");
+                    break;
+                default:
+                    requests[i] = URI.create("/" + SERVICE_ID + "/api/v1/datasets/USER.DATA%28M" + i + "%29/content?encoding=IBM-1047");
+            }
+        }
+
+        for (final Server server : servers) {
+            for (final URI request : requests) {
+                final URI expected = reconstructPrevious(server, request);
+                final URI actual = client.reconstructURIWithServer(server, request);
+                if (!expected.equals(actual) || !expected.toString().equals(actual.toString())) {
+                    throw new IllegalStateException("Different URIs: " + expected + " and " + actual);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+    }
+
+    private static EurekaClient createDiscoveryClient(Application application, Applications applications) {
+        return (EurekaClient) Proxy.newProxyInstance(
+            EurekaClient.class.getClassLoader(),
+            new Class<?>[] {EurekaClient.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getApplications":
+                        return applications;
+                    case "getApplication":
+                        return SERVICE_ID.equalsIgnoreCase((String) args[0]) ? application : null;
+                    case "registerEventListener":
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "Synthetic discovery client";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+    }
+
+    private URI reconstructPrevious(Server server, URI original) {
+        final URI updatedURI = updateToSecureConnectionIfNeeded(original, config, serverIntrospector, server);
+        final URI uriWithServer = ribbonClient.reconstructURIWithServer(server, updatedURI);
+
+        final Server.MetaInfo metaInfo = server.getMetaInfo();
+        final InstanceInfo instanceInfo = instanceInfoIndex.get(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+        if (instanceInfo.isPortEnabled(InstanceInfo.PortType.UNSECURE)) {
+            return UriComponentsBuilder.fromUri(uriWithServer).scheme("http").build(true).toUri();
+        }
+        if ("http".equals(uriWithServer.getScheme())) {
+            return UriComponentsBuilder.fromUri(uriWithServer).scheme("https").build(true).toUri();
+        }
+        return uriWithServer;
+    }
+
+    @Benchmark
+    public URI reconstructURIWithServer() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return client.reconstructURIWithServer(servers[random.nextInt(INSTANCES)], requests[random.nextInt(REQUESTS)]);
+    }
+
+    @Benchmark
+    public URI previous() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return reconstructPrevious(servers[random.nextInt(INSTANCES)], requests[random.nextInt(REQUESTS)]);
+    }
+
+}
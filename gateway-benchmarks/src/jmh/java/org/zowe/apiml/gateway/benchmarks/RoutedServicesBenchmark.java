@@ -0,0 +1,95 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.product.routing.RoutedService;
+import org.zowe.apiml.product.routing.RoutedServices;
+import org.zowe.apiml.product.routing.ServiceType;
+import org.zowe.apiml.util.UrlUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link RoutedServices#getBestMatchingServiceUrl(String, ServiceType)} of a service with many routes (used by
+ * TransformService for each rewrite of Location header and by the catalog). The method linearScan is the previous
+ * implementation (a scan of all routes) to compare with.
+ */
+@State(Scope.Benchmark)
+public class RoutedServicesBenchmark {
+
+    private static final int URLS = 1024;
+
+    @Param({"10", "100", "500"})
+    public int routes;
+
+    private RoutedServices routedServices;
+    private Map<String, RoutedService> routeMap;
+    private String[] urls;
+
+    @Setup
+    public void setUp() {
+        routedServices = new RoutedServices();
+        routeMap = new HashMap<>();
+        for (int i = 0; i < routes; i++) {
+            final String type = (i % 3 == 0) ? "ui" : "api";
+            final RoutedService route = new RoutedService(
+                type + "_v" + i, type + "/v" + i, "/service/" + type + "/Module" + (i % 10) + "/v" + i + "/"
+            );
+            routedServices.addRoutedService(route);
+            routeMap.put(route.getGatewayUrl(), route);
+        }
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        urls = new String[URLS];
+        for (int i = 0; i < URLS; i++) {
+            final int route = random.nextInt(routes);
+            final String type = (route % 3 == 0) ? "ui" : "api";
+            urls[i] = "/service/" + type + "/module" + (route % 10) + "/v" + route + "/resources/" + i + "/detail";
+        }
+    }
+
+    private String url() {
+        return urls[ThreadLocalRandom.current().nextInt(URLS)];
+    }
+
+    @Benchmark
+    public RoutedService trie() {
+        return routedServices.getBestMatchingServiceUrl(url(), ServiceType.API);
+    }
+
+    @Benchmark
+    public RoutedService linearScan() {
+        final String serviceUrl = url();
+        final ServiceType type = ServiceType.API;
+        RoutedService result = null;
+        int maxSize = 0;
+
+        for (Map.Entry<String, RoutedService> serviceEntry : routeMap.entrySet()) {
+            if (!type.equals(ServiceType.ALL)
+                && !serviceEntry.getKey().toLowerCase().startsWith(type.name().toLowerCase())) {
+                continue;
+            }
+
+            RoutedService value = serviceEntry.getValue();
+            int size = value.getServiceUrl().length();
+            String routeServiceUrl = UrlUtils.removeLastSlash(value.getServiceUrl().toLowerCase());
+            if (size > maxSize && serviceUrl.toLowerCase().startsWith(routeServiceUrl)) {
+                result = value;
+                maxSize = size;
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import com.netflix.zuul.context.RequestContext;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.cloud.netflix.zuul.filters.discovery.DiscoveryClientRouteLocator;
+import org.springframework.cloud.netflix.zuul.filters.discovery.SimpleServiceRouteMapper;
+import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+import org.zowe.apiml.gateway.filters.pre.LocationFilter;
+import org.zowe.apiml.gateway.routing.ApimlRoutingConfig;
+import org.zowe.apiml.product.gateway.GatewayClient;
+import org.zowe.apiml.product.gateway.GatewayConfigProperties;
+import org.zowe.apiml.product.routing.RouteSnapshot;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
+import org.zowe.apiml.product.routing.RoutedService;
+import org.zowe.apiml.product.routing.ServiceType;
+import org.zowe.apiml.product.routing.transform.TransformService;
+import org.zowe.apiml.product.routing.transform.URLTransformationException;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.*;
+
+/**
+ * The whole routing stack with a registry of a large sysplex: thousands of services, each with two instances on
+ * different LPARs and several routes. The registry is synthetic (an implementation of {@link DiscoveryClient} over
+ * prepared instances), the benchmark runs offline.
+ *
+ * Compare the results for different count of services: the cost of a request (bestMatchingServiceUrl, locationFilter,
+ * transformUrl) should not depend on it, the cost of a refresh of routes should grow linearly at most.
+ */
+@State(Scope.Benchmark)
+public class RoutingScaleBenchmark {
+
+    private static final int REQUESTS = 1024;
+    private static final int LPARS = 16;
+
+    @Param({"1000", "10000"})
+    public int services;
+
+    @Param({"5"})
+    public int routes;
+
+    private SyntheticDiscoveryClient discoveryClient;
+    private RouteSnapshotRegistry routeSnapshotRegistry;
+    private DiscoveryClientRouteLocator routeLocator;
+    private EurekaMetadataParser eurekaMetadataParser;
+    private LocationFilter locationFilter;
+    private TransformService transformService;
+
+    private String[] serviceIds;
+    private String[] requestServiceIds;
+    private String[] proxies;
+    private String[] requestUris;
+    private String[] serviceUrls;
+    private String[] servicePaths;
+    private int changes;
+
+    @Setup
+    public void setUp() {
+        discoveryClient = new SyntheticDiscoveryClient();
+        serviceIds = new String[services];
+        for (int i = 0; i < services; i++) {
+            serviceIds[i] = String.format("svc%05d", i);
+            discoveryClient.add(serviceIds[i], createInstances(serviceIds[i], i, routes));
+        }
+
+        routeSnapshotRegistry = new RouteSnapshotRegistry();
+        routeLocator = createRouteLocator();
+        routeLocator.refresh();
+        eurekaMetadataParser = new EurekaMetadataParser();
+        locationFilter = new LocationFilter(routeSnapshotRegistry);
+        transformService = new TransformService(new GatewayClient(
+            GatewayConfigProperties.builder().scheme("https").hostname("gateway:10010").build()));
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        requestServiceIds = new String[REQUESTS];
+        proxies = new String[REQUESTS];
+        requestUris = new String[REQUESTS];
+        serviceUrls = new String[REQUESTS];
+        servicePaths = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            final int service = random.nextInt(services);
+            final int route = 1 + random.nextInt(routes - 1);
+            requestServiceIds[i] = serviceIds[service];
+            proxies[i] = "api/v" + route + "/" + serviceIds[service];
+            requestUris[i] = "/resources/" + i;
+            servicePaths[i] = "/" + serviceIds[service] + "/api/v" + route + "/resources/" + i;
+            serviceUrls[i] = "https://" + host(service) + ":" + port(service) + servicePaths[i];
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+    }
+
+    private DiscoveryClientRouteLocator createRouteLocator() {
+        return new ApimlRoutingConfig().discoveryClientRouteLocator(
+            discoveryClient, new ZuulProperties(), new SimpleServiceRouteMapper(), routeSnapshotRegistry);
+    }
+
+    private static String host(int service) {
+        return "lpar" + (service % LPARS) + ".sysplex.example.net";
+    }
+
+    private static int port(int service) {
+        return 20000 + service;
+    }
+
+    private static List<ServiceInstance> createInstances(String serviceId, int service, int routes) {
+        final Map<String, String> metadata = new HashMap<>();
+        metadata.put(ROUTES + ".ui-v1." + ROUTES_GATEWAY_URL, "ui/v1");
+        metadata.put(ROUTES + ".ui-v1." + ROUTES_SERVICE_URL, "/" + serviceId);
+        for (int route = 1; route < routes; route++) {
+            metadata.put(ROUTES + ".api-v" + route + "." + ROUTES_GATEWAY_URL, "api/v" + route);
+            metadata.put(ROUTES + ".api-v" + route + "." + ROUTES_SERVICE_URL, "/" + serviceId + "/api/v" + route);
+        }
+
+        final List<ServiceInstance> instances = new ArrayList<>(2);
+        for (int i = 0; i < 2; i++) {
+            final String host = host(service + i);
+            instances.add(new DefaultServiceInstance(
+                host + ":" + serviceId + ":" + port(service), serviceId, host, port(service), true, metadata));
+        }
+        return instances;
+    }
+
+    private int request() {
+        return ThreadLocalRandom.current().nextInt(REQUESTS);
+    }
+
+    /**
+     * Refresh of routes without any change in the registry (the most frequent case, it runs on each heartbeat).
+     */
+    @Benchmark
+    public RouteSnapshot locateRoutesUnchanged() {
+        routeLocator.refresh();
+        return routeSnapshotRegistry.getSnapshot();
+    }
+
+    /**
+     * Refresh of routes after one service changed its routing (a new route is added and removed again).
+     */
+    @Benchmark
+    public RouteSnapshot locateRoutesChanged() {
+        final int change = changes++;
+        final int service = change % services;
+        final int serviceRoutes = ((change / services) % 2 == 0) ? routes + 1 : routes;
+        discoveryClient.add(serviceIds[service], createInstances(serviceIds[service], service, serviceRoutes));
+        routeLocator.refresh();
+        return routeSnapshotRegistry.getSnapshot();
+    }
+
+    /**
+     * The first refresh of routes, all services are parsed.
+     */
+    @Benchmark
+    public RouteSnapshot locateRoutesInitial() {
+        createRouteLocator().refresh();
+        return routeSnapshotRegistry.getSnapshot();
+    }
+
+    @Benchmark
+    public List<RoutedService> parseToListRoute() {
+        final String serviceId = serviceIds[ThreadLocalRandom.current().nextInt(services)];
+        return eurekaMetadataParser.parseToListRoute(discoveryClient.getInstances(serviceId).get(0).getMetadata());
+    }
+
+    @Benchmark
+    public RoutedService bestMatchingServiceUrl() {
+        final int i = request();
+        return routeSnapshotRegistry.getRoutedServices(requestServiceIds[i])
+            .getBestMatchingServiceUrl(servicePaths[i], ServiceType.API);
+    }
+
+    @Benchmark
+    public Object locationFilter() {
+        final int i = request();
+        final RequestContext context = RequestContext.getCurrentContext();
+        context.set(SERVICE_ID_KEY, requestServiceIds[i]);
+        context.set(PROXY_KEY, proxies[i]);
+        context.set(REQUEST_URI_KEY, requestUris[i]);
+        locationFilter.run();
+        return context.get(REQUEST_URI_KEY);
+    }
+
+    @Benchmark
+    public String transformUrl() throws URLTransformationException {
+        final int i = request();
+        return transformService.transformURL(ServiceType.API, requestServiceIds[i], serviceUrls[i],
+            routeSnapshotRegistry.getRoutedServices(requestServiceIds[i]));
+    }
+
+    /**
+     * Registry of prepared instances, it replaces Eureka client.
+     */
+    private static class SyntheticDiscoveryClient implements DiscoveryClient {
+
+        private final Map<String, List<ServiceInstance>> instances = new LinkedHashMap<>();
+
+        void add(String serviceId, List<ServiceInstance> serviceInstances) {
+            instances.put(serviceId, serviceInstances);
+        }
+
+        @Override
+        public String description() {
+            return "Synthetic discovery client";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return instances.getOrDefault(serviceId, Collections.emptyList());
+        }
+
+        @Override
+        public List<String> getServices() {
+            return new ArrayList<>(instances.keySet());
+        }
+
+    }
+
+}
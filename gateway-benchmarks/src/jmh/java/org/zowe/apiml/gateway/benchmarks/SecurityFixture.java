@@ -0,0 +1,182 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.gateway.security.service.token.InvalidatedTokenStore;
+import org.zowe.apiml.gateway.security.service.token.InvalidationBroadcaster;
+import org.zowe.apiml.gateway.security.service.token.JwtTokenIssuer;
+import org.zowe.apiml.gateway.security.service.token.JwtValidationCache;
+import org.zowe.apiml.security.SecurityUtils;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import javax.servlet.http.Cookie;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Random;
+
+/**
+ * Shared set up of benchmarks of the security path. It creates services with the real implementation (no mocks) and
+ * realistic data:
+ *  - RSA 2048 key (RS256) as it is used by the gateway
+ *  - user IDs with length up to 8 characters (z/OS)
+ *  - LTPA token of the configured length (z/OSMF LtpaToken2 cookie has about 500 characters)
+ *  - requests with token in the Authorization header or in cookies, optionally with other cookies
+ */
+public final class SecurityFixture {
+
+    private static final char[] BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final Random random = new Random(42);
+
+    private final AuthConfigurationProperties authConfigurationProperties = new AuthConfigurationProperties();
+    private final JwtSecurityInitializer jwtSecurityInitializer;
+
+    public SecurityFixture() {
+        final KeyPair keyPair = SecurityUtils.generateKeyPair("RSA", 2048);
+        if (keyPair == null) throw new IllegalStateException("Cannot generate RSA key pair");
+        jwtSecurityInitializer = new FixedJwtSecurityInitializer(keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    public AuthConfigurationProperties getAuthConfigurationProperties() {
+        return authConfigurationProperties;
+    }
+
+    public JwtSecurityInitializer getJwtSecurityInitializer() {
+        return jwtSecurityInitializer;
+    }
+
+    public JwtTokenIssuer createJwtTokenIssuer() {
+        return new JwtTokenIssuer(authConfigurationProperties, jwtSecurityInitializer);
+    }
+
+    /**
+     * @param validationCacheSize size of validation cache, use 1 to simulate misses only
+     * @return a new instance of service, the invalidated tokens are stored in a temporary directory
+     */
+    public AuthenticationService createAuthenticationService(int validationCacheSize) {
+        final File directory;
+        try {
+            directory = Files.createTempDirectory("benchmark").toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        directory.deleteOnExit();
+
+        return new AuthenticationService(
+            authConfigurationProperties,
+            jwtSecurityInitializer,
+            new JwtValidationCache(validationCacheSize),
+            new InvalidatedTokenStore(directory),
+            new InvalidationBroadcaster(null, null),
+            createJwtTokenIssuer()
+        );
+    }
+
+    public String userId(int index) {
+        return String.format("USR%05d", index % 100000);
+    }
+
+    public String ltpaToken(int length) {
+        if (length <= 0) return null;
+
+        final StringBuilder sb = new StringBuilder("LtpaToken2=");
+        for (int i = 0; i < length; i++) {
+            sb.append(BASE64_CHARS[random.nextInt(BASE64_CHARS.length)]);
+        }
+        return sb.toString();
+    }
+
+    public String[] createTokens(AuthenticationService authenticationService, int count, int ltpaLength) {
+        final String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = authenticationService.createJwtToken(userId(i), "security-domain", ltpaToken(ltpaLength));
+        }
+        return tokens;
+    }
+
+    /**
+     * Create request with the token
+     *
+     * @param token     JWT token
+     * @param requestMix header - only the Authorization header, cookie - only the cookie with token, cookies - the
+     *                   cookie with token between other cookies, mixed - the cookies and also the Authorization header
+     * @return the request
+     */
+    public MockHttpServletRequest createRequest(String token, String requestMix) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/service/resource");
+        final String cookieName = authConfigurationProperties.getCookieProperties().getCookieName();
+
+        switch (requestMix) {
+            case "header":
+                request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+                break;
+            case "cookie":
+                request.setCookies(new Cookie(cookieName, token));
+                break;
+            case "cookies":
+                request.setCookies(
+                    new Cookie("JSESSIONID", "node0abcdefghijklmnopqrstuvw0"),
+                    new Cookie("XSRF-TOKEN", "3d4c1a6e-9f0b-4e43-9a8b-5b1bb6f0a7c2"),
+                    new Cookie(cookieName, token),
+                    new Cookie("LtpaToken2", ltpaToken(400).substring(11))
+                );
+                break;
+            case "mixed":
+                request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+                request.setCookies(
+                    new Cookie("JSESSIONID", "node0abcdefghijklmnopqrstuvw0"),
+                    new Cookie(cookieName, token)
+                );
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown request mix: " + requestMix);
+        }
+
+        return request;
+    }
+
+    private static class FixedJwtSecurityInitializer extends JwtSecurityInitializer {
+
+        private final Key privateKey;
+        private final PublicKey publicKey;
+
+        FixedJwtSecurityInitializer(Key privateKey, PublicKey publicKey) {
+            this.privateKey = privateKey;
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        public SignatureAlgorithm getSignatureAlgorithm() {
+            return SignatureAlgorithm.RS256;
+        }
+
+        @Override
+        public Key getJwtSecret() {
+            return privateKey;
+        }
+
+        @Override
+        public PublicKey getJwtPublicKey() {
+            return publicKey;
+        }
+
+    }
+
+}
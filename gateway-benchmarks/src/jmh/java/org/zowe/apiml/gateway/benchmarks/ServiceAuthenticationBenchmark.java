@@ -0,0 +1,295 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.ehcache.EhCacheCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.zowe.apiml.cache.TypedCacheManager;
+import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.security.service.AuthenticationException;
+import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.gateway.security.service.ServiceAuthenticationServiceImpl;
+import org.zowe.apiml.gateway.security.service.passticket.PassTicketProvider;
+import org.zowe.apiml.gateway.security.service.schema.*;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.auth.Authentication;
+import org.zowe.apiml.security.common.auth.AuthenticationScheme;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_APPLID;
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_SCHEME;
+
+/**
+ * Both overloads of {@link ServiceAuthenticationServiceImpl#getAuthenticationCommand} with the given ratio of cache hits.
+ * The cached calls go through the Spring bean with the same caches as in the gateway (see CacheConfig), the misses are
+ * simulated by the instance with turned off caches.
+ *
+ * The methods with the suffix Previous call the former implementation, the same service behind the Spring cache proxy
+ * (@Cacheable) with Ehcache caches of the same settings, which was in use before the typed caches.
+ */
+@State(Scope.Benchmark)
+public class ServiceAuthenticationBenchmark {
+
+    private static final String SERVICE_ID = "service";
+    private static final int TOKENS = 256;
+    private static final String PREVIOUS_SERVICE = "previousServiceAuthenticationService";
+
+    @Param({"bypass", "zoweJwt", "httpBasicPassTicket", "zosmf"})
+    public String scheme;
+
+    @Param({"1.0", "0.9", "0.0"})
+    public double hitRatio;
+
+    private AnnotationConfigApplicationContext context;
+    private ServiceAuthenticationService cachedService;
+    private ServiceAuthenticationService previousService;
+    private ServiceAuthenticationService uncachedService;
+    private Authentication authentication;
+    private String[] tokens;
+
+    @Setup
+    public void setUp() throws AuthenticationException {
+        final SecurityFixture fixture = new SecurityFixture();
+        final AuthenticationService authenticationService = fixture.createAuthenticationService(TOKENS * 2);
+        tokens = fixture.createTokens(authenticationService, TOKENS, 500);
+        authentication = new Authentication(AuthenticationScheme.fromScheme(scheme), "APPLID");
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(SecurityFixture.class, () -> fixture);
+        context.registerBean(AuthenticationService.class, () -> authenticationService);
+        context.registerBean(EurekaClient.class, () -> createDiscoveryClient(authentication));
+        context.register(Config.class);
+        context.refresh();
+
+        final net.sf.ehcache.CacheManager ehCacheManager = ((EhCacheCacheManager) context.getBean(CacheManager.class)).getCacheManager();
+        addEhcache(ehCacheManager, ServiceAuthenticationServiceImpl.CACHE_BY_SERVICE_ID);
+        addEhcache(ehCacheManager, ServiceAuthenticationServiceImpl.CACHE_BY_AUTHENTICATION);
+
+        cachedService = context.getBean(ServiceAuthenticationServiceImpl.class);
+        previousService = context.getBean(PREVIOUS_SERVICE, ServiceAuthenticationService.class);
+        uncachedService = createUncachedService(
+            context.getBean(EurekaClient.class), context.getBean(AuthenticationSchemeFactory.class), authenticationService
+        );
+
+        for (final String token : tokens) {
+            cachedService.getAuthenticationCommand(SERVICE_ID, token);
+            cachedService.getAuthenticationCommand(authentication, token);
+            previousService.getAuthenticationCommand(SERVICE_ID, token);
+            previousService.getAuthenticationCommand(authentication, token);
+        }
+    }
+
+    /**
+     * The same settings as the caches had in ehcache.xml before they were replaced by typed caches.
+     */
+    private static void addEhcache(net.sf.ehcache.CacheManager ehCacheManager, String name) {
+        ehCacheManager.addCacheIfAbsent(new Cache(new CacheConfiguration(name, 1000)
+            .eternal(false)
+            .timeToIdleSeconds(86400)
+            .timeToLiveSeconds(86400)
+            .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU)
+        ));
+    }
+
+    private static ServiceAuthenticationServiceImpl createUncachedService(
+        EurekaClient discoveryClient, AuthenticationSchemeFactory authenticationSchemeFactory,
+        AuthenticationService authenticationService
+    ) {
+        return new ServiceAuthenticationServiceImpl(
+            discoveryClient,
+            authenticationSchemeFactory,
+            authenticationService,
+            new TypedCacheManager()
+                .configure(ServiceAuthenticationServiceImpl.CACHE_BY_SERVICE_ID, 0, 0)
+                .configure(ServiceAuthenticationServiceImpl.CACHE_BY_AUTHENTICATION, 0, 0)
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private ServiceAuthenticationService select(ThreadLocalRandom random, ServiceAuthenticationService cached) {
+        return random.nextDouble() < hitRatio ? cached : uncachedService;
+    }
+
+    @Benchmark
+    public AuthenticationCommand byServiceId() throws AuthenticationException {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return select(random, cachedService).getAuthenticationCommand(SERVICE_ID, tokens[random.nextInt(TOKENS)]);
+    }
+
+    @Benchmark
+    public AuthenticationCommand byServiceIdPrevious() throws AuthenticationException {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return select(random, previousService).getAuthenticationCommand(SERVICE_ID, tokens[random.nextInt(TOKENS)]);
+    }
+
+    @Benchmark
+    public AuthenticationCommand byAuthentication() throws AuthenticationException {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return select(random, cachedService).getAuthenticationCommand(authentication, tokens[random.nextInt(TOKENS)]);
+    }
+
+    @Benchmark
+    public AuthenticationCommand byAuthenticationPrevious() throws AuthenticationException {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return select(random, previousService).getAuthenticationCommand(authentication, tokens[random.nextInt(TOKENS)]);
+    }
+
+    private static EurekaClient createDiscoveryClient(Authentication authentication) {
+        final Map<String, String> metadata = new HashMap<>();
+        metadata.put(AUTHENTICATION_SCHEME, authentication.getScheme().getScheme());
+        metadata.put(AUTHENTICATION_APPLID, authentication.getApplid());
+
+        final Application application = new Application(SERVICE_ID);
+        for (int i = 0; i < 3; i++) {
+            application.addInstance(InstanceInfo.Builder.newBuilder()
+                .setAppName(SERVICE_ID)
+                .setInstanceId("host" + i + ":" + SERVICE_ID + ":10010")
+                .setHostName("host" + i)
+                .setMetadata(metadata)
+                .build());
+        }
+
+        return (EurekaClient) Proxy.newProxyInstance(
+            EurekaClient.class.getClassLoader(),
+            new Class<?>[] {EurekaClient.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getApplication":
+                        return SERVICE_ID.equalsIgnoreCase((String) args[0]) ? application : null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "EurekaClient";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+    }
+
+    @Configuration
+    @Import(CacheConfig.class)
+    public static class Config {
+
+        @Bean
+        public ByPassScheme byPassScheme() {
+            return new ByPassScheme();
+        }
+
+        @Bean
+        public ZoweJwtScheme zoweJwtScheme() {
+            return new ZoweJwtScheme();
+        }
+
+        @Bean
+        public ZosmfScheme zosmfScheme(AuthenticationService authenticationService) {
+            return new ZosmfScheme(authenticationService);
+        }
+
+        @Bean
+        public PassTicketProvider passTicketProvider(SecurityFixture fixture) {
+            return new PassTicketProvider(new PassTicketService(), fixture.getAuthConfigurationProperties());
+        }
+
+        @Bean
+        public HttpBasicPassTicketScheme httpBasicPassTicketScheme(PassTicketProvider passTicketProvider) {
+            return new HttpBasicPassTicketScheme(passTicketProvider);
+        }
+
+        @Bean
+        public AuthenticationSchemeFactory authenticationSchemeFactory(
+            AuthenticationService authenticationService, List<AbstractAuthenticationScheme> schemes
+        ) {
+            return new AuthenticationSchemeFactory(authenticationService, schemes);
+        }
+
+        @Bean
+        public ServiceAuthenticationServiceImpl serviceAuthenticationService(
+            EurekaClient discoveryClient, AuthenticationSchemeFactory authenticationSchemeFactory,
+            AuthenticationService authenticationService, TypedCacheManager typedCacheManager
+        ) {
+            return new ServiceAuthenticationServiceImpl(discoveryClient, authenticationSchemeFactory, authenticationService, typedCacheManager);
+        }
+
+        @Bean(PREVIOUS_SERVICE)
+        public ServiceAuthenticationService previousServiceAuthenticationService(
+            EurekaClient discoveryClient, AuthenticationSchemeFactory authenticationSchemeFactory,
+            AuthenticationService authenticationService
+        ) {
+            return new PreviousServiceAuthenticationService(
+                createUncachedService(discoveryClient, authenticationSchemeFactory, authenticationService)
+            );
+        }
+
+    }
+
+    /**
+     * Caching of the former ServiceAuthenticationServiceImpl, by annotations of Spring cache.
+     */
+    public static class PreviousServiceAuthenticationService implements ServiceAuthenticationService {
+
+        private final ServiceAuthenticationService delegate;
+
+        public PreviousServiceAuthenticationService(ServiceAuthenticationService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        @CacheEvict(value = ServiceAuthenticationServiceImpl.CACHE_BY_AUTHENTICATION, condition = "#result != null && #result.isExpired()")
+        @Cacheable(ServiceAuthenticationServiceImpl.CACHE_BY_AUTHENTICATION)
+        public AuthenticationCommand getAuthenticationCommand(Authentication authentication, String jwtToken) throws AuthenticationException {
+            return delegate.getAuthenticationCommand(authentication, jwtToken);
+        }
+
+        @Override
+        @CacheEvict(value = ServiceAuthenticationServiceImpl.CACHE_BY_SERVICE_ID, condition = "#result != null && #result.isExpired()")
+        @Cacheable(value = ServiceAuthenticationServiceImpl.CACHE_BY_SERVICE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR)
+        public AuthenticationCommand getAuthenticationCommand(String serviceId, String jwtToken) throws AuthenticationException {
+            return delegate.getAuthenticationCommand(serviceId, jwtToken);
+        }
+
+        @Override
+        @CacheEvict(value = ServiceAuthenticationServiceImpl.CACHE_BY_SERVICE_ID, allEntries = true)
+        public void evictCacheAllService() {
+            delegate.evictCacheAllService();
+        }
+
+        @Override
+        public void evictCacheService(String serviceId) {
+            delegate.evictCacheService(serviceId);
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import com.netflix.zuul.context.RequestContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.zowe.apiml.gateway.security.service.AuthenticationService;
+import org.zowe.apiml.security.common.token.QueryResponse;
+
+import java.util.Optional;
+
+/**
+ * Reading of the token from a request and the access to its claims:
+ *  - getJwtTokenFromRequest and parseJwtToken as single operations
+ *  - zuulRequest simulates all calls of one proxied request (ServiceAuthenticationFilter, AuthenticationSchemeFactory
+ *    and ZosmfScheme), the token is verified only once thanks to the token context of ZUUL's request
+ *  - zuulRequestWithoutContext makes the same calls outside of ZUUL's request (each call verifies the token again)
+ *
+ * Run with the gc profiler to see allocations per operation.
+ */
+@State(Scope.Benchmark)
+public class TokenRequestBenchmark {
+
+    private static final int REQUESTS = 64;
+
+    @Param({"header", "cookie", "cookies", "mixed"})
+    public String requestMix;
+
+    @Param({"0", "500"})
+    public int ltpaLength;
+
+    private AuthenticationService authenticationService;
+    private String[] tokens;
+    private MockHttpServletRequest[] requests;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next() {
+            index = (index + 1) % REQUESTS;
+            return index;
+        }
+
+    }
+
+    @Setup
+    public void setUp() {
+        final SecurityFixture fixture = new SecurityFixture();
+        authenticationService = fixture.createAuthenticationService(REQUESTS * 2);
+        tokens = fixture.createTokens(authenticationService, REQUESTS, ltpaLength);
+        requests = new MockHttpServletRequest[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            requests[i] = fixture.createRequest(tokens[i], requestMix);
+        }
+    }
+
+    @Benchmark
+    public Optional<String> getJwtTokenFromRequest(Cursor cursor) {
+        return authenticationService.getJwtTokenFromRequest(requests[cursor.next()]);
+    }
+
+    @Benchmark
+    public QueryResponse parseJwtToken(Cursor cursor) {
+        return authenticationService.parseJwtToken(tokens[cursor.next()]);
+    }
+
+    @Benchmark
+    public void zuulRequest(Cursor cursor, Blackhole blackhole) {
+        final MockHttpServletRequest request = requests[cursor.next()];
+        final RequestContext context = RequestContext.getCurrentContext();
+        context.setRequest(request);
+        try {
+            simulateFilters(request, blackhole);
+        } finally {
+            context.unset();
+        }
+    }
+
+    @Benchmark
+    public void zuulRequestWithoutContext(Cursor cursor, Blackhole blackhole) {
+        final MockHttpServletRequest request = requests[cursor.next()];
+        final RequestContext context = RequestContext.getCurrentContext();
+        try {
+            simulateFilters(request, blackhole);
+        } finally {
+            context.unset();
+        }
+    }
+
+    private void simulateFilters(MockHttpServletRequest request, Blackhole blackhole) {
+        // ServiceAuthenticationFilter
+        final String token = authenticationService.getJwtTokenFromRequest(request).orElse(null);
+        blackhole.consume(token);
+
+        // AuthenticationSchemeFactory (command decided by load balancer)
+        blackhole.consume(authenticationService.getJwtTokenFromRequest(request)
+            .map(authenticationService::parseJwtToken)
+            .orElse(null));
+
+        // ZosmfScheme.ZosmfCommand
+        blackhole.consume(authenticationService.getJwtTokenFromRequest(request)
+            .map(authenticationService::getLtpaTokenFromJwtToken)
+            .orElse(null));
+    }
+
+}
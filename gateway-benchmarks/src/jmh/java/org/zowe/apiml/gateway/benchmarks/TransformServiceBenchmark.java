@@ -0,0 +1,102 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zowe.apiml.product.gateway.GatewayClient;
+import org.zowe.apiml.product.gateway.GatewayConfigProperties;
+import org.zowe.apiml.product.routing.RoutedService;
+import org.zowe.apiml.product.routing.RoutedServices;
+import org.zowe.apiml.product.routing.ServiceType;
+import org.zowe.apiml.product.routing.transform.TransformService;
+import org.zowe.apiml.product.routing.transform.URLTransformationException;
+import org.zowe.apiml.util.UrlUtils;
+
+import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link TransformService#transformURL(ServiceType, String, String, RoutedServices)} (rewriting of Location header in
+ * the gateway, home pages in the catalog) against the previous implementation based on {@link URI},
+ * {@link String#format(String, Object...)} and {@link String#replaceFirst(String, String)}.
+ */
+@State(Scope.Benchmark)
+public class TransformServiceBenchmark {
+
+    private static final String SERVICE_ID = "service";
+    private static final int URLS = 256;
+
+    @Param({"5", "50"})
+    public int routes;
+
+    private GatewayClient gatewayClient;
+    private TransformService transformService;
+    private RoutedServices routedServices;
+    private String[] urls;
+
+    @Setup
+    public void setUp() {
+        gatewayClient = new GatewayClient(GatewayConfigProperties.builder().scheme("https").hostname("gateway:10010").build());
+        transformService = new TransformService(gatewayClient);
+
+        routedServices = new RoutedServices();
+        for (int i = 0; i < routes; i++) {
+            routedServices.addRoutedService(new RoutedService("api-v" + i, "api/v" + i, "/" + SERVICE_ID + "/api/v" + i));
+        }
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        urls = new String[URLS];
+        for (int i = 0; i < URLS; i++) {
+            urls[i] = "https://host" + (i % 4) + ":8080/" + SERVICE_ID + "/api/v" + random.nextInt(routes)
+                + "/resources/" + i + ((i % 2 == 0) ? "?page=1&size=20" : "");
+        }
+    }
+
+    private String url() {
+        return urls[ThreadLocalRandom.current().nextInt(URLS)];
+    }
+
+    @Benchmark
+    public String transformService() throws URLTransformationException {
+        return transformService.transformURL(ServiceType.API, SERVICE_ID, url(), routedServices);
+    }
+
+    @Benchmark
+    public String previous() throws URLTransformationException {
+        URI serviceUri = URI.create(url());
+        String serviceUriPath = serviceUri.getPath();
+        if (serviceUriPath == null) {
+            throw new URLTransformationException(String.format("The URI %s is not valid.", serviceUri));
+        }
+
+        RoutedService route = routedServices.getBestMatchingServiceUrl(serviceUriPath, ServiceType.API);
+        if (route == null) {
+            throw new URLTransformationException(String.format("Not able to select route for url %s of the service %s. Original url used.", serviceUri, SERVICE_ID));
+        }
+
+        if (serviceUri.getQuery() != null) {
+            serviceUriPath += "?" + serviceUri.getQuery();
+        }
+
+        String endPoint = serviceUriPath;
+        if (!route.getServiceUrl().equals("/")) {
+            endPoint = endPoint.replaceFirst(UrlUtils.removeLastSlash(route.getServiceUrl()), "");
+        }
+
+        GatewayConfigProperties gatewayConfigProperties = gatewayClient.getGatewayConfigProperties();
+        return String.format("%s://%s/%s/%s%s",
+            gatewayConfigProperties.getScheme(),
+            gatewayConfigProperties.getHostname(),
+            route.getGatewayUrl(),
+            SERVICE_ID,
+            endPoint);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.config;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zowe.apiml.gateway.filters.route.AsyncForwarder;
+import org.zowe.apiml.gateway.filters.route.AsyncRoutingFilter;
+import org.zowe.apiml.security.ConnectionPoolConfig;
+import org.zowe.apiml.security.HttpsFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous proxy mode (apiml.gateway.asyncProxy.enabled), requests to services are forwarded by a non-blocking
+ * http client and the servlet threads are not waiting for the services. The http client uses the same TLS settings
+ * and global settings of the connection pool (apiml.connectionPool.*) as the blocking one.
+ */
+@Configuration
+@ConditionalOnProperty(name = "apiml.gateway.asyncProxy.enabled", havingValue = "true")
+public class AsyncProxyConfig {
+
+    @Value("${apiml.gateway.timeoutMillis}")
+    private int timeoutMillis;
+
+    @Value("${apiml.gateway.asyncProxy.requestTimeoutMillis:60000}")
+    private long requestTimeoutMillis;
+
+    @Value("${apiml.gateway.asyncProxy.maxBodySize:10485760}")
+    private int maxBodySize;
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient asyncHttpClient(
+        @Qualifier("httpsFactoryWithoutKeystore") HttpsFactory httpsFactory,
+        ConnectionPoolConfig connectionPoolConfig
+    ) throws IOReactorException {
+        final Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+            .register("http", NoopIOSessionStrategy.INSTANCE)
+            .register("https", new SSLIOSessionStrategy(httpsFactory.createSslContext(), httpsFactory.createHostnameVerifier()))
+            .build();
+        final DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.custom()
+            .setConnectTimeout(timeoutMillis)
+            .setSoTimeout(timeoutMillis)
+            .build());
+        final PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+            ioReactor, null, registry, null, null, connectionPoolConfig.getTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(connectionPoolConfig.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(connectionPoolConfig.getMaxPerRoute());
+
+        final CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(timeoutMillis)
+                .setSocketTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .setRedirectsEnabled(false)
+                .build())
+            .disableCookieManagement()
+            .disableAuthCaching()
+            .build();
+        httpClient.start();
+        return httpClient;
+    }
+
+    @Bean
+    public AsyncForwarder asyncForwarder(CloseableHttpAsyncClient asyncHttpClient) {
+        return new AsyncForwarder(asyncHttpClient, requestTimeoutMillis, maxBodySize);
+    }
+
+    @Bean
+    public AsyncRoutingFilter asyncRoutingFilter(
+        SpringClientFactory clientFactory,
+        ProxyRequestHelper helper,
+        ZuulProperties zuulProperties,
+        AsyncForwarder asyncForwarder,
+        @Value("${error.path:/error}") String errorPath
+    ) {
+        return new AsyncRoutingFilter(clientFactory, helper, zuulProperties, asyncForwarder, errorPath);
+    }
+
+}
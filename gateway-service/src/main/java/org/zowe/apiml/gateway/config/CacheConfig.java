@@ -9,6 +9,11 @@
  */
 package org.zowe.apiml.gateway.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.ehcache.EhCacheCacheManager;
@@ -19,11 +24,16 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.zowe.apiml.cache.CompositeKeyGenerator;
 import org.zowe.apiml.cache.CompositeKeyGeneratorWithoutLast;
+import org.zowe.apiml.cache.TypedCache;
+import org.zowe.apiml.cache.TypedCacheManager;
+import org.zowe.apiml.gateway.filters.post.PageRedirectionFilter;
+import org.zowe.apiml.gateway.security.service.ServiceAuthenticationServiceImpl;
 
 import javax.annotation.PostConstruct;
 
 /**
- * Spring configuration to use EhCache. This context is using from application and also from tests.
+ * Spring configuration to use EhCache and {@link TypedCache}s (caches on the path of requests). This context is using
+ * from application and also from tests.
  */
 @EnableCaching
 @Configuration
@@ -35,13 +45,22 @@ public class CacheConfig {
     private static final String EHCACHE_STORAGE_ENV_PARAM_NAME = "ehcache.disk.store.dir";
     private static final String APIML_CACHE_STORAGE_LOCATION_ENV_PARAM_NAME = "apiml.cache.storage.location";
 
+    private static final int TYPED_CACHE_MAX_ENTRIES = 1000;
+    private static final long TYPED_CACHE_TIME_TO_LIVE_MILLIS = 86400_000L;
+
+    /**
+     * @return directory to store persistent caches (apiml.cache.storage.location, otherwise the working directory)
+     */
+    public static String getStorageLocation() {
+        String location = System.getProperty(APIML_CACHE_STORAGE_LOCATION_ENV_PARAM_NAME);
+        if (location == null) location = System.getProperty("user.dir");
+        return location;
+    }
+
     @PostConstruct
     public void afterPropertiesSet() {
         if (System.getProperty(EHCACHE_STORAGE_ENV_PARAM_NAME) == null) {
-            String location = System.getProperty(APIML_CACHE_STORAGE_LOCATION_ENV_PARAM_NAME);
-            if (location == null) location = System.getProperty("user.dir");
-
-            System.setProperty(EHCACHE_STORAGE_ENV_PARAM_NAME, location);
+            System.setProperty(EHCACHE_STORAGE_ENV_PARAM_NAME, getStorageLocation());
         }
     }
 
@@ -58,6 +77,42 @@ public class CacheConfig {
         return cmfb;
     }
 
+    @Bean
+    public TypedCacheManager typedCacheManager() {
+        return new TypedCacheManager()
+            .configure(ServiceAuthenticationServiceImpl.CACHE_BY_SERVICE_ID, TYPED_CACHE_MAX_ENTRIES, TYPED_CACHE_TIME_TO_LIVE_MILLIS)
+            .configure(ServiceAuthenticationServiceImpl.CACHE_BY_AUTHENTICATION, TYPED_CACHE_MAX_ENTRIES, TYPED_CACHE_TIME_TO_LIVE_MILLIS)
+            .configure(PageRedirectionFilter.CACHE_LOCATIONS, TYPED_CACHE_MAX_ENTRIES, TYPED_CACHE_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * Publish metrics of all typed caches: cache.gets (with tag result=hit|miss), cache.evictions and cache.size.
+     */
+    @Bean
+    public MeterBinder typedCacheMetrics(TypedCacheManager typedCacheManager) {
+        return registry -> typedCacheManager.forEachCache(cache -> bindTypedCache(registry, cache));
+    }
+
+    private static void bindTypedCache(MeterRegistry registry, TypedCache<?, ?> cache) {
+        final Tags tags = Tags.of("cache", cache.getName(), "cacheManager", "typedCacheManager");
+        FunctionCounter.builder("cache.gets", cache, TypedCache::getHitCount)
+            .tags(tags).tag("result", "hit")
+            .description("The number of times cache lookup methods have returned a cached value.")
+            .register(registry);
+        FunctionCounter.builder("cache.gets", cache, TypedCache::getMissCount)
+            .tags(tags).tag("result", "miss")
+            .description("The number of times cache lookup methods have not returned a value.")
+            .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, TypedCache::getEvictionCount)
+            .tags(tags)
+            .description("The number of times the cache was evicted.")
+            .register(registry);
+        Gauge.builder("cache.size", cache, TypedCache::size)
+            .tags(tags)
+            .description("The number of entries in this cache.")
+            .register(registry);
+    }
+
     @Bean(CacheConfig.COMPOSITE_KEY_GENERATOR)
     public KeyGenerator getCompositeKeyGenerator() {
         return new CompositeKeyGenerator();
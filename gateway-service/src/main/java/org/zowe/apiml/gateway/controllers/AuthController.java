@@ -11,12 +11,16 @@ package org.zowe.apiml.gateway.controllers;
 
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.List;
 
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
@@ -44,4 +48,21 @@ public class AuthController {
         response.setStatus(invalidated ? SC_OK : SC_SERVICE_UNAVAILABLE);
     }
 
+    /**
+     * Invalidate multiple tokens at once. It is used by other gateway instances to distribute invalidation in
+     * batches.
+     *
+     * @param jwtTokens tokens to invalidate
+     * @param response  response, status is OK if all tokens were invalidated
+     */
+    @PostMapping(path = "/invalidate", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void invalidateJwtTokens(@RequestBody List<String> jwtTokens, HttpServletResponse response) {
+        boolean invalidated = true;
+        for (final String jwtToken : jwtTokens) {
+            invalidated &= Boolean.TRUE.equals(authenticationService.invalidateJwtToken(jwtToken, false));
+        }
+
+        response.setStatus(invalidated ? SC_OK : SC_SERVICE_UNAVAILABLE);
+    }
+
 }
@@ -0,0 +1,46 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.latency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency of Zuul filters recorded by {@link FilterLatencyRecorder}. DELETE forgets all recorded values, ie. to measure
+ * just a load test.
+ */
+@Component
+@Endpoint(id = "filterlatency")
+@RequiredArgsConstructor
+public class FilterLatencyActuatorEndpoint {
+
+    private final FilterLatencyRecorder filterLatencyRecorder;
+
+    @ReadOperation
+    public Map<String, Object> getAll() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampleRate", filterLatencyRecorder.getSampleRate());
+        result.put("unit", "microseconds");
+        result.put("filters", filterLatencyRecorder.getStatistics());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        filterLatencyRecorder.reset();
+    }
+
+}
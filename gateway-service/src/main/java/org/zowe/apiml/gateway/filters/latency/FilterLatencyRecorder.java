@@ -0,0 +1,260 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.latency;
+
+import com.netflix.zuul.FilterProcessor;
+import com.netflix.zuul.FilterUsageNotifier;
+import com.netflix.zuul.ExecutionStatus;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.ZuulFilterResult;
+import com.netflix.zuul.context.Debug;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records durations of shouldFilter and run of each Zuul filter into HdrHistograms. The recorder replaces the Zuul's
+ * {@link FilterProcessor}, a sampled call of a filter goes through {@link TimedZuulFilter}, other calls are processed
+ * without any change. The routing debug, the execution summary and the error cause of a sampled call contain the name
+ * of the original filter, not of the wrapper.
+ *
+ * The ratio of sampled calls is set by apiml.gateway.filterLatency.sampleRate (0.0 - 1.0, 0.0 turns the recording off).
+ * The histograms are available on the actuator endpoint filterlatency.
+ */
+@Slf4j
+@Component
+public class FilterLatencyRecorder extends FilterProcessor {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    @Getter
+    private final double sampleRate;
+
+    private final Map<ZuulFilter, TimedZuulFilter> timedFilters = new ConcurrentHashMap<>();
+    private final FilterUsageNotifier usageNotifier = new BasicFilterUsageNotifier();
+
+    public FilterLatencyRecorder(@Value("${apiml.gateway.filterLatency.sampleRate:0.01}") double sampleRate) {
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+        setFilterUsageNotifier(usageNotifier);
+    }
+
+    @PostConstruct
+    public void afterPropertiesSet() {
+        if (sampleRate > 0.0) {
+            FilterProcessor.setProcessor(this);
+            log.debug("Latency of Zuul filters is recorded with the sample rate {}", sampleRate);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (FilterProcessor.getInstance() == this) {
+            FilterProcessor.setProcessor(new FilterProcessor());
+        }
+    }
+
+    boolean isSampled() {
+        return (sampleRate >= 1.0) || ((sampleRate > 0.0) && (ThreadLocalRandom.current().nextDouble() < sampleRate));
+    }
+
+    @Override
+    public Object processZuulFilter(ZuulFilter filter) throws ZuulException {
+        if (!isSampled()) return super.processZuulFilter(filter);
+
+        final TimedZuulFilter timedFilter = timedFilters.computeIfAbsent(filter,
+            x -> new TimedZuulFilter(x, new FilterLatency(x.getClass().getSimpleName(), x.filterType(), x.filterOrder())));
+        return processTimedFilter(timedFilter);
+    }
+
+    /**
+     * The same processing as {@link FilterProcessor#processZuulFilter(ZuulFilter)}, but the filter is reported by the
+     * name of the original filter (Zuul uses the simple name of the class, it would be TimedZuulFilter otherwise).
+     */
+    private Object processTimedFilter(TimedZuulFilter timedFilter) throws ZuulException {
+        final ZuulFilter filter = timedFilter.getDelegate();
+        final RequestContext ctx = RequestContext.getCurrentContext();
+        final boolean debug = ctx.debugRouting();
+        final String filterName = filter.getClass().getSimpleName();
+        try {
+            final long start = System.currentTimeMillis();
+            RequestContext copy = null;
+            if (debug) {
+                Debug.addRoutingDebug("Filter " + filter.filterType() + " " + filter.filterOrder() + " " + filterName);
+                copy = ctx.copy();
+            }
+
+            final ZuulFilterResult result = timedFilter.runFilter();
+            final ExecutionStatus status = result.getStatus();
+            final long execTime = System.currentTimeMillis() - start;
+            Object output = null;
+            Throwable failure = null;
+            switch (status) {
+                case FAILED:
+                    failure = result.getException();
+                    ctx.addFilterExecutionSummary(filterName, ExecutionStatus.FAILED.name(), execTime);
+                    break;
+                case SUCCESS:
+                    output = result.getResult();
+                    ctx.addFilterExecutionSummary(filterName, ExecutionStatus.SUCCESS.name(), execTime);
+                    if (debug) {
+                        Debug.addRoutingDebug("Filter {" + filterName + " TYPE:" + filter.filterType()
+                            + " ORDER:" + filter.filterOrder() + "} Execution time = " + execTime + "ms");
+                        Debug.compareContextState(filterName, copy);
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            if (failure != null) throw failure;
+            usageNotifier.notify(filter, status);
+            return output;
+        } catch (Throwable t) {
+            if (debug) {
+                Debug.addRoutingDebug("Running Filter failed " + filterName + " type:" + filter.filterType()
+                    + " order:" + filter.filterOrder() + " " + t.getMessage());
+            }
+            usageNotifier.notify(filter, ExecutionStatus.FAILED);
+            if (t instanceof ZuulException) throw (ZuulException) t;
+            throw new ZuulException(t, "Filter threw Exception", 500, filter.filterType() + ":" + filterName);
+        }
+    }
+
+    /**
+     * @return statistics of all filters called since the start (or the last reset), ordered by the type and order
+     */
+    public List<FilterStatistics> getStatistics() {
+        final List<FilterStatistics> output = new ArrayList<>(timedFilters.size());
+        for (final TimedZuulFilter timedFilter : timedFilters.values()) {
+            output.add(timedFilter.getLatency().getStatistics());
+        }
+        output.sort(Comparator.comparing(FilterStatistics::getType)
+            .thenComparingInt(FilterStatistics::getOrder)
+            .thenComparing(FilterStatistics::getName));
+        return output;
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public void reset() {
+        for (final TimedZuulFilter timedFilter : timedFilters.values()) {
+            timedFilter.getLatency().reset();
+        }
+    }
+
+    /**
+     * Histograms of one filter. Recording is wait-free ({@link Recorder}), the recorded values are moved into the
+     * accumulated histograms on read.
+     */
+    static class FilterLatency {
+
+        private final String name;
+        private final String type;
+        private final int order;
+
+        private final Recorder shouldFilterRecorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder runRecorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final Histogram shouldFilterHistogram = new Histogram(SIGNIFICANT_DIGITS);
+        private final Histogram runHistogram = new Histogram(SIGNIFICANT_DIGITS);
+
+        FilterLatency(String name, String type, int order) {
+            this.name = name;
+            this.type = type;
+            this.order = order;
+        }
+
+        void recordShouldFilter(long nanos) {
+            shouldFilterRecorder.recordValue(Math.max(0, nanos));
+        }
+
+        void recordRun(long nanos) {
+            runRecorder.recordValue(Math.max(0, nanos));
+        }
+
+        synchronized FilterStatistics getStatistics() {
+            shouldFilterHistogram.add(shouldFilterRecorder.getIntervalHistogram());
+            runHistogram.add(runRecorder.getIntervalHistogram());
+            return new FilterStatistics(name, type, order,
+                LatencyStatistics.of(shouldFilterHistogram), LatencyStatistics.of(runHistogram));
+        }
+
+        synchronized void reset() {
+            shouldFilterRecorder.reset();
+            runRecorder.reset();
+            shouldFilterHistogram.reset();
+            runHistogram.reset();
+        }
+
+    }
+
+    @lombok.Value
+    public static class FilterStatistics {
+
+        private final String name;
+        private final String type;
+        private final int order;
+        private final LatencyStatistics shouldFilter;
+        private final LatencyStatistics run;
+
+    }
+
+    /**
+     * Summary of one histogram, all durations are in microseconds.
+     */
+    @lombok.Value
+    public static class LatencyStatistics {
+
+        private final long count;
+        private final double min;
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+        static LatencyStatistics of(Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                return new LatencyStatistics(0, 0, 0, 0, 0, 0, 0, 0);
+            }
+            return new LatencyStatistics(
+                histogram.getTotalCount(),
+                micros(histogram.getMinValue()),
+                histogram.getMean() / 1000.0,
+                micros(histogram.getValueAtPercentile(50.0)),
+                micros(histogram.getValueAtPercentile(90.0)),
+                micros(histogram.getValueAtPercentile(99.0)),
+                micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMaxValue())
+            );
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.latency;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.exception.ZuulException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Wrapper of a Zuul filter which records durations of {@link #shouldFilter()} and {@link #run()} of the original filter.
+ * It is used only for sampled calls, see {@link FilterLatencyRecorder}.
+ */
+@Getter
+@RequiredArgsConstructor
+class TimedZuulFilter extends ZuulFilter {
+
+    private final ZuulFilter delegate;
+    private final FilterLatencyRecorder.FilterLatency latency;
+
+    @Override
+    public String filterType() {
+        return delegate.filterType();
+    }
+
+    @Override
+    public int filterOrder() {
+        return delegate.filterOrder();
+    }
+
+    @Override
+    public boolean isStaticFilter() {
+        return delegate.isStaticFilter();
+    }
+
+    @Override
+    public String disablePropertyName() {
+        return delegate.disablePropertyName();
+    }
+
+    @Override
+    public boolean isFilterDisabled() {
+        return delegate.isFilterDisabled();
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        final long start = System.nanoTime();
+        try {
+            return delegate.shouldFilter();
+        } finally {
+            latency.recordShouldFilter(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Object run() throws ZuulException {
+        final long start = System.nanoTime();
+        try {
+            return delegate.run();
+        } finally {
+            latency.recordRun(System.nanoTime() - start);
+        }
+    }
+
+}
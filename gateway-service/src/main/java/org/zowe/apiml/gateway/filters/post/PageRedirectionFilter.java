@@ -9,21 +9,24 @@
  */
 package org.zowe.apiml.gateway.filters.post;
 
+import org.zowe.apiml.cache.TypedCache;
+import org.zowe.apiml.cache.TypedCacheManager;
 import org.zowe.apiml.product.gateway.GatewayClient;
 import org.zowe.apiml.product.gateway.GatewayConfigProperties;
+import org.zowe.apiml.product.routing.RouteSnapshot;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import org.zowe.apiml.product.routing.RoutedServices;
-import org.zowe.apiml.product.routing.RoutedServicesUser;
 import org.zowe.apiml.product.routing.ServiceType;
 import org.zowe.apiml.product.routing.transform.TransformService;
 import org.zowe.apiml.product.routing.transform.URLTransformationException;
 import com.netflix.util.Pair;
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import lombok.Value;
 import org.springframework.http.HttpStatus;
 
-import java.util.*;
+import java.util.List;
+import java.util.Optional;
 
 import static org.apache.http.HttpHeaders.LOCATION;
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
@@ -35,31 +38,31 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
  * <li>Hostname and port of the url are registered in Discovery Service</li>
  * <li>The url can be matched to gateway url</li>
  * </ul>
+ *
+ * The services are found by the index of addresses (host:port) of instances in the current {@link RouteSnapshot}.
+ * Transformed urls are cached in the {@link TypedCache} {@value #CACHE_LOCATIONS} (its hits and misses are published
+ * as metrics), the cache entries are bound to the version of the snapshot.
  */
-public class PageRedirectionFilter extends ZuulFilter implements RoutedServicesUser {
+public class PageRedirectionFilter extends ZuulFilter {
 
-    private final DiscoveryClient discovery;
-    private final Map<String, RoutedServices> routedServicesMap = new HashMap<>();
-    private final TransformService transformService;
-    private static final int MAX_ENTRIES = 1000;
+    public static final String CACHE_LOCATIONS = "pageRedirectionLocations";
 
-    private final Map<String, String> routeTable = Collections.synchronizedMap(
-        new LinkedHashMap<String, String>(MAX_ENTRIES + 1, .75F, true) {
-            @Override
-            public boolean removeEldestEntry(Map.Entry eldest) {
-                return size() > MAX_ENTRIES;
-            }
-        }
-    );
+    private final RouteSnapshotRegistry routeSnapshotRegistry;
+    private final TransformService transformService;
+    private final TypedCache<LocationKey, String> routeTable;
 
     /**
      * Constructor
      *
-     * @param discovery               discovery client
      * @param gatewayConfigProperties gateway config properties
+     * @param routeSnapshotRegistry   registry of current routes
+     * @param typedCacheManager       manager of the cache of transformed urls
      */
-    public PageRedirectionFilter(DiscoveryClient discovery, GatewayConfigProperties gatewayConfigProperties) {
-        this.discovery = discovery;
+    public PageRedirectionFilter(GatewayConfigProperties gatewayConfigProperties,
+                                 RouteSnapshotRegistry routeSnapshotRegistry,
+                                 TypedCacheManager typedCacheManager) {
+        this.routeSnapshotRegistry = routeSnapshotRegistry;
+        this.routeTable = typedCacheManager.getCache(CACHE_LOCATIONS);
         transformService = new TransformService(
             new GatewayClient(gatewayConfigProperties)
         );
@@ -102,17 +105,20 @@ public class PageRedirectionFilter extends ZuulFilter implements RoutedServicesU
 
         if (locationHeader.isPresent()) {
             String location = locationHeader.get().second();
+            //use the same routes for the whole transformation
+            RouteSnapshot routeSnapshot = routeSnapshotRegistry.getSnapshot();
+            LocationKey key = new LocationKey(routeSnapshot.getVersion(), location);
             //find matched url in cache
-            String transformedUrl = foundUrlInTable(location);
+            String transformedUrl = routeTable.get(key);
             if (transformedUrl != null) {
                 transformLocation(locationHeader.get(), transformedUrl);
             } else {
                 //find matched url in Discovery Service
-                Optional<String> transformedUrlOp = getMatchedUrlFromDS(location);
+                Optional<String> transformedUrlOp = getMatchedUrlFromDS(location, routeSnapshot);
                 if (transformedUrlOp.isPresent()) {
                     transformedUrl = transformedUrlOp.get();
                     //Put matched url to cache
-                    routeTable.put(location, transformedUrl);
+                    routeTable.put(key, transformedUrl);
                     transformLocation(locationHeader.get(), transformedUrl);
                 }
             }
@@ -122,39 +128,39 @@ public class PageRedirectionFilter extends ZuulFilter implements RoutedServicesU
     }
 
     /**
-     * Find matched url in cache by location
-     *
-     * @param location url in Location header
-     * @return matched url
-     */
-    private String foundUrlInTable(String location) {
-        return routeTable.get(location);
-    }
-
-    /**
-     * Find matched url Discovery Service.
-     * First check the current service. If matched url can not be found in current service, the method then iterates
-     * through all services registered in Discovery Service to find the matched url
+     * Find matched url in services with an instance on the host and port of the location. The current service is
+     * checked at first.
      *
-     * @param location url in Location header
+     * @param location      url in Location header
+     * @param routeSnapshot routes and addresses of all services
      * @return return matched url if it can be found
      * return empty if matched url can not be found
      */
-    private Optional<String> getMatchedUrlFromDS(String location) {
-        RequestContext context = RequestContext.getCurrentContext();
-        String currentServiceId = (String) context.get(SERVICE_ID_KEY);
+    private Optional<String> getMatchedUrlFromDS(String location, RouteSnapshot routeSnapshot) {
+        String address = getAddress(location);
+        if (address == null) {
+            return Optional.empty();
+        }
+
+        List<String> serviceIds = routeSnapshot.getServiceIdsByAddress(address);
+        if (serviceIds.isEmpty()) {
+            return Optional.empty();
+        }
 
         //check current service instance
-        Optional<String> transformedUrl = foundMatchedUrlInService(location, currentServiceId);
-        if (transformedUrl.isPresent()) {
-            return transformedUrl;
+        RequestContext context = RequestContext.getCurrentContext();
+        String currentServiceId = (String) context.get(SERVICE_ID_KEY);
+        if (serviceIds.contains(currentServiceId)) {
+            Optional<String> transformedUrl = transformUrl(location, currentServiceId, routeSnapshot);
+            if (transformedUrl.isPresent()) {
+                return transformedUrl;
+            }
         }
 
-        //iterate through all instances registered in discovery client, check if there is matched url
-        List<String> serviceIds = discovery.getServices();
+        //check other services on the same host and port
         for (String serviceId : serviceIds) {
-            if (!currentServiceId.equals(serviceId)) {
-                transformedUrl = foundMatchedUrlInService(location, serviceId);
+            if (!serviceId.equals(currentServiceId)) {
+                Optional<String> transformedUrl = transformUrl(location, serviceId, routeSnapshot);
                 if (transformedUrl.isPresent()) {
                     return transformedUrl;
                 }
@@ -164,31 +170,57 @@ public class PageRedirectionFilter extends ZuulFilter implements RoutedServicesU
     }
 
     /**
-     * Find matched url in specified service. For each service instance, the method first checks if the hostname and port
-     * of the service instance are the same as the hostname and port in Location url. If they are the same, then try to
-     * find the matched url.
+     * Get address (host:port) of the url. Only urls with explicit port are accepted.
      *
-     * @param location  url in Location header
-     * @param serviceId specified serviceId
+     * @param location url in Location header
+     * @return address or null if the url does not contain host and port
+     */
+    static String getAddress(String location) {
+        int authorityFrom = location.indexOf("://");
+        if (authorityFrom < 0) {
+            return null;
+        }
+        authorityFrom += 3;
+
+        int authorityTo = authorityFrom;
+        while (authorityTo < location.length() && "/?#".indexOf(location.charAt(authorityTo)) < 0) authorityTo++;
+
+        // skip user info
+        int at = location.lastIndexOf('@', authorityTo - 1);
+        if (at >= authorityFrom) {
+            authorityFrom = at + 1;
+        }
+
+        int portSeparator = location.lastIndexOf(':', authorityTo - 1);
+        if ((portSeparator <= authorityFrom) || (portSeparator == authorityTo - 1) || (location.charAt(authorityTo - 1) == ']')) {
+            return null;
+        }
+
+        return location.substring(authorityFrom, authorityTo);
+    }
+
+    /**
+     * Transform the location to url of gateway by routes of the service.
+     *
+     * @param location      url in Location header
+     * @param serviceId     specified serviceId
+     * @param routeSnapshot routes of all services
      * @return return matched url if it can be found
      * return empty if matched url can not be found
      */
-    private Optional<String> foundMatchedUrlInService(String location, String serviceId) {
-        List<ServiceInstance> serviceInstances = discovery.getInstances(serviceId);
-        for (ServiceInstance instance : serviceInstances) {
-            //Check if the host and port in location is registered in DS
-            String host = instance.getHost() + ":" + instance.getPort();
-            if (location.contains(host)) {
-                try {
-                    String transformedUrl = transformService.transformURL(ServiceType.ALL, serviceId, location, routedServicesMap.get(serviceId));
-                    return Optional.of(transformedUrl);
-                } catch (URLTransformationException e) {
-                    //do nothing if no matched url is found
-                }
-            }
+    private Optional<String> transformUrl(String location, String serviceId, RouteSnapshot routeSnapshot) {
+        RoutedServices routedServices = routeSnapshot.getRoutedServices(serviceId);
+        if (routedServices == null) {
+            return Optional.empty();
         }
 
-        return Optional.empty();
+        try {
+            String transformedUrl = transformService.transformURL(ServiceType.ALL, serviceId, location, routedServices);
+            return Optional.of(transformedUrl);
+        } catch (URLTransformationException e) {
+            //do nothing if no matched url is found
+            return Optional.empty();
+        }
     }
 
     /**
@@ -201,8 +233,11 @@ public class PageRedirectionFilter extends ZuulFilter implements RoutedServicesU
         locationHeader.setSecond(transformedUrl);
     }
 
-    @Override
-    public void addRoutedServices(String serviceId, RoutedServices routedServices) {
-        routedServicesMap.put(serviceId, routedServices);
+    @Value
+    private static class LocationKey {
+
+        private final long routesVersion;
+        private final String location;
+
     }
 }
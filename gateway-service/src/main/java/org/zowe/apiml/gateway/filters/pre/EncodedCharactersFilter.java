@@ -22,9 +22,11 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.support.FilterConstants;
 import org.springframework.http.HttpStatus;
+import org.zowe.apiml.gateway.security.service.ServiceCacheEvict;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
@@ -35,17 +37,20 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
  *  for filtering them.
  *  Encoded characters in URL are allowed only for services that have it explicitly configured on the metadata.
  *
+ *  The decision about service (all instances allow encoded characters) is cached and evicted on a change of
+ *  the service in the discovery service (see {@link ServiceCacheEvict}).
  */
 
 @RequiredArgsConstructor
 @Slf4j
-public class EncodedCharactersFilter extends ZuulFilter {
+public class EncodedCharactersFilter extends ZuulFilter implements ServiceCacheEvict {
 
     private final DiscoveryClient discoveryClient;
     private final MessageService messageService;
     public static final String METADATA_KEY = "apiml.enableUrlEncodedCharacters";
-    private static final List<String> PROHIBITED_CHARACTERS =
-        Arrays.asList("%2e", "%2E", ";", "%3b", "%3B", "%2f", "%2F", "\\", "%5c", "%5C", "%25", "%");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Boolean> allowedByServiceId = new ConcurrentHashMap<>();
 
     @Override
     public String filterType() {
@@ -59,23 +64,37 @@ public class EncodedCharactersFilter extends ZuulFilter {
 
     @Override
     public boolean shouldFilter() {
-        boolean shouldFilter = true;
-
         RequestContext context = RequestContext.getCurrentContext();
         final String serviceId = (String) context.get(SERVICE_ID_KEY);
 
-        List<ServiceInstance> instanceList = discoveryClient.getInstances(serviceId);
-
-        List<Map<String, String>> enabledList = instanceList.stream()
-            .map(ServiceInstance::getMetadata)
-            .filter( metadata -> String.valueOf(true).equalsIgnoreCase(metadata.get(METADATA_KEY)) )
-            .collect(Collectors.toList());
+        if (serviceId == null) {
+            return !isEncodedCharactersAllowed(null);
+        }
+        return !allowedByServiceId.computeIfAbsent(serviceId, this::isEncodedCharactersAllowed);
+    }
 
-        if (enabledList.size() == instanceList.size()) {
-            shouldFilter = false;
+    /**
+     * @param serviceId ID of service
+     * @return true if all instances of the service allow encoded characters
+     */
+    private boolean isEncodedCharactersAllowed(String serviceId) {
+        List<ServiceInstance> instanceList = discoveryClient.getInstances(serviceId);
+        for (ServiceInstance instance : instanceList) {
+            if (!String.valueOf(true).equalsIgnoreCase(instance.getMetadata().get(METADATA_KEY))) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        return shouldFilter;
+    @Override
+    public void evictCacheService(String serviceId) {
+        allowedByServiceId.keySet().removeIf(x -> x.equalsIgnoreCase(serviceId));
+    }
+
+    @Override
+    public void evictCacheAllService() {
+        allowedByServiceId.clear();
     }
 
     @Override
@@ -88,9 +107,25 @@ public class EncodedCharactersFilter extends ZuulFilter {
         return null;
     }
 
+    /**
+     * Check the path for prohibited characters in one pass: any encoded character (%), semicolon and backslash. The
+     * percent sign covers all encoded forms (ie. %2e, %2F, %5c, %25) regardless of the case of hex digits.
+     *
+     * @param request path of request
+     * @return true if the path contains any prohibited character
+     */
     private boolean checkRequestForEncodedCharacters(String request) {
-        return PROHIBITED_CHARACTERS.stream()
-            .anyMatch(forbidden -> pathContains(request, forbidden));
+        if (request == null) {
+            return false;
+        }
+
+        for (int i = 0; i < request.length(); i++) {
+            final char c = request.charAt(i);
+            if ((c == '%') || (c == ';') || (c == '\\')) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void rejectRequest(RequestContext ctx) {
@@ -108,15 +143,11 @@ public class EncodedCharactersFilter extends ZuulFilter {
     private String getMessageString(Message message) {
         String response;
         try {
-            response = new ObjectMapper().writeValueAsString(message.mapToView());
+            response = mapper.writeValueAsString(message.mapToView());
         } catch (JsonProcessingException e) {
             response = message.mapToReadableText();
             log.debug("Could not convert response to JSON", e);
         }
         return response;
     }
-
-    private static boolean pathContains(String path, String character) {
-        return path != null && path.contains(character);
-    }
 }
@@ -9,25 +9,26 @@
  */
 package org.zowe.apiml.gateway.filters.pre;
 
-import org.zowe.apiml.util.UrlUtils;
-import org.zowe.apiml.product.routing.RoutedServices;
-import org.zowe.apiml.product.routing.RoutedServicesUser;
+import org.zowe.apiml.product.routing.RouteSnapshot;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
 /**
  * Must be run after PreDecorationFilter. This will set Proxy, ServiceId and other variables in RequestContext
+ *
+ * The filter runs on each request, it rewrites the request URI to the base path of the route precomputed in the
+ * current {@link RouteSnapshot} without creating any intermediate strings.
  */
 @Slf4j
-public class LocationFilter extends ZuulFilter implements RoutedServicesUser {
+@RequiredArgsConstructor
+public class LocationFilter extends ZuulFilter {
 
-    private final Map<String, RoutedServices> routedServicesMap = new HashMap<>();
+    private final RouteSnapshotRegistry routeSnapshotRegistry;
 
     @Override
     public String filterType() {
@@ -49,45 +50,66 @@ public class LocationFilter extends ZuulFilter implements RoutedServicesUser {
         RequestContext context = RequestContext.getCurrentContext();
 
         final String serviceId = (String) context.get(SERVICE_ID_KEY);
-        final String proxy = UrlUtils.removeFirstAndLastSlash((String) context.get(PROXY_KEY));
-        final String requestPath = UrlUtils.addFirstSlash((String) context.get(REQUEST_URI_KEY));
-
-        if (isRequestThatCanBeProcessed(serviceId, proxy, requestPath)) {
-            RoutedServices routedServices = routedServicesMap.get(serviceId);
-
-            if (routedServices != null) {
-                @SuppressWarnings("squid:S2259")
-                int i = proxy.lastIndexOf('/');
-
-                if (i > 0) {
-                    String route = proxy.substring(0, i);
-                    String originalPath = normalizeOriginalPath(routedServices.findServiceByGatewayUrl(route).getServiceUrl());
-                    context.set(REQUEST_URI_KEY, originalPath + requestPath);
-                    log.debug("Routing: The request was routed to {}", originalPath + requestPath);
-                }
-            } else {
-                log.trace("Routing: No routing metadata for service {} found.", serviceId);
-            }
-        } else {
-            log.trace("Routing: Incorrect serviceId {}, proxy {} or requestPath {}.", serviceId, proxy, requestPath);
+        final String proxy = (String) context.get(PROXY_KEY);
+        final String requestUri = (String) context.get(REQUEST_URI_KEY);
+
+        if (!isRequestThatCanBeProcessed(serviceId, proxy, requestUri)) {
+            log.trace("Routing: Incorrect serviceId {}, proxy {} or requestPath {}.", serviceId, proxy, requestUri);
+            return null;
         }
 
-        return null;
-    }
+        RouteSnapshot.BasePaths basePaths = routeSnapshotRegistry.getSnapshot().getBasePaths(serviceId);
+        if (basePaths == null) {
+            log.trace("Routing: No routing metadata for service {} found.", serviceId);
+            return null;
+        }
+
+        // proxy without whitespaces and the first and last slash, the route is the part before the last slash
+        int proxyFrom = trimStart(proxy);
+        int proxyTo = trimEnd(proxy, proxyFrom);
+        if ((proxyFrom < proxyTo) && (proxy.charAt(proxyFrom) == '/')) proxyFrom++;
+        if ((proxyFrom < proxyTo) && (proxy.charAt(proxyTo - 1) == '/')) proxyTo--;
+        int routeTo = proxy.lastIndexOf('/', proxyTo - 1);
+        if (routeTo <= proxyFrom) {
+            return null;
+        }
 
-    public void addRoutedServices(String serviceId, RoutedServices routedServices) {
-        routedServicesMap.put(serviceId, routedServices);
+        String basePath = basePaths.find(proxy, proxyFrom, routeTo);
+        if (basePath == null) {
+            log.trace("Routing: No route of service {} found for proxy {}.", serviceId, proxy);
+            return null;
+        }
+
+        // request path without whitespaces, it has to start with slash
+        int pathFrom = trimStart(requestUri);
+        int pathTo = trimEnd(requestUri, pathFrom);
+        boolean addSlash = (pathFrom == pathTo) || (requestUri.charAt(pathFrom) != '/');
+
+        StringBuilder sb = new StringBuilder(basePath.length() + (addSlash ? 1 : 0) + pathTo - pathFrom);
+        sb.append(basePath);
+        if (addSlash) sb.append('/');
+        sb.append(requestUri, pathFrom, pathTo);
+        String routedUri = sb.toString();
+
+        context.set(REQUEST_URI_KEY, routedUri);
+        log.debug("Routing: The request was routed to {}", routedUri);
+
+        return null;
     }
 
     private boolean isRequestThatCanBeProcessed(String serviceId, String proxy, String requestPath) {
         return !(serviceId == null || proxy == null || requestPath == null);
     }
 
-    private String normalizeOriginalPath(String originalPath) {
-        if (originalPath == null) {
-            return "";
-        } else {
-            return originalPath;
-        }
+    private static int trimStart(String value) {
+        int index = 0;
+        while ((index < value.length()) && (value.charAt(index) <= ' ')) index++;
+        return index;
+    }
+
+    private static int trimEnd(String value, int from) {
+        int index = value.length();
+        while ((index > from) && (value.charAt(index - 1) <= ' ')) index--;
+        return index;
     }
 }
@@ -0,0 +1,305 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Forwards a request to a service without holding a servlet thread while waiting. The request is switched into the
+ * asynchronous mode (Servlet 3.1), the body of the request is read by {@link ReadListener} (only when data are
+ * available) and the call of the service is made by the non-blocking {@link CloseableHttpAsyncClient}. The handler
+ * is called again on a container thread once the response (or failure) is there, it writes the response and
+ * completes the asynchronous context.
+ *
+ * The bodies of the request and of the response are buffered, the forwarder is meant for API calls, not for large
+ * uploads or downloads. Both are limited by maxBodySize (apiml.gateway.asyncProxy.maxBodySize): a larger request fails
+ * with {@link RequestTooLargeException} (requests with a larger Content-Length are not forwarded asynchronously at
+ * all, see {@link AsyncRoutingFilter}), a larger response fails with {@link ResponseTooLargeException}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class AsyncForwarder {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final long requestTimeoutMillis;
+    @Getter
+    private final long maxBodySize;
+
+    /**
+     * Start the asynchronous processing of the request and send it to the service
+     *
+     * @param request        request of the client
+     * @param requestBuilder request to the service (method, URI, headers and the entity if it is already known)
+     * @param readBody       true to read the body of the client's request (non-blocking) and send it as the entity
+     * @param handler        handler of the response
+     */
+    public void forward(HttpServletRequest request, RequestBuilder requestBuilder, boolean readBody, Handler handler) {
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(requestTimeoutMillis);
+
+        final Exchange exchange = new Exchange(asyncContext, requestBuilder, handler);
+        asyncContext.addListener(exchange);
+        if (readBody) {
+            exchange.readBody();
+        } else {
+            exchange.send();
+        }
+    }
+
+    /**
+     * Handler of the result of forwarding, methods are called on a container thread and exactly one of them is called
+     * for each request. The handler has to complete (or dispatch) the asynchronous context.
+     */
+    public interface Handler {
+
+        void completed(AsyncContext asyncContext, HttpResponse response);
+
+        void failed(AsyncContext asyncContext, Exception exception);
+
+    }
+
+    /**
+     * Body of the client's request is larger than maxBodySize
+     */
+    public static class RequestTooLargeException extends IOException {
+
+        private static final long serialVersionUID = -3390781305452931317L;
+
+        public RequestTooLargeException(long maxBodySize) {
+            super("The body of the request is larger than " + maxBodySize + " bytes");
+        }
+
+    }
+
+    /**
+     * The client closed the connection before the response was sent, there is nobody to send an error to
+     */
+    public static class ClientAbortedException extends IOException {
+
+        private static final long serialVersionUID = 1950270357212372733L;
+
+        public ClientAbortedException(Throwable cause) {
+            super("The client closed the connection", cause);
+        }
+
+    }
+
+    /**
+     * Body of the service's response is larger than maxBodySize
+     */
+    public static class ResponseTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 5360683768451342937L;
+
+        public ResponseTooLargeException(long maxBodySize) {
+            super("The body of the response is larger than " + maxBodySize + " bytes");
+        }
+
+    }
+
+    /**
+     * Consumer of the response, it buffers the body up to maxBodySize, otherwise it fails. The default consumer of the
+     * http client does not have any limit.
+     */
+    @RequiredArgsConstructor
+    static class BoundedResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+        private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+        private final long maxBodySize;
+
+        private volatile HttpResponse response;
+        private volatile SimpleInputBuffer buffer;
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+            final long length = entity.getContentLength();
+            if (length > maxBodySize) throw new ResponseTooLargeException(maxBodySize);
+
+            buffer = new SimpleInputBuffer(length < 0 ? DEFAULT_BUFFER_SIZE : (int) length, HeapByteBufferAllocator.INSTANCE);
+            response.setEntity(new ContentBufferEntity(entity, buffer));
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            buffer.consumeContent(decoder);
+            if (buffer.length() > maxBodySize) throw new ResponseTooLargeException(maxBodySize);
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext context) {
+            return response;
+        }
+
+        @Override
+        protected void releaseResources() {
+            response = null;
+            buffer = null;
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private class Exchange implements ReadListener, FutureCallback<HttpResponse>, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final RequestBuilder requestBuilder;
+        private final Handler handler;
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private ByteArrayOutputStream body;
+        private ServletInputStream inputStream;
+        private volatile Future<HttpResponse> future;
+
+        void readBody() {
+            try {
+                final long contentLength = asyncContext.getRequest().getContentLengthLong();
+                if (contentLength > maxBodySize) throw new RequestTooLargeException(maxBodySize);
+                body = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : READ_BUFFER_SIZE);
+                inputStream = asyncContext.getRequest().getInputStream();
+                inputStream.setReadListener(this);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        void send() {
+            if (finished.get()) return;
+            try {
+                future = httpClient.execute(
+                    HttpAsyncMethods.create(requestBuilder.build()), new BoundedResponseConsumer(maxBodySize), this);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Exception e) {
+            if (finished.compareAndSet(false, true)) {
+                asyncContext.start(() -> handler.failed(asyncContext, e));
+            }
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            final byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int length;
+            while (!finished.get() && inputStream.isReady() && (length = inputStream.read(buffer)) != -1) {
+                if (body.size() + length > maxBodySize) {
+                    // stop reading, the rest of the body is left to the container
+                    fail(new RequestTooLargeException(maxBodySize));
+                    return;
+                }
+                body.write(buffer, 0, length);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (finished.get()) return;
+            requestBuilder.setEntity(new ByteArrayEntity(body.toByteArray()));
+            send();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(t instanceof Exception ? (Exception) t : new IOException(t));
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            if (finished.compareAndSet(false, true)) {
+                asyncContext.start(() -> handler.completed(asyncContext, response));
+            }
+        }
+
+        @Override
+        public void failed(Exception e) {
+            fail(e);
+        }
+
+        @Override
+        public void cancelled() {
+            fail(new CancellationException("Request to the service was cancelled"));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (finished.compareAndSet(false, true)) {
+                cancel();
+                handler.failed(asyncContext, new TimeoutException(
+                    "The request was not finished in " + requestTimeoutMillis + " ms"));
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // the client closed the connection
+            if (finished.compareAndSet(false, true)) {
+                log.debug("Asynchronous request failed", event.getThrowable());
+                cancel();
+                handler.failed(asyncContext, new ClientAbortedException(event.getThrowable()));
+            }
+        }
+
+        private void cancel() {
+            final Future<HttpResponse> current = future;
+            if (current != null) current.cancel(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // nothing to do
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // nothing to do
+        }
+
+    }
+
+}
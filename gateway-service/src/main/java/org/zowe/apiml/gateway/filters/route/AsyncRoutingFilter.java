@@ -0,0 +1,269 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.ClientException;
+import com.netflix.loadbalancer.Server;
+import com.netflix.zuul.FilterProcessor;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.zowe.apiml.gateway.ribbon.EwmaPowerOfTwoChoicesRule;
+import org.zowe.apiml.gateway.ribbon.GatewayRibbonLoadBalancingHttpClient;
+import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
+import static org.zowe.apiml.gateway.security.service.ServiceAuthenticationServiceImpl.AUTHENTICATION_COMMAND_KEY;
+
+/**
+ * Route filter which forwards requests to services asynchronously (see {@link AsyncForwarder}), the servlet thread is
+ * released while the service is processing the request. The instance is selected by the Ribbon load balancer of the
+ * service and the request is built the same way as by {@link org.springframework.cloud.netflix.zuul.filters.route.RibbonRoutingFilter},
+ * which handles the remaining requests (forms, requests with a body prepared by other filters or larger than the limit
+ * of {@link AsyncForwarder}, retries).
+ *
+ * The synchronous pass of Zuul ends with an empty {@link RequestContext}, the post filters are called for the request
+ * once the response of the service is available (on a container thread with the restored context).
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class AsyncRoutingFilter extends ZuulFilter {
+
+    private static final String FORWARDING_ERROR = "Forwarding error";
+
+    private final SpringClientFactory clientFactory;
+    private final ProxyRequestHelper helper;
+    private final ZuulProperties zuulProperties;
+    private final AsyncForwarder forwarder;
+    private final String errorPath;
+
+    @Override
+    public String filterType() {
+        return ROUTE_TYPE;
+    }
+
+    @Override
+    public int filterOrder() {
+        return RIBBON_ROUTING_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        final RequestContext context = RequestContext.getCurrentContext();
+        return (context.getRouteHost() == null)
+            && (context.get(SERVICE_ID_KEY) != null)
+            && context.sendZuulResponse()
+            && (context.get(REQUEST_ENTITY_KEY) == null)
+            && context.getRequest().isAsyncSupported()
+            && !isForm(context.getRequest())
+            && (context.getRequest().getContentLengthLong() <= forwarder.getMaxBodySize());
+    }
+
+    /**
+     * Forms are parsed by the container (see {@link org.springframework.cloud.netflix.zuul.filters.pre.FormBodyWrapperFilter}),
+     * their body cannot be read asynchronously
+     */
+    private boolean isForm(HttpServletRequest request) {
+        final String contentType = request.getContentType();
+        return StringUtils.startsWithIgnoreCase(contentType, "application/x-www-form-urlencoded")
+            || StringUtils.startsWithIgnoreCase(contentType, "multipart/");
+    }
+
+    private boolean hasBody(HttpServletRequest request) {
+        return (request.getContentLengthLong() > 0) || (request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null);
+    }
+
+    @Override
+    public Object run() throws ZuulException {
+        final RequestContext context = RequestContext.getCurrentContext();
+        final HttpServletRequest request = context.getRequest();
+        final String serviceId = (String) context.get(SERVICE_ID_KEY);
+
+        final GatewayRibbonLoadBalancingHttpClient client = (GatewayRibbonLoadBalancingHttpClient)
+            clientFactory.getClient(serviceId, RibbonLoadBalancingHttpClient.class);
+        final Server server;
+        try {
+            server = client.getServerFromLoadBalancer(null, null);
+        } catch (ClientException e) {
+            throw new ZuulException(e, FORWARDING_ERROR, HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getErrorType().toString());
+        }
+        applyAuthentication(context, client, server);
+
+        final RequestBuilder requestBuilder = RequestBuilder.create(request.getMethod())
+            .setUri(client.reconstructURIWithServer(server, URI.create(buildRequestUri(request))));
+        helper.buildZuulRequestHeaders(request)
+            .forEach((name, values) -> values.forEach(value -> requestBuilder.addHeader(name, value)));
+
+        final RequestContext savedContext = new RequestContext();
+        savedContext.putAll(context);
+        final ResponseHandler handler = new ResponseHandler(savedContext, client.getLoadAwareRule(), server);
+
+        // the rest of the synchronous pass must not route the request again or write any response
+        context.clear();
+        handler.started();
+        try {
+            forwarder.forward(request, requestBuilder, hasBody(request), handler);
+        } catch (RuntimeException e) {
+            handler.finished(true);
+            context.putAll(savedContext);
+            throw new ZuulException(e, FORWARDING_ERROR, HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage());
+        }
+        return null;
+    }
+
+    private void applyAuthentication(RequestContext context, GatewayRibbonLoadBalancingHttpClient client, Server server) throws ZuulException {
+        final AuthenticationCommand cmd = (AuthenticationCommand) context.get(AUTHENTICATION_COMMAND_KEY);
+        if (cmd == null) return;
+
+        // the command is waiting for the selected instance, see GatewayRibbonLoadBalancingHttpClientImpl
+        final Server.MetaInfo metaInfo = server.getMetaInfo();
+        final InstanceInfo instanceInfo = client.getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+        try {
+            cmd.apply(instanceInfo);
+        } catch (Exception e) {
+            throw new ZuulException(e, FORWARDING_ERROR, HttpStatus.INTERNAL_SERVER_ERROR.value(), String.valueOf(e));
+        }
+    }
+
+    private String buildRequestUri(HttpServletRequest request) {
+        final String uri = helper.buildZuulRequestURI(request).replace("//", "/");
+        if (zuulProperties.isForceOriginalQueryStringEncoding()) {
+            final String query = request.getQueryString();
+            return StringUtils.isEmpty(query) ? uri : uri + '?' + query;
+        }
+        return uri + helper.getQueryString(helper.buildZuulRequestQueryParams(request));
+    }
+
+    private static MultiValueMap<String, String> toHeaders(Header[] headers) {
+        final MultiValueMap<String, String> output = new LinkedMultiValueMap<>();
+        for (final Header header : headers) {
+            output.add(header.getName(), header.getValue());
+        }
+        return output;
+    }
+
+    /**
+     * Forward the error to the error controller, the same way as {@link org.springframework.cloud.netflix.zuul.filters.post.SendErrorFilter}
+     */
+    void sendError(AsyncContext asyncContext, ZuulException exception) {
+        log.debug("Error during asynchronous routing", exception);
+        if (asyncContext.getResponse().isCommitted()) {
+            asyncContext.complete();
+            return;
+        }
+
+        final ServletRequest request = asyncContext.getRequest();
+        request.setAttribute(RequestDispatcher.ERROR_STATUS_CODE, exception.nStatusCode);
+        request.setAttribute(RequestDispatcher.ERROR_EXCEPTION, exception);
+        if (StringUtils.hasText(exception.errorCause)) {
+            request.setAttribute(RequestDispatcher.ERROR_MESSAGE, exception.errorCause);
+        }
+        asyncContext.dispatch(errorPath);
+    }
+
+    @RequiredArgsConstructor
+    class ResponseHandler implements AsyncForwarder.Handler {
+
+        private final RequestContext savedContext;
+        private final EwmaPowerOfTwoChoicesRule loadAwareRule;
+        private final Server server;
+
+        private long start;
+
+        void started() {
+            start = System.nanoTime();
+            if (loadAwareRule != null) loadAwareRule.requestStarted(server);
+        }
+
+        /**
+         * @param failed the request failed, the instance is penalized instead of the duration
+         */
+        void finished(boolean failed) {
+            if (loadAwareRule == null) return;
+            if (failed) {
+                loadAwareRule.requestFailed(server);
+            } else {
+                loadAwareRule.requestFinished(server, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void completed(AsyncContext asyncContext, HttpResponse response) {
+            finished(false);
+
+            final RequestContext context = RequestContext.getCurrentContext();
+            context.putAll(savedContext);
+            try {
+                final HttpEntity entity = response.getEntity();
+                helper.setResponse(
+                    response.getStatusLine().getStatusCode(),
+                    entity == null ? null : entity.getContent(),
+                    toHeaders(response.getAllHeaders())
+                );
+                FilterProcessor.getInstance().postRoute();
+                asyncContext.complete();
+            } catch (ZuulException e) {
+                sendError(asyncContext, e);
+            } catch (IOException | RuntimeException e) {
+                sendError(asyncContext, new ZuulException(e, FORWARDING_ERROR, HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage()));
+            } finally {
+                context.unset();
+            }
+        }
+
+        @Override
+        public void failed(AsyncContext asyncContext, Exception exception) {
+            if (exception instanceof AsyncForwarder.ClientAbortedException) {
+                // the instance did not fail, only its outstanding request is over
+                if (loadAwareRule != null) loadAwareRule.requestCancelled(server);
+                asyncContext.complete();
+                return;
+            }
+
+            finished(true);
+
+            if (exception instanceof TimeoutException) {
+                sendError(asyncContext, new ZuulException(exception, FORWARDING_ERROR, HttpStatus.GATEWAY_TIMEOUT.value(), exception.getMessage()));
+            } else if (exception instanceof AsyncForwarder.RequestTooLargeException) {
+                sendError(asyncContext, new ZuulException(exception, FORWARDING_ERROR, HttpStatus.PAYLOAD_TOO_LARGE.value(), exception.getMessage()));
+            } else if (exception instanceof AsyncForwarder.ResponseTooLargeException) {
+                sendError(asyncContext, new ZuulException(exception, FORWARDING_ERROR, HttpStatus.BAD_GATEWAY.value(), exception.getMessage()));
+            } else {
+                sendError(asyncContext, new ZuulException(exception, FORWARDING_ERROR, HttpStatus.INTERNAL_SERVER_ERROR.value(), exception.getMessage()));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.PoolStats;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.product.web.ConnectionPools;
+import org.zowe.apiml.security.ObservableConnectionManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Publish metrics of all connection pools of http clients (tag pool):
+ *  - apiml.gateway.connectionPool.leased, available, pending and max for the whole pool
+ *  - apiml.gateway.connectionPool.route.leased, available, pending and max per route (tag route), the gauges are
+ *    registered with the first lease of a connection to the route and removed after the route is closed in the pool
+ *  - apiml.gateway.connectionPool.lease, the timer of waiting for a connection
+ */
+@Component
+@RequiredArgsConstructor
+public class ConnectionPoolMetrics implements MeterBinder {
+
+    static final String PREFIX = "apiml.gateway.connectionPool.";
+
+    private final ConnectionPools connectionPools;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        connectionPools.forEachPool((name, connectionManager) -> new PoolMetrics(registry, name, connectionManager).bind());
+    }
+
+    private static List<Meter> registerGauges(
+        MeterRegistry registry, String prefix, Tags tags, ObservableConnectionManager connectionManager,
+        Function<ObservableConnectionManager, PoolStats> stats
+    ) {
+        return Arrays.asList(
+            registerGauge(registry, prefix + "leased", tags, connectionManager, stats, PoolStats::getLeased,
+                "Count of connections leased by requests"),
+            registerGauge(registry, prefix + "available", tags, connectionManager, stats, PoolStats::getAvailable,
+                "Count of idle connections"),
+            registerGauge(registry, prefix + "pending", tags, connectionManager, stats, PoolStats::getPending,
+                "Count of requests waiting for a connection"),
+            registerGauge(registry, prefix + "max", tags, connectionManager, stats, PoolStats::getMax,
+                "Maximum of connections")
+        );
+    }
+
+    private static Gauge registerGauge(
+        MeterRegistry registry, String name, Tags tags, ObservableConnectionManager connectionManager,
+        Function<ObservableConnectionManager, PoolStats> stats, ToIntFunction<PoolStats> value, String description
+    ) {
+        return Gauge.builder(name, connectionManager, x -> value.applyAsInt(stats.apply(x)))
+            .tags(tags)
+            .description(description)
+            .register(registry);
+    }
+
+    @RequiredArgsConstructor
+    static class PoolMetrics implements ObservableConnectionManager.LeaseListener {
+
+        private final MeterRegistry registry;
+        private final String name;
+        private final ObservableConnectionManager connectionManager;
+
+        private final Map<HttpRoute, List<Meter>> routeMeters = new ConcurrentHashMap<>();
+        private Timer leaseTimer;
+
+        void bind() {
+            registerGauges(registry, PREFIX, Tags.of("pool", name), connectionManager,
+                ObservableConnectionManager::getTotalStats);
+            leaseTimer = Timer.builder(PREFIX + "lease")
+                .tag("pool", name)
+                .description("Time of waiting for a connection from the pool")
+                .register(registry);
+            connectionManager.setLeaseListener(this);
+        }
+
+        @Override
+        public void leased(HttpRoute route, long waitNanos) {
+            leaseTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+            if (!routeMeters.containsKey(route)) {
+                addRoute(route);
+            }
+        }
+
+        private synchronized void addRoute(HttpRoute route) {
+            if (routeMeters.containsKey(route)) return;
+
+            // forget routes which are not in the pool anymore (the instance was removed or its connections expired)
+            final Set<HttpRoute> actualRoutes = new HashSet<>(connectionManager.getRoutes());
+            routeMeters.entrySet().removeIf(entry -> {
+                if (actualRoutes.contains(entry.getKey())) return false;
+                entry.getValue().forEach(registry::remove);
+                return true;
+            });
+
+            final Tags tags = Tags.of("pool", name, "route", route.getTargetHost().toURI());
+            routeMeters.put(route, registerGauges(registry, PREFIX + "route.", tags, connectionManager,
+                x -> x.getStats(route)));
+        }
+
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ZoneAvoidanceRule;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load balancing rule aware of the load of instances. For each instance (host:port) it tracks the count of
+ * outstanding requests and the exponentially weighted moving average (EWMA) of response times. Both values are fed
+ * by the execution listener of {@link GatewayRibbonLoadBalancingHttpClientImpl}.
+ *
+ * The instance is chosen by the power of two choices: two random reachable instances are compared and the one with
+ * the lower cost (EWMA * (outstanding requests + 1)) is used. An instance without any response yet is compared just by
+ * the outstanding requests. It avoids slow and overloaded instances (ie. an instance on a busy LPAR) without sending
+ * all requests to the best one.
+ *
+ * A failed request is not a response time: an instance which refuses connections fails fast and it would get the
+ * lowest cost. Therefore a failure raises the EWMA of the instance at once to a penalty (at least
+ * {@value #FAILURE_PENALTY_MILLIS} ms and twice the highest EWMA of response times of all instances), which decays by
+ * next responses.
+ *
+ * The rule is used only for services which ask for it in the metadata (apiml.loadBalancer.strategy: ewma), otherwise
+ * the default Ribbon's rule {@link ZoneAvoidanceRule} is used. The statistics are collected for all services.
+ */
+public class EwmaPowerOfTwoChoicesRule extends ZoneAvoidanceRule {
+
+    public static final String METADATA_KEY = "apiml.loadBalancer.strategy";
+    public static final String METADATA_VALUE = "ewma";
+
+    private static final long DEFAULT_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    static final long FAILURE_PENALTY_MILLIS = 1000;
+
+    private final long decayNanos;
+    private final Map<String, ServerLoad> loads = new ConcurrentHashMap<>();
+
+    public EwmaPowerOfTwoChoicesRule() {
+        this(DEFAULT_DECAY_NANOS);
+    }
+
+    /**
+     * @param decayNanos time after which an older response time has weight 1/e against a new one
+     */
+    EwmaPowerOfTwoChoicesRule(long decayNanos) {
+        this.decayNanos = decayNanos;
+    }
+
+    @Override
+    public Server choose(Object key) {
+        final ILoadBalancer lb = getLoadBalancer();
+        if (lb == null) return null;
+
+        final List<Server> servers = lb.getReachableServers();
+        if (servers.isEmpty() || !isEnabled(servers.get(0))) return super.choose(key);
+        if (servers.size() == 1) return servers.get(0);
+
+        removeUnknownServers(lb);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(servers.size());
+        int second = random.nextInt(servers.size() - 1);
+        if (second >= first) second++;
+
+        final Server a = servers.get(first);
+        final Server b = servers.get(second);
+        if (!isMeasured(a) || !isMeasured(b)) {
+            // without response times (new instance) compare just the outstanding requests
+            return getOutstanding(a) <= getOutstanding(b) ? a : b;
+        }
+        return getCost(a) <= getCost(b) ? a : b;
+    }
+
+    /**
+     * @param server instance of service
+     * @return true if the service of the instance asks for this rule in the metadata
+     */
+    static boolean isEnabled(Server server) {
+        if (!(server instanceof DiscoveryEnabledServer)) return false;
+
+        final Map<String, String> metadata = ((DiscoveryEnabledServer) server).getInstanceInfo().getMetadata();
+        return (metadata != null) && METADATA_VALUE.equalsIgnoreCase(metadata.get(METADATA_KEY));
+    }
+
+    /**
+     * Statistics are kept by host:port, Ribbon creates new {@link Server} objects after each update of the registry.
+     * Forget instances which are not registered anymore.
+     */
+    private void removeUnknownServers(ILoadBalancer lb) {
+        final List<Server> allServers = lb.getAllServers();
+        if (loads.size() <= allServers.size() * 2) return;
+
+        final Set<String> ids = new HashSet<>();
+        for (final Server server : allServers) {
+            ids.add(server.getId());
+        }
+        loads.keySet().retainAll(ids);
+    }
+
+    private boolean isMeasured(Server server) {
+        final ServerLoad load = loads.get(server.getId());
+        return (load != null) && load.measured;
+    }
+
+    double getCost(Server server) {
+        final ServerLoad load = loads.get(server.getId());
+        if (load == null) return 0;
+        return load.ewmaNanos * (load.outstanding.get() + 1);
+    }
+
+    int getOutstanding(Server server) {
+        final ServerLoad load = loads.get(server.getId());
+        return load == null ? 0 : load.outstanding.get();
+    }
+
+    /**
+     * Call when a request is sent to the instance
+     *
+     * @param server instance selected for the request
+     */
+    public void requestStarted(Server server) {
+        loads.computeIfAbsent(server.getId(), x -> new ServerLoad()).outstanding.incrementAndGet();
+    }
+
+    /**
+     * Call when the instance responded, for each call of {@link #requestStarted(Server)} (or use
+     * {@link #requestFailed(Server)})
+     *
+     * @param server instance of the request
+     * @param durationNanos duration of the request
+     */
+    public void requestFinished(Server server, long durationNanos) {
+        final ServerLoad load = loads.computeIfAbsent(server.getId(), x -> new ServerLoad());
+        load.outstanding.updateAndGet(x -> Math.max(0, x - 1));
+        load.update(Math.max(0, durationNanos), System.nanoTime(), decayNanos);
+    }
+
+    /**
+     * Call when the request failed (ie. the instance refused the connection or did not respond in time), for each call
+     * of {@link #requestStarted(Server)} (or use {@link #requestFinished(Server, long)})
+     *
+     * @param server instance of the request
+     */
+    public void requestFailed(Server server) {
+        final ServerLoad load = loads.computeIfAbsent(server.getId(), x -> new ServerLoad());
+        load.outstanding.updateAndGet(x -> Math.max(0, x - 1));
+        load.penalize(getFailurePenaltyNanos(), System.nanoTime());
+    }
+
+    /**
+     * Call when the request was cancelled by the client, for each call of {@link #requestStarted(Server)} (instead of
+     * {@link #requestFinished(Server, long)} or {@link #requestFailed(Server)}). The response time is not known.
+     *
+     * @param server instance of the request
+     */
+    public void requestCancelled(Server server) {
+        final ServerLoad load = loads.get(server.getId());
+        if (load != null) load.outstanding.updateAndGet(x -> Math.max(0, x - 1));
+    }
+
+    private double getFailurePenaltyNanos() {
+        double max = 0;
+        for (final ServerLoad load : loads.values()) {
+            max = Math.max(max, load.responseEwmaNanos);
+        }
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(FAILURE_PENALTY_MILLIS), max * 2);
+    }
+
+    private static class ServerLoad {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile double ewmaNanos;
+        // EWMA of response times only (without penalties of failures), it bounds the penalty
+        private volatile double responseEwmaNanos;
+        private volatile boolean measured;
+        private boolean responded;
+        private long lastUpdate;
+        private long lastResponse;
+
+        synchronized void update(long durationNanos, long now, long decayNanos) {
+            if (!measured) {
+                ewmaNanos = durationNanos;
+                measured = true;
+            } else {
+                final double weight = Math.exp(-Math.max(0, now - lastUpdate) / (double) decayNanos);
+                ewmaNanos = ewmaNanos * weight + durationNanos * (1.0 - weight);
+            }
+            lastUpdate = now;
+
+            if (!responded) {
+                responseEwmaNanos = durationNanos;
+                responded = true;
+            } else {
+                final double weight = Math.exp(-Math.max(0, now - lastResponse) / (double) decayNanos);
+                responseEwmaNanos = responseEwmaNanos * weight + durationNanos * (1.0 - weight);
+            }
+            lastResponse = now;
+        }
+
+        synchronized void penalize(double penaltyNanos, long now) {
+            ewmaNanos = Math.max(measured ? ewmaNanos : 0, penaltyNanos);
+            measured = true;
+            lastUpdate = now;
+        }
+
+    }
+
+}
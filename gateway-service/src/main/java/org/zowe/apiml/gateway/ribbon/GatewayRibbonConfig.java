@@ -11,18 +11,13 @@ package org.zowe.apiml.gateway.ribbon;
 
 import org.zowe.apiml.gateway.cache.ServiceCacheEvictor;
 import com.netflix.client.config.IClientConfig;
-import com.netflix.discovery.EurekaClient;
 import com.netflix.loadbalancer.*;
 import lombok.RequiredArgsConstructor;
-import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cache.CacheManager;
 import org.springframework.cloud.netflix.ribbon.PropertiesFactory;
 import org.springframework.cloud.netflix.ribbon.RibbonClientName;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -42,14 +37,27 @@ public class GatewayRibbonConfig {
     @Primary
     @Autowired
     public RibbonLoadBalancingHttpClient ribbonLoadBalancingHttpClient(
-        @Qualifier("secureHttpClientWithoutKeystore") CloseableHttpClient secureHttpClientWithoutKeystore,
+        ServiceHttpClients serviceHttpClients,
         IClientConfig config,
         ServerIntrospector serverIntrospector,
-        EurekaClient discoveryClient,
-        CacheManager cacheManager,
-        ApplicationContext applicationContext
+        InstanceInfoIndex instanceInfoIndex,
+        RequestHedging requestHedging
     ) {
-        return new GatewayRibbonLoadBalancingHttpClientImpl(secureHttpClientWithoutKeystore, config, serverIntrospector, discoveryClient, cacheManager, applicationContext);
+        return new GatewayRibbonLoadBalancingHttpClientImpl(
+            serviceHttpClients.getHttpClient(config.getClientName()), config, serverIntrospector, instanceInfoIndex,
+            requestHedging);
+    }
+
+    @Bean
+    @Primary
+    @Autowired
+    public IRule ribbonRule(IClientConfig config) {
+        if (this.propertiesFactory.isSet(IRule.class, ribbonClientName)) {
+            return this.propertiesFactory.get(IRule.class, config, ribbonClientName);
+        }
+        EwmaPowerOfTwoChoicesRule rule = new EwmaPowerOfTwoChoicesRule();
+        rule.initWithNiwsConfig(config);
+        return rule;
     }
 
     @Bean
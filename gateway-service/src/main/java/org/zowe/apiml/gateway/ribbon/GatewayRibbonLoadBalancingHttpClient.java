@@ -12,16 +12,18 @@ package org.zowe.apiml.gateway.ribbon;
 import java.net.URI;
 
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.ClientException;
 import com.netflix.loadbalancer.Server;
 
 import org.springframework.cloud.client.loadbalancer.ServiceInstanceChooser;
-import org.zowe.apiml.gateway.security.service.ServiceCacheEvict;
 
-public interface GatewayRibbonLoadBalancingHttpClient extends ServiceInstanceChooser, ServiceCacheEvict {
-
-    public InstanceInfo putInstanceInfo(String serviceId, String instanceId, InstanceInfo instanceInfo);
+public interface GatewayRibbonLoadBalancingHttpClient extends ServiceInstanceChooser {
 
     public InstanceInfo getInstanceInfo(String serviceId, String instanceId);
 
     public URI reconstructURIWithServer(Server server, URI request);
+
+    public Server getServerFromLoadBalancer(URI original, Object loadBalancerKey) throws ClientException;
+
+    public EwmaPowerOfTwoChoicesRule getLoadAwareRule();
 }
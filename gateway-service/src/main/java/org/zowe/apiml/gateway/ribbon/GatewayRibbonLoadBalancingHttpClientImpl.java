@@ -9,44 +9,46 @@
  */
 package org.zowe.apiml.gateway.ribbon;
 
-import org.zowe.apiml.gateway.config.CacheConfig;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
-import org.zowe.apiml.util.CacheUtils;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.client.config.CommonClientConfigKey;
 import com.netflix.client.config.IClientConfig;
-import com.netflix.discovery.EurekaClient;
-import com.netflix.discovery.shared.Application;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.ILoadBalancer;
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.reactive.ExecutionContext;
 import com.netflix.loadbalancer.reactive.ExecutionInfo;
 import com.netflix.loadbalancer.reactive.ExecutionListener;
 import com.netflix.loadbalancer.reactive.LoadBalancerCommand;
 import com.netflix.zuul.context.RequestContext;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpRequest;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpResponse;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
-import org.springframework.context.ApplicationContext;
-import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.annotation.PostConstruct;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_APPLID;
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_SCHEME;
 import static org.zowe.apiml.gateway.security.service.ServiceAuthenticationServiceImpl.AUTHENTICATION_COMMAND_KEY;
-import static org.springframework.cloud.netflix.ribbon.RibbonUtils.updateToSecureConnectionIfNeeded;
 
 @Slf4j
 public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancingHttpClient implements GatewayRibbonLoadBalancingHttpClient {
@@ -54,15 +56,11 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
     private static final String HTTPS = "https";
     private static final String HTTP = "http";
 
-    private final EurekaClient discoveryClient;
-    private final CacheManager cacheManager;
-    private final ApplicationContext applicationContext;
-    /**
-     * Instance to use AOP on method invocation - required for internal call to cache
-     */
-    private GatewayRibbonLoadBalancingHttpClient me;
+    private static final int MAX_URI_PREFIXES = 4096;
 
-    private static final String INSTANCE_INFO_BY_INSTANCE_ID = "instanceInfoByInstanceId";
+    private final InstanceInfoIndex instanceInfoIndex;
+    private final RequestHedging.Service hedging;
+    private final Map<String, UriPrefix> uriPrefixes = new ConcurrentHashMap<>();
 
     /**
      * Ribbon load balancer
@@ -70,46 +68,103 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
      * @param secureHttpClientWithoutKeystore   custom http client for our certificates
      * @param config             configuration details
      * @param serverIntrospector introspector
+     * @param instanceInfoIndex  index of instances in the registry
      */
     public GatewayRibbonLoadBalancingHttpClientImpl(
         CloseableHttpClient secureHttpClientWithoutKeystore,
         IClientConfig config,
         ServerIntrospector serverIntrospector,
-        EurekaClient discoveryClient,
-        CacheManager cacheManager,
-        ApplicationContext applicationContext
+        InstanceInfoIndex instanceInfoIndex
     ) {
-        super(secureHttpClientWithoutKeystore, config, serverIntrospector);
-        this.discoveryClient = discoveryClient;
-        this.cacheManager = cacheManager;
-        this.applicationContext = applicationContext;
+        this(secureHttpClientWithoutKeystore, config, serverIntrospector, instanceInfoIndex, null);
     }
 
-    @PostConstruct
-    public void afterPropertiesSet() {
-        me = applicationContext.getBean(GatewayRibbonLoadBalancingHttpClient.class);
+    /**
+     * Ribbon load balancer with hedged requests
+     *
+     * @param secureHttpClientWithoutKeystore   custom http client for our certificates
+     * @param config             configuration details
+     * @param serverIntrospector introspector
+     * @param instanceInfoIndex  index of instances in the registry
+     * @param requestHedging     hedged requests, null to turn them off
+     */
+    public GatewayRibbonLoadBalancingHttpClientImpl(
+        CloseableHttpClient secureHttpClientWithoutKeystore,
+        IClientConfig config,
+        ServerIntrospector serverIntrospector,
+        InstanceInfoIndex instanceInfoIndex,
+        RequestHedging requestHedging
+    ) {
+        super(secureHttpClientWithoutKeystore, config, serverIntrospector);
+        this.instanceInfoIndex = instanceInfoIndex;
+        this.hedging = requestHedging == null ? null : requestHedging.forService();
     }
 
+    /**
+     * Construct URI of the request to the selected instance. The scheme is given by the instance (http if the unsecure
+     * port is enabled, otherwise https), the host and port by the server. The prefix scheme://host:port is computed
+     * once per instance (again only if the instance was changed in the registry), the URI is then a concatenation of
+     * the prefix and the raw path, query and fragment of the original URI.
+     *
+     * @param server   selected instance
+     * @param original URI of the request
+     * @return URI to send
+     */
     @Override
     public URI reconstructURIWithServer(Server server, URI original) {
-        URI uriToSend;
-        URI updatedURI = updateToSecureConnectionIfNeeded(original, this.config, this.serverIntrospector, server);
-        final URI uriWithServer = super.reconstructURIWithServer(server, updatedURI);
-
-        // if instance is not secure, override with http:
         final Server.MetaInfo metaInfo = server.getMetaInfo();
         final InstanceInfo instanceInfo = getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+
+        final String rawUserInfo = original.getRawUserInfo();
+        final String prefix;
+        if (StringUtils.isEmpty(rawUserInfo)) {
+            prefix = getUriPrefix(server, instanceInfo);
+        } else {
+            prefix = createUriPrefix(server, instanceInfo, rawUserInfo);
+        }
+
+        final String rawPath = original.getRawPath();
+        final String rawQuery = original.getRawQuery();
+        final String rawFragment = original.getRawFragment();
+        final StringBuilder sb = new StringBuilder(prefix.length()
+            + (rawPath == null ? 0 : rawPath.length())
+            + (rawQuery == null ? 0 : rawQuery.length() + 1)
+            + (rawFragment == null ? 0 : rawFragment.length() + 1));
+        sb.append(prefix);
+        if (rawPath != null) sb.append(rawPath);
+        if (!StringUtils.isEmpty(rawQuery)) sb.append('?').append(rawQuery);
+        if (!StringUtils.isEmpty(rawFragment)) sb.append('#').append(rawFragment);
+        return URI.create(sb.toString());
+    }
+
+    private String getUriPrefix(Server server, InstanceInfo instanceInfo) {
+        final UriPrefix cached = uriPrefixes.get(server.getId());
+        if ((cached != null) && cached.isValid(server, instanceInfo)) return cached.getPrefix();
+
+        if (uriPrefixes.size() >= MAX_URI_PREFIXES) {
+            // instances are changing, forget the old ones
+            uriPrefixes.clear();
+        }
+        final String prefix = createUriPrefix(server, instanceInfo, null);
+        uriPrefixes.put(server.getId(), new UriPrefix(instanceInfo, server.getHost(), server.getPort(), prefix));
+        return prefix;
+    }
+
+    private String createUriPrefix(Server server, InstanceInfo instanceInfo, String rawUserInfo) {
+        final String scheme;
         if (instanceInfo.isPortEnabled(InstanceInfo.PortType.UNSECURE)) {
             log.debug("Resetting scheme to HTTP based on instance info of instance: " + instanceInfo.getId());
-            UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder.fromUri(uriWithServer).scheme(HTTP);
-            uriToSend = uriComponentsBuilder.build(true).toUri();
+            scheme = HTTP;
         } else {
-            uriToSend = uriWithServer;
-            if (uriWithServer.getScheme().equalsIgnoreCase("http")) {
-                uriToSend = UriComponentsBuilder.fromUri(uriWithServer).scheme(HTTPS).build(true).toUri();
-            }
+            scheme = HTTPS;
         }
-        return uriToSend;
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(scheme).append("://");
+        if (rawUserInfo != null) sb.append(rawUserInfo).append('@');
+        sb.append(server.getHost());
+        if (server.getPort() >= 0) sb.append(':').append(server.getPort());
+        return sb.toString();
     }
 
     @Override
@@ -126,68 +181,105 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
 
         final RequestConfig requestConfig = builder.build();
         final HttpUriRequest httpUriRequest = request.toRequest(requestConfig);
+        final Server server = getHedgedServer(httpUriRequest);
+        if (server != null) {
+            final HttpResponse httpResponse = hedging.execute(this.delegate, httpUriRequest,
+                () -> createHedgedRequest(request, requestConfig, server));
+            return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
+        }
+
         final HttpResponse httpResponse = this.delegate.execute(httpUriRequest);
         return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
     }
 
-    @Override
-    public void evictCacheService(String serviceId) {
-        CacheUtils.evictSubset(cacheManager, INSTANCE_INFO_BY_INSTANCE_ID, x -> StringUtils.equalsIgnoreCase((String) x.get(0), serviceId));
-    }
+    /**
+     * @param httpUriRequest request to send
+     * @return the selected instance if the request could be hedged (idempotent request without a body and service
+     * with turned on hedging), otherwise null
+     */
+    private Server getHedgedServer(HttpUriRequest httpUriRequest) {
+        if (hedging == null) return null;
+        if (!HttpGet.METHOD_NAME.equals(httpUriRequest.getMethod()) && !HttpHead.METHOD_NAME.equals(httpUriRequest.getMethod())) return null;
+        if (httpUriRequest instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) httpUriRequest).getEntity();
+            // the body could not be read twice
+            if ((entity != null) && (entity.getContentLength() != 0)) return null;
+        }
 
-    @Override
-    @CacheEvict(value = INSTANCE_INFO_BY_INSTANCE_ID, allEntries = true)
-    public void evictCacheAllService() {
-        // evict all records
+        final ILoadBalancer lb = getLoadBalancer();
+        if (lb == null) return null;
+        final List<Server> servers = lb.getReachableServers();
+        if ((servers.size() < 2) || !RequestHedging.isEnabled(servers.get(0))) return null;
+
+        final URI uri = httpUriRequest.getURI();
+        for (final Server server : servers) {
+            if (server.getHost().equalsIgnoreCase(uri.getHost()) && (server.getPort() == uri.getPort())) return server;
+        }
+        return null;
     }
 
     /**
-     * This methods write specific InstanceInfo into cache
+     * Create the same request to another instance of the service. The instance has to use the same authentication,
+     * the request contains the credentials for the selected one.
      *
-     * @param serviceId    serviceId of instance
-     * @param instanceId   ID of instance
-     * @param instanceInfo instanceInfo to store
-     * @return cached instanceInfo object
+     * @param request       original request
+     * @param requestConfig configuration of the request
+     * @param selected      instance selected by the load balancer
+     * @return request to another instance, or null if there is none
      */
-    @CachePut(value = INSTANCE_INFO_BY_INSTANCE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR_WITHOUT_LAST)
-    public InstanceInfo putInstanceInfo(String serviceId, String instanceId, InstanceInfo instanceInfo) {
-        return instanceInfo;
+    private HttpUriRequest createHedgedRequest(RibbonApacheHttpRequest request, RequestConfig requestConfig, Server selected) {
+        final List<Server> candidates = new ArrayList<>();
+        for (final Server server : getLoadBalancer().getReachableServers()) {
+            if (!server.getId().equals(selected.getId()) && isSameAuthentication(server, selected)) {
+                candidates.add(server);
+            }
+        }
+        if (candidates.isEmpty()) return null;
+
+        final Server server = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        return request.withNewUri(reconstructURIWithServer(server, request.getURI())).toRequest(requestConfig);
+    }
+
+    private boolean isSameAuthentication(Server a, Server b) {
+        final InstanceInfo ia = getInstanceInfo(a.getMetaInfo().getServiceIdForDiscovery(), a.getMetaInfo().getInstanceId());
+        final InstanceInfo ib = getInstanceInfo(b.getMetaInfo().getServiceIdForDiscovery(), b.getMetaInfo().getInstanceId());
+        if ((ia == null) || (ib == null)) return false;
+
+        final Map<String, String> ma = ia.getMetadata() == null ? Collections.emptyMap() : ia.getMetadata();
+        final Map<String, String> mb = ib.getMetadata() == null ? Collections.emptyMap() : ib.getMetadata();
+        return Objects.equals(ma.get(AUTHENTICATION_SCHEME), mb.get(AUTHENTICATION_SCHEME))
+            && Objects.equals(ma.get(AUTHENTICATION_APPLID), mb.get(AUTHENTICATION_APPLID));
     }
 
     /**
-     * Get the InstanceInfo by id. For searching is used serviceId. It method found another instances it will
-     * cache them for next using
+     * Get the InstanceInfo by id from the index of the registry
      *
      * @param serviceId  service to call
      * @param instanceId selected instance of service
      * @return instance with matching service and instanceId
      */
-    @Cacheable(value = INSTANCE_INFO_BY_INSTANCE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR)
     public InstanceInfo getInstanceInfo(String serviceId, String instanceId) {
-        InstanceInfo output = null;
-
-        Application application = discoveryClient.getApplication(serviceId);
-        if (application == null) return null;
-
-        for (final InstanceInfo instanceInfo : application.getInstances()) {
-            if (StringUtils.equals(instanceId, instanceInfo.getInstanceId())) {
-                // found instance, store it for output
-                output = instanceInfo;
-            }
+        return instanceInfoIndex.get(serviceId, instanceId);
+    }
 
-            /*
-             * Getting all instance is pretty heavy, cache them, therefor it is very probably, nex using of service
-             * will use different instance and need to find it too.
-             */
-            me.putInstanceInfo(serviceId, instanceInfo.getInstanceId(), instanceInfo);
+    /**
+     * @return rule of the load balancer if it collects the load of instances, otherwise null
+     */
+    @Override
+    public EwmaPowerOfTwoChoicesRule getLoadAwareRule() {
+        final ILoadBalancer lb = getLoadBalancer();
+        if (lb instanceof BaseLoadBalancer && ((BaseLoadBalancer) lb).getRule() instanceof EwmaPowerOfTwoChoicesRule) {
+            return (EwmaPowerOfTwoChoicesRule) ((BaseLoadBalancer) lb).getRule();
         }
-        return output;
+        return null;
     }
 
     @Override
     protected void customizeLoadBalancerCommandBuilder(RibbonApacheHttpRequest request, IClientConfig config, LoadBalancerCommand.Builder<RibbonApacheHttpResponse> builder) {
         super.customizeLoadBalancerCommandBuilder(request, config, builder);
 
+        final EwmaPowerOfTwoChoicesRule loadAwareRule = getLoadAwareRule();
+
         /*
          * add into builder listener to work with request immediately when instance if selected
          * it is helpful for selecting {@org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand} in
@@ -196,6 +288,10 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
          */
         builder.withListeners(Collections.singletonList(new ExecutionListener<Object, RibbonApacheHttpResponse>() {
 
+            // start of the current attempt, attempts (retries) of one request are sequential
+            private Server server;
+            private long start;
+
             /**
              * This method update current request by added values on sending in load balancer. It is used at least
              * for service authentication.
@@ -225,7 +321,7 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
                 if (cmd != null) {
                     // in context is a command, it means update of authentication is waiting for select an instance
                     final Server.MetaInfo metaInfo = info.getServer().getMetaInfo();
-                    final InstanceInfo instanceInfo = me.getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
+                    final InstanceInfo instanceInfo = getInstanceInfo(metaInfo.getServiceIdForDiscovery(), metaInfo.getInstanceId());
                     try {
                         cmd.apply(instanceInfo);
                     } catch (Exception e) {
@@ -233,24 +329,62 @@ public class GatewayRibbonLoadBalancingHttpClientImpl extends RibbonLoadBalancin
                     }
                     updateRequestByZuulChanges(context);
                 }
+
+                if (loadAwareRule != null) {
+                    server = info.getServer();
+                    start = System.nanoTime();
+                    loadAwareRule.requestStarted(server);
+                }
+            }
+
+            /**
+             * Feed the load aware rule with the end of the attempt, a failed attempt is penalized instead of its
+             * response time (failing instance would look as the fastest one)
+             */
+            private void finished(boolean failed) {
+                if (server != null) {
+                    if (failed) {
+                        loadAwareRule.requestFailed(server);
+                    } else {
+                        loadAwareRule.requestFinished(server, System.nanoTime() - start);
+                    }
+                    server = null;
+                }
             }
 
             @Override
             public void onExceptionWithServer(ExecutionContext<Object> context, Throwable exception, ExecutionInfo info) {
-                // dont needed yet
+                finished(true);
             }
 
             @Override
             public void onExecutionSuccess(ExecutionContext<Object> context, RibbonApacheHttpResponse response, ExecutionInfo info) {
-                // dont needed yet
+                finished(false);
             }
 
             @Override
             public void onExecutionFailed(ExecutionContext<Object> context, Throwable finalException, ExecutionInfo info) {
-                // dont needed yet
+                finished(true);
             }
         }));
         builder.withExecutionContext(new ExecutionContext<Object>(request, config, config, null));
     }
 
+    /**
+     * Prefix of URIs (scheme://host:port) for one instance, it is valid until the instance is changed in the registry
+     */
+    @Value
+    private static class UriPrefix {
+
+        private final InstanceInfo instanceInfo;
+        private final String host;
+        private final int port;
+        private final String prefix;
+
+        boolean isValid(Server server, InstanceInfo currentInstanceInfo) {
+            return (instanceInfo == currentInstanceInfo) && (port == server.getPort()) && host.equals(server.getHost());
+        }
+
+    }
+
 }
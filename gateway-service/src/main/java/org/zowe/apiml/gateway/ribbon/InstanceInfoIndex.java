@@ -0,0 +1,114 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEvent;
+import com.netflix.discovery.EurekaEventListener;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import lombok.Value;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of instances in the local registry of discovery client by (serviceId, instanceId). The local registry is
+ * changed only by fetching from discovery service, therefore the index is rebuilt after each fetch
+ * ({@link CacheRefreshedEvent}) and it is immutable between them. Reading is without any lock.
+ *
+ * If an instance is not in the index (the registry was changed, but the event was not processed yet), it is looked
+ * up directly in the registry.
+ */
+@Component
+public class InstanceInfoIndex implements EurekaEventListener {
+
+    private final EurekaClient discoveryClient;
+
+    private volatile Map<String, Entry[]> byInstanceId = Collections.emptyMap();
+
+    public InstanceInfoIndex(EurekaClient discoveryClient) {
+        this.discoveryClient = discoveryClient;
+        discoveryClient.registerEventListener(this);
+        rebuild();
+    }
+
+    @Override
+    public void onEvent(EurekaEvent event) {
+        if (event instanceof CacheRefreshedEvent) {
+            rebuild();
+        }
+    }
+
+    void rebuild() {
+        final Applications applications = discoveryClient.getApplications();
+        if (applications == null) {
+            byInstanceId = Collections.emptyMap();
+            return;
+        }
+
+        final Map<String, Entry[]> index = new HashMap<>();
+        for (final Application application : applications.getRegisteredApplications()) {
+            for (final InstanceInfo instanceInfo : application.getInstances()) {
+                final Entry entry = new Entry(application.getName(), instanceInfo);
+                // instance IDs are unique in the service only, usually there is just one entry
+                index.merge(instanceInfo.getInstanceId(), new Entry[] {entry}, InstanceInfoIndex::concat);
+            }
+        }
+        byInstanceId = index;
+    }
+
+    private static Entry[] concat(Entry[] a, Entry[] b) {
+        final Entry[] output = new Entry[a.length + b.length];
+        System.arraycopy(a, 0, output, 0, a.length);
+        System.arraycopy(b, 0, output, a.length, b.length);
+        return output;
+    }
+
+    /**
+     * @param serviceId  service ID (case insensitive)
+     * @param instanceId ID of instance
+     * @return instance with matching service and instanceId, null if there is no such instance
+     */
+    public InstanceInfo get(String serviceId, String instanceId) {
+        final Entry[] entries = byInstanceId.get(instanceId);
+        if (entries != null) {
+            for (final Entry entry : entries) {
+                if (StringUtils.equalsIgnoreCase(serviceId, entry.getServiceId())) return entry.getInstanceInfo();
+            }
+        }
+
+        return find(serviceId, instanceId);
+    }
+
+    private InstanceInfo find(String serviceId, String instanceId) {
+        final Application application = discoveryClient.getApplication(serviceId);
+        if (application == null) return null;
+
+        for (final InstanceInfo instanceInfo : application.getInstances()) {
+            if (StringUtils.equals(instanceId, instanceInfo.getInstanceId())) return instanceInfo;
+        }
+        return null;
+    }
+
+    @Value
+    private static class Entry {
+
+        private final String serviceId;
+        private final InstanceInfo instanceInfo;
+
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests: if an idempotent request (GET, HEAD) is not answered within the 95th percentile of response times
+ * of the service, the same request is sent to another instance. The first response is used and the other request is
+ * aborted. It cuts the tail latency caused by a stalled instance (GC pause, busy LPAR).
+ *
+ * Hedging is used only for services which ask for it in the metadata (apiml.hedging.enabled: true). The hedged
+ * requests are limited by a budget: each request of the service adds apiml.gateway.hedging.budgetPercent / 100 of a
+ * hedged request, so the extra load on the service is never higher than this percentage.
+ *
+ * The state (response times and budget) is kept per service, see {@link #forService()}.
+ */
+@Slf4j
+@Component
+public class RequestHedging {
+
+    public static final String METADATA_KEY = "apiml.hedging.enabled";
+
+    static final int LATENCY_SAMPLES = 1024;
+    static final int MIN_SAMPLES = 100;
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    // budget is counted in hundredths of a request, at most MAX_BURST hedged requests can be saved
+    private static final long HEDGE_COST = 100;
+    private static final long MAX_BURST = 10;
+
+    private final int budgetPercent;
+    private final long minDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
+
+    public RequestHedging(
+        @Value("${apiml.gateway.hedging.budgetPercent:5}") int budgetPercent,
+        @Value("${apiml.gateway.hedging.minDelayMillis:20}") long minDelayMillis
+    ) {
+        this.budgetPercent = Math.max(0, budgetPercent);
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("hedging-scheduler-"));
+        this.executor = Executors.newCachedThreadPool(daemonThreads("hedging-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param server instance of service
+     * @return true if the service of the instance asks for hedging in the metadata
+     */
+    static boolean isEnabled(Server server) {
+        if (!(server instanceof DiscoveryEnabledServer)) return false;
+
+        final Map<String, String> metadata = ((DiscoveryEnabledServer) server).getInstanceInfo().getMetadata();
+        return (metadata != null) && Boolean.parseBoolean(metadata.get(METADATA_KEY));
+    }
+
+    /**
+     * @return new state of hedging for one service
+     */
+    public Service forService() {
+        return new Service();
+    }
+
+    private static void close(HttpResponse response) {
+        if (response instanceof Closeable) {
+            try {
+                ((Closeable) response).close();
+            } catch (IOException e) {
+                log.debug("Cannot close response", e);
+            }
+        }
+    }
+
+    /**
+     * Response times and budget of hedging of one service
+     */
+    public class Service {
+
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong budget = new AtomicLong();
+        private volatile long p95Nanos = -1;
+
+        void recordLatency(long durationNanos) {
+            final long count = samples.incrementAndGet();
+            latencies[(int) ((count - 1) % LATENCY_SAMPLES)] = durationNanos;
+            if ((count >= MIN_SAMPLES) && ((count % RECOMPUTE_INTERVAL == 0) || (p95Nanos < 0))) {
+                final long[] sorted = Arrays.copyOf(latencies, (int) Math.min(count, LATENCY_SAMPLES));
+                Arrays.sort(sorted);
+                p95Nanos = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+            }
+        }
+
+        long getSampleCount() {
+            return samples.get();
+        }
+
+        /**
+         * @return delay of the hedged request, -1 if there are not enough response times of the service yet
+         */
+        long getDelayNanos() {
+            final long p95 = p95Nanos;
+            return p95 < 0 ? -1 : Math.max(p95, minDelayNanos);
+        }
+
+        private void deposit() {
+            budget.updateAndGet(x -> Math.min(x + budgetPercent, MAX_BURST * HEDGE_COST));
+        }
+
+        private void refund() {
+            budget.updateAndGet(x -> Math.min(x + HEDGE_COST, MAX_BURST * HEDGE_COST));
+        }
+
+        boolean withdraw() {
+            long current;
+            do {
+                current = budget.get();
+                if (current < HEDGE_COST) return false;
+            } while (!budget.compareAndSet(current, current - HEDGE_COST));
+            return true;
+        }
+
+        /**
+         * Execute the request, if it takes longer than {@link #getDelayNanos()} and the budget allows it, the hedged
+         * request is sent too and the first response is returned.
+         *
+         * @param httpClient client to send requests
+         * @param request    request to the selected instance
+         * @param hedge      supplier of the same request to another instance, it returns null if there is none
+         * @return the first response
+         * @throws IOException the request failed (the hedged request is aborted then)
+         */
+        public HttpResponse execute(HttpClient httpClient, HttpUriRequest request, Supplier<HttpUriRequest> hedge) throws IOException {
+            deposit();
+            final long delayNanos = getDelayNanos();
+            final long start = System.nanoTime();
+            if (delayNanos < 0) {
+                final HttpResponse response = httpClient.execute(request);
+                recordLatency(System.nanoTime() - start);
+                return response;
+            }
+
+            final Race race = new Race(httpClient, request, hedge, this, start);
+            final ScheduledFuture<?> timer = scheduler.schedule(race::startHedge, delayNanos, TimeUnit.NANOSECONDS);
+            try {
+                final HttpResponse response = httpClient.execute(request);
+                if (race.primaryWon()) {
+                    recordLatency(System.nanoTime() - start);
+                    return response;
+                }
+                // the hedged request was faster, the response of the primary one came before it was aborted
+                close(response);
+                return race.hedgeResponse;
+            } catch (IOException | RuntimeException e) {
+                // the primary request was aborted, because the hedged request won
+                if (!race.cancel()) return race.hedgeResponse;
+                throw e;
+            } finally {
+                timer.cancel(false);
+            }
+        }
+
+    }
+
+    /**
+     * Race of the primary and the hedged request, only one of them can win
+     */
+    private class Race {
+
+        private static final int WAITING = 0;
+        private static final int HEDGING = 1;
+        private static final int PRIMARY_WON = 2;
+        private static final int HEDGE_WON = 3;
+        private static final int CANCELLED = 4;
+
+        private final HttpClient httpClient;
+        private final HttpUriRequest primaryRequest;
+        private final Supplier<HttpUriRequest> hedgeSupplier;
+        private final Service service;
+        private final long primaryStart;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile HttpUriRequest hedgeRequest;
+        private volatile HttpResponse hedgeResponse;
+
+        Race(HttpClient httpClient, HttpUriRequest primaryRequest, Supplier<HttpUriRequest> hedgeSupplier, Service service, long primaryStart) {
+            this.httpClient = httpClient;
+            this.primaryRequest = primaryRequest;
+            this.hedgeSupplier = hedgeSupplier;
+            this.service = service;
+            this.primaryStart = primaryStart;
+        }
+
+        void startHedge() {
+            if (state.get() != WAITING) return;
+
+            final HttpUriRequest request = hedgeSupplier.get();
+            if (request == null) return;
+            if (!service.withdraw()) {
+                log.debug("Budget of hedged requests is exhausted, {} is not hedged", primaryRequest.getURI());
+                return;
+            }
+
+            hedgeRequest = request;
+            if (!state.compareAndSet(WAITING, HEDGING)) {
+                // the primary request finished in the meantime, the hedged request was not sent
+                service.refund();
+                return;
+            }
+
+            log.debug("Hedging request {} by {}", primaryRequest.getURI(), request.getURI());
+            executor.execute(() -> {
+                final long start = System.nanoTime();
+                try {
+                    final HttpResponse response = httpClient.execute(request);
+                    hedgeResponse = response;
+                    if (state.compareAndSet(HEDGING, HEDGE_WON)) {
+                        final long now = System.nanoTime();
+                        service.recordLatency(now - start);
+                        // the primary request would take at least this long, without it the percentile is biased down
+                        service.recordLatency(now - primaryStart);
+                        primaryRequest.abort();
+                    } else {
+                        close(response);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // the primary request is still running or it already won and aborted this one
+                    log.debug("Hedged request {} failed", request.getURI(), e);
+                }
+            });
+        }
+
+        /**
+         * @return true if the primary request won, false if the hedged request was faster
+         */
+        boolean primaryWon() {
+            return finish(PRIMARY_WON);
+        }
+
+        /**
+         * @return true if the hedging was cancelled, false if the hedged request already won
+         */
+        boolean cancel() {
+            return finish(CANCELLED);
+        }
+
+        private boolean finish(int result) {
+            while (true) {
+                final int current = state.get();
+                if (current == HEDGE_WON) return false;
+                if (state.compareAndSet(current, result)) {
+                    // abort the loser
+                    if (current == HEDGING) hedgeRequest.abort();
+                    return true;
+                }
+            }
+        }
+
+    }
+
+}
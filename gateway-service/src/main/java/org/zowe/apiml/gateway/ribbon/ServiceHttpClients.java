@@ -0,0 +1,133 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.product.web.ConnectionPools;
+import org.zowe.apiml.security.ConnectionPoolConfig;
+import org.zowe.apiml.security.HttpsFactory;
+import org.zowe.apiml.security.ObservableConnectionManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.*;
+
+/**
+ * Http clients to call services. By default all services share one client (secureHttpClientWithoutKeystore) with
+ * the global settings of the connection pool (apiml.connectionPool.*). A service can ask for its own pool with
+ * different settings in its metadata (keys apiml.connectionPool.*, missing values are taken from the global settings).
+ *
+ * The metadata are read when the service is called for the first time (Ribbon creates its client lazily), a change of
+ * them takes effect after restart of the gateway.
+ */
+@Slf4j
+@Component
+public class ServiceHttpClients {
+
+    static final String POOL_NAME_PREFIX = "service:";
+
+    private final EurekaClient discoveryClient;
+    private final CloseableHttpClient sharedHttpClient;
+    private final HttpsFactory httpsFactory;
+    private final ConnectionPoolConfig defaultConfig;
+    private final ConnectionPools connectionPools;
+
+    private final Map<String, CloseableHttpClient> dedicatedHttpClients = new ConcurrentHashMap<>();
+
+    public ServiceHttpClients(
+        EurekaClient discoveryClient,
+        @Qualifier("secureHttpClientWithoutKeystore") CloseableHttpClient sharedHttpClient,
+        @Qualifier("httpsFactoryWithoutKeystore") HttpsFactory httpsFactory,
+        ConnectionPoolConfig defaultConfig,
+        ConnectionPools connectionPools
+    ) {
+        this.discoveryClient = discoveryClient;
+        this.sharedHttpClient = sharedHttpClient;
+        this.httpsFactory = httpsFactory;
+        this.defaultConfig = defaultConfig;
+        this.connectionPools = connectionPools;
+    }
+
+    /**
+     * @param serviceId ID of service
+     * @return http client to call the service, a dedicated one if the service asks for its own connection pool
+     */
+    public CloseableHttpClient getHttpClient(String serviceId) {
+        final ConnectionPoolConfig config = getConnectionPoolConfig(serviceId);
+        if (config == null) return sharedHttpClient;
+
+        return dedicatedHttpClients.computeIfAbsent(serviceId.toLowerCase(), x -> {
+            log.debug("Creating connection pool of service {}: {}", serviceId, config);
+            final ObservableConnectionManager connectionManager = httpsFactory.createConnectionManager(config);
+            connectionPools.register(POOL_NAME_PREFIX + x, connectionManager);
+            return httpsFactory.createSecureHttpClient(connectionManager, config);
+        });
+    }
+
+    /**
+     * @param serviceId ID of service
+     * @return settings of connection pool by the metadata of the service, null if metadata does not contain any
+     */
+    ConnectionPoolConfig getConnectionPoolConfig(String serviceId) {
+        final Application application = discoveryClient.getApplication(serviceId);
+        if ((application == null) || application.getInstances().isEmpty()) return null;
+
+        final InstanceInfo instanceInfo = application.getInstances().get(0);
+        final Map<String, String> metadata = instanceInfo.getMetadata();
+        if (metadata == null) return null;
+
+        final ConnectionPoolConfig.ConnectionPoolConfigBuilder builder = defaultConfig.toBuilder();
+        boolean defined = false;
+        defined |= setValue(metadata, CONNECTION_POOL_MAX_TOTAL, x -> builder.maxTotal((int) x));
+        defined |= setValue(metadata, CONNECTION_POOL_MAX_PER_ROUTE, x -> builder.maxPerRoute((int) x));
+        defined |= setValue(metadata, CONNECTION_POOL_TIME_TO_LIVE, builder::timeToLive);
+        defined |= setValue(metadata, CONNECTION_POOL_IDLE_EVICTION_INTERVAL, builder::idleEvictionInterval);
+        defined |= setValue(metadata, CONNECTION_POOL_VALIDATE_AFTER_INACTIVITY, x -> builder.validateAfterInactivity((int) x));
+        return defined ? builder.build() : null;
+    }
+
+    private static boolean setValue(Map<String, String> metadata, String key, LongConsumer setter) {
+        final String value = metadata.get(key);
+        if (value == null) return false;
+
+        try {
+            final long number = Long.parseLong(value.trim());
+            if ((number < Integer.MIN_VALUE) || (number > Integer.MAX_VALUE)) throw new NumberFormatException();
+            setter.accept(number);
+            return true;
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value '{}' of metadata {}, the global setting is used", value, key);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (final CloseableHttpClient httpClient : dedicatedHttpClients.values()) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.debug("Cannot close http client", e);
+            }
+        }
+        dedicatedHttpClients.clear();
+    }
+
+}
@@ -9,9 +9,11 @@
  */
 package org.zowe.apiml.gateway.routing;
 
+import lombok.Value;
 import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+import org.zowe.apiml.product.routing.RouteSnapshot;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import org.zowe.apiml.product.routing.RoutedServices;
-import org.zowe.apiml.product.routing.RoutedServicesUser;
 import org.zowe.apiml.message.log.ApimlLogger;
 import org.zowe.apiml.product.logging.annotations.InjectApimlLogger;
 import org.springframework.cloud.client.ServiceInstance;
@@ -24,21 +26,33 @@ import org.springframework.util.StringUtils;
 
 import java.util.*;
 
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.ROUTES;
+
+/**
+ * Locator of routes to the services registered in discovery service. The routes are recomputed incrementally: the
+ * locator remembers the routing metadata of all instances of each service (fingerprint) and the metadata are parsed
+ * again only if they were changed. The state of all services is kept as an immutable map replaced at the end of each
+ * refresh. If any routing or address of an instance was changed, the routes and addresses of all services are
+ * published as a new snapshot in {@link RouteSnapshotRegistry} (unchanged services keep the same
+ * {@link RoutedServices}).
+ */
 class ApimlRouteLocator extends DiscoveryClientRouteLocator {
     private final DiscoveryClient discovery;
     private final ZuulProperties properties;
-    private final List<RoutedServicesUser> routedServicesUsers;
+    private final RouteSnapshotRegistry routeSnapshotRegistry;
     private final EurekaMetadataParser eurekaMetadataParser;
 
+    private volatile Map<String, ServiceRoutes> serviceRoutes = Collections.emptyMap();
+
     ApimlRouteLocator(String servletPath,
                       DiscoveryClient discovery,
                       ZuulProperties properties,
                       ServiceRouteMapper serviceRouteMapper,
-                      List<RoutedServicesUser> routedServicesUsers) {
+                      RouteSnapshotRegistry routeSnapshotRegistry) {
         super(servletPath, discovery, properties, serviceRouteMapper, null);
         this.discovery = discovery;
         this.properties = properties;
-        this.routedServicesUsers = routedServicesUsers;
+        this.routeSnapshotRegistry = routeSnapshotRegistry;
         this.eurekaMetadataParser = new EurekaMetadataParser();
     }
 
@@ -67,10 +81,13 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
 
             // Add routes for discovered services and itself by default
             List<String> services = this.discovery.getServices();
+            Map<String, ServiceRoutes> previousServiceRoutes = this.serviceRoutes;
+            Map<String, ServiceRoutes> currentServiceRoutes = new HashMap<>();
 
             String[] ignored = this.properties.getIgnoredServices()
                 .toArray(new String[0]);
             Set<String> removedRoutes = new HashSet<>();
+            boolean changed = false;
             for (String serviceId : services) {
                 // Ignore specifically ignored services and those that were manually
                 // configured
@@ -80,15 +97,19 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
                     return null;
                 }
 
-                RoutedServices routedServices = new RoutedServices();
-                List<String> keys = createRouteKeys(serviceInstances, routedServices, serviceId);
-                if (keys.isEmpty()) {
-                    keys.add("/" + mapRouteToService(serviceId) + "/**");
-                }
-
-                for (RoutedServicesUser routedServicesUser : routedServicesUsers) {
-                    routedServicesUser.addRoutedServices(serviceId, routedServices);
+                Set<Map<String, String>> fingerprint = createFingerprint(serviceInstances);
+                Set<String> addresses = createAddresses(serviceInstances);
+                ServiceRoutes routes = previousServiceRoutes.get(serviceId);
+                if ((routes == null) || !routes.getFingerprint().equals(fingerprint)) {
+                    // routing of service is new or changed, parse it again
+                    routes = createServiceRoutes(serviceInstances, serviceId, fingerprint, addresses);
+                    changed = true;
+                } else if (!routes.getAddresses().equals(addresses)) {
+                    routes = new ServiceRoutes(fingerprint, routes.getKeys(), routes.getRoutedServices(), addresses);
+                    changed = true;
                 }
+                currentServiceRoutes.put(serviceId, routes);
+                List<String> keys = routes.getKeys();
 
                 if (staticServices.containsKey(serviceId)
                     && staticServices.get(serviceId).getUrl() == null) {
@@ -107,6 +128,11 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
                     }
                 }
             }
+
+            this.serviceRoutes = Collections.unmodifiableMap(currentServiceRoutes);
+            if (changed || (previousServiceRoutes.size() != currentServiceRoutes.size())) {
+                publishSnapshot(currentServiceRoutes);
+            }
         }
 
         LinkedHashMap<String, ZuulProperties.ZuulRoute> values = new LinkedHashMap<>();
@@ -128,6 +154,59 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
         return values;
     }
 
+    private void publishSnapshot(Map<String, ServiceRoutes> currentServiceRoutes) {
+        Map<String, RoutedServices> routedServices = new HashMap<>();
+        Map<String, Set<String>> addresses = new HashMap<>();
+        for (Map.Entry<String, ServiceRoutes> entry : currentServiceRoutes.entrySet()) {
+            routedServices.put(entry.getKey(), entry.getValue().getRoutedServices());
+            addresses.put(entry.getKey(), entry.getValue().getAddresses());
+        }
+        routeSnapshotRegistry.publish(routedServices, addresses);
+    }
+
+    private Set<String> createAddresses(List<ServiceInstance> serviceInstances) {
+        Set<String> addresses = new HashSet<>();
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            if (serviceInstance.getHost() != null) {
+                addresses.add(RouteSnapshot.address(serviceInstance.getHost(), serviceInstance.getPort()));
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Create fingerprint of routing of the service. It contains routing metadata of all instances (duplicities and
+     * order are not relevant).
+     *
+     * @param serviceInstances the list of service instances
+     * @return set of routing metadata of instances
+     */
+    private Set<Map<String, String>> createFingerprint(List<ServiceInstance> serviceInstances) {
+        Set<Map<String, String>> fingerprint = new HashSet<>();
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            Map<String, String> routingMetadata = new HashMap<>();
+            if (serviceInstance.getMetadata() != null) {
+                for (Map.Entry<String, String> entry : serviceInstance.getMetadata().entrySet()) {
+                    if (entry.getKey().startsWith(ROUTES)) {
+                        routingMetadata.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            fingerprint.add(routingMetadata);
+        }
+        return fingerprint;
+    }
+
+    private ServiceRoutes createServiceRoutes(List<ServiceInstance> serviceInstances, String serviceId,
+                                              Set<Map<String, String>> fingerprint, Set<String> addresses) {
+        RoutedServices routedServices = new RoutedServices();
+        List<String> keys = createRouteKeys(serviceInstances, routedServices, serviceId);
+        if (keys.isEmpty()) {
+            keys.add("/" + mapRouteToService(serviceId) + "/**");
+        }
+        return new ServiceRoutes(fingerprint, Collections.unmodifiableList(keys), routedServices, addresses);
+    }
+
     /**
      * Parse route keys from the metadata and populate service routes
      *
@@ -153,4 +232,18 @@ class ApimlRouteLocator extends DiscoveryClientRouteLocator {
 
         return keys;
     }
+
+    /**
+     * Routes of one service computed from the routing metadata (fingerprint) and addresses (host:port) of its instances
+     */
+    @Value
+    private static class ServiceRoutes {
+
+        private final Set<Map<String, String>> fingerprint;
+        private final List<String> keys;
+        private final RoutedServices routedServices;
+        private final Set<String> addresses;
+
+    }
+
 }
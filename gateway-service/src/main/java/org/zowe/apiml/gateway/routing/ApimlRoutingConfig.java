@@ -9,15 +9,15 @@
  */
 package org.zowe.apiml.gateway.routing;
 
+import org.zowe.apiml.cache.TypedCacheManager;
 import org.zowe.apiml.gateway.filters.pre.*;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.gateway.filters.post.ConvertAuthTokenInUriToCookieFilter;
 import org.zowe.apiml.gateway.filters.post.PageRedirectionFilter;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
-import org.zowe.apiml.gateway.ws.WebSocketProxyServerHandler;
 import org.zowe.apiml.product.gateway.GatewayConfigProperties;
-import org.zowe.apiml.product.routing.RoutedServicesUser;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
@@ -26,15 +26,17 @@ import org.springframework.cloud.netflix.zuul.filters.discovery.ServiceRouteMapp
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Configuration
 public class ApimlRoutingConfig {
 
     @Bean
-    public LocationFilter locationFilter() {
-        return new LocationFilter();
+    public RouteSnapshotRegistry routeSnapshotRegistry() {
+        return new RouteSnapshotRegistry();
+    }
+
+    @Bean
+    public LocationFilter locationFilter(RouteSnapshotRegistry routeSnapshotRegistry) {
+        return new LocationFilter(routeSnapshotRegistry);
     }
 
     @Bean
@@ -67,9 +69,10 @@ public class ApimlRoutingConfig {
 
     @Bean
     @Autowired
-    public PageRedirectionFilter pageRedirectionFilter(DiscoveryClient discovery,
-                                                       GatewayConfigProperties gatewayConfigProperties) {
-        return new PageRedirectionFilter(discovery, gatewayConfigProperties);
+    public PageRedirectionFilter pageRedirectionFilter(GatewayConfigProperties gatewayConfigProperties,
+                                                       RouteSnapshotRegistry routeSnapshotRegistry,
+                                                       TypedCacheManager typedCacheManager) {
+        return new PageRedirectionFilter(gatewayConfigProperties, routeSnapshotRegistry, typedCacheManager);
     }
 
     @Bean
@@ -83,14 +86,9 @@ public class ApimlRoutingConfig {
     public DiscoveryClientRouteLocator discoveryClientRouteLocator(DiscoveryClient discovery,
                                                                    ZuulProperties zuulProperties,
                                                                    ServiceRouteMapper serviceRouteMapper,
-                                                                   WebSocketProxyServerHandler webSocketProxyServerHandler,
-                                                                   PageRedirectionFilter pageRedirectionFilter) {
-        List<RoutedServicesUser> routedServicesUsers = new ArrayList<>();
-        routedServicesUsers.add(locationFilter());
-        routedServicesUsers.add(webSocketProxyServerHandler);
-        routedServicesUsers.add(pageRedirectionFilter);
+                                                                   RouteSnapshotRegistry routeSnapshotRegistry) {
         zuulProperties.setDecodeUrl(false);
 
-        return new ApimlRouteLocator("", discovery, zuulProperties, serviceRouteMapper, routedServicesUsers);
+        return new ApimlRouteLocator("", discovery, zuulProperties, serviceRouteMapper, routeSnapshotRegistry);
     }
 }
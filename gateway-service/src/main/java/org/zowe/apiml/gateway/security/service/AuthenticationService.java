@@ -9,34 +9,27 @@
  */
 package org.zowe.apiml.gateway.security.service;
 
+import org.zowe.apiml.gateway.security.service.token.InvalidatedTokenStore;
+import org.zowe.apiml.gateway.security.service.token.InvalidationBroadcaster;
+import org.zowe.apiml.gateway.security.service.token.JwtTokenIssuer;
+import org.zowe.apiml.gateway.security.service.token.JwtValidationCache;
+import org.zowe.apiml.gateway.security.service.token.TokenContext;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 import org.zowe.apiml.security.common.token.TokenExpireException;
 import org.zowe.apiml.security.common.token.TokenNotValidException;
 import org.zowe.apiml.constants.ApimlConstants;
-import org.zowe.apiml.util.EurekaUtils;
-import com.netflix.appinfo.InstanceInfo;
-import com.netflix.discovery.EurekaClient;
-import com.netflix.discovery.shared.Application;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
+import com.netflix.zuul.context.RequestContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.StringUtils;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.annotation.EnableAspectJAutoProxy;
-import org.springframework.context.annotation.Scope;
-import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import javax.annotation.PostConstruct;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
@@ -47,29 +40,20 @@ import java.util.*;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Scope(proxyMode = ScopedProxyMode.TARGET_CLASS)
-@EnableAspectJAutoProxy(proxyTargetClass = true)
 public class AuthenticationService {
-    private static final String LTPA_CLAIM_NAME = "ltpa";
-    private static final String DOMAIN_CLAIM_NAME = "dom";
+    private static final String LTPA_CLAIM_NAME = JwtTokenIssuer.LTPA_CLAIM_NAME;
+    private static final String DOMAIN_CLAIM_NAME = JwtTokenIssuer.DOMAIN_CLAIM_NAME;
 
-    private final ApplicationContext applicationContext;
     private final AuthConfigurationProperties authConfigurationProperties;
     private final JwtSecurityInitializer jwtSecurityInitializer;
-    private final EurekaClient discoveryClient;
-    private final RestTemplate restTemplate;
-
-    // to force calling inside methods with aspects - ie. ehCache aspect
-    private AuthenticationService meAsProxy;
-
-    @PostConstruct
-    public void afterPropertiesSet() {
-        meAsProxy = applicationContext.getBean(AuthenticationService.class);
-    }
+    private final JwtValidationCache jwtValidationCache;
+    private final InvalidatedTokenStore invalidatedTokenStore;
+    private final InvalidationBroadcaster invalidationBroadcaster;
+    private final JwtTokenIssuer jwtTokenIssuer;
 
     /**
      * Create the JWT token and set the LTPA token, the expiration time, the domain, the subject, the date of issue, the issuer and the id.
-     * Sign the token with HMAC SHA512 algorithm, using the secret key
+     * Sign the token with the algorithm and the key from {@link JwtSecurityInitializer}, see {@link JwtTokenIssuer}
      *
      * @param username  the username
      * @param domain    the domain
@@ -80,16 +64,7 @@ public class AuthenticationService {
         long now = System.currentTimeMillis();
         long expiration = calculateExpiration(now, username);
 
-        return Jwts.builder()
-            .setSubject(username)
-            .claim(DOMAIN_CLAIM_NAME, domain)
-            .claim(LTPA_CLAIM_NAME, ltpaToken)
-            .setIssuedAt(new Date(now))
-            .setExpiration(new Date(expiration))
-            .setIssuer(authConfigurationProperties.getTokenProperties().getIssuer())
-            .setId(UUID.randomUUID().toString())
-            .signWith(jwtSecurityInitializer.getSignatureAlgorithm(), jwtSecurityInitializer.getJwtSecret())
-            .compact();
+        return jwtTokenIssuer.createJwtToken(username, domain, ltpaToken, now, expiration);
     }
 
     /**
@@ -97,46 +72,101 @@ public class AuthenticationService {
      * - on logout phase (distribute = true)
      * - from another gateway instance to notify about change (distribute = false)
      *
+     * The token is stored in {@link InvalidatedTokenStore} until its expiration. Expired or not valid token cannot be
+     * used anymore, therefor it is not stored. The invalidation of token which was already invalidated is not
+     * distributed again. The distribution is asynchronous, see {@link InvalidationBroadcaster}.
+     *
      * @param jwtToken   token to invalidated
      * @param distribute distribute invalidation to another instances?
      * @return state of invalidate (true - token was invalidated)
      */
-    @CacheEvict(value = "validationJwtToken", key = "#jwtToken")
-    @Cacheable(value = "invalidatedJwtTokens", key = "#jwtToken", condition = "#jwtToken != null")
     public Boolean invalidateJwtToken(String jwtToken, boolean distribute) {
+        final long expiration;
+        try {
+            expiration = getExpiration(jwtToken);
+        } catch (TokenExpireException | TokenNotValidException e) {
+            // token cannot be used anymore, there is nothing to invalidate
+            return Boolean.TRUE;
+        }
+
+        if (!invalidatedTokenStore.invalidate(jwtToken, expiration)) {
+            // token was already invalidated
+            return Boolean.TRUE;
+        }
+        jwtValidationCache.invalidate(jwtToken);
+
         /*
-         * until ehCache is not distributed, send to other instances invalidation request
+         * the store is not distributed, send to other instances invalidation request (asynchronously)
          */
         if (distribute) {
-            final Application application = discoveryClient.getApplication("gateway");
-            // wrong state, gateway have to exists (at least this current instance), return false like unsuccessful
-            if (application == null) return Boolean.FALSE;
-
-            final String myInstanceId = discoveryClient.getApplicationInfoManager().getInfo().getInstanceId();
-            for (final InstanceInfo instanceInfo : application.getInstances()) {
-                if (StringUtils.equals(myInstanceId, instanceInfo.getInstanceId())) continue;
-
-                final String url = EurekaUtils.getUrl(instanceInfo) + "/auth/invalidate/{}";
-                restTemplate.delete(url, jwtToken);
-            }
+            invalidationBroadcaster.broadcast(jwtToken, expiration);
         }
 
         return Boolean.TRUE;
     }
 
-    @Cacheable(value = "invalidatedJwtTokens", unless = "true", key = "#jwtToken", condition = "#jwtToken != null")
+    /**
+     * Check if the token was invalidated (ie. logout), see {@link InvalidatedTokenStore}
+     *
+     * @param jwtToken the JWT token
+     * @return true if the token was invalidated, otherwise false
+     */
     public Boolean isInvalidated(String jwtToken) {
-        return Boolean.FALSE;
+        return invalidatedTokenStore.isInvalidated(jwtToken);
     }
 
-    @Cacheable(value = "validationJwtToken", key = "#jwtToken", condition = "#jwtToken != null")
+    /**
+     * Return expiration of the token, if it is possible it uses the cached value of validation
+     *
+     * @param jwtToken the JWT token
+     * @return expiration of the token in millis
+     * @throws TokenExpireException   if the token is expired
+     * @throws TokenNotValidException if the token is not valid
+     */
+    private long getExpiration(String jwtToken) {
+        final JwtValidationCache.Entry entry = jwtValidationCache.get(jwtToken);
+        if (entry != null) return entry.getExpiration();
+
+        final Date expiration = getClaims(jwtToken).getExpiration();
+        if (expiration != null) return expiration.getTime();
+
+        return System.currentTimeMillis() + authConfigurationProperties.getTokenProperties().getExpirationInSeconds() * 1000L;
+    }
+
+    /**
+     * Validate the JWT token. The result is stored in {@link JwtValidationCache} until the token expires, next
+     * validation of the same token is just one lookup (signature and invalidation state together).
+     *
+     * @param jwtToken the JWT token
+     * @return the {@link TokenAuthentication} object containing username and valid JWT token
+     * @throws TokenExpireException   if the token is expired
+     * @throws TokenNotValidException if the token is not valid
+     */
     public TokenAuthentication validateJwtToken(String jwtToken) {
-        TokenAuthentication validTokenAuthentication = new TokenAuthentication(getClaims(jwtToken).getSubject(), jwtToken);
-        // without a proxy cache aspect is not working, thus it is necessary get bean from application context
-        final boolean authenticated = !meAsProxy.isInvalidated(jwtToken);
-        validTokenAuthentication.setAuthenticated(authenticated);
+        JwtValidationCache.Entry entry = jwtValidationCache.get(jwtToken);
+        if (entry == null) {
+            final Claims claims = getClaims(jwtToken);
+            final boolean invalidated = isInvalidated(jwtToken);
+            final Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return createTokenAuthentication(claims.getSubject(), jwtToken, invalidated);
+            }
+
+            entry = jwtValidationCache.put(jwtToken, claims.getSubject(), expiration.getTime(), invalidated);
+            // token could be invalidated between the check and put into the cache, verify it again
+            if (!invalidated && isInvalidated(jwtToken)) {
+                jwtValidationCache.invalidate(jwtToken);
+                return createTokenAuthentication(claims.getSubject(), jwtToken, true);
+            }
+        }
+
+        return createTokenAuthentication(entry.getSubject(), jwtToken, entry.isInvalidated());
+    }
 
-        return validTokenAuthentication;
+    private TokenAuthentication createTokenAuthentication(String subject, String jwtToken, boolean invalidated) {
+        final TokenAuthentication tokenAuthentication = new TokenAuthentication(subject, jwtToken);
+        tokenAuthentication.setAuthenticated(!invalidated);
+        return tokenAuthentication;
     }
 
     /**
@@ -158,7 +188,7 @@ public class AuthenticationService {
      * @return the query response
      */
     public QueryResponse parseJwtToken(String jwtToken) {
-        Claims claims = getClaims(jwtToken);
+        Claims claims = getRequestClaims(jwtToken);
 
         return new QueryResponse(
             claims.get(DOMAIN_CLAIM_NAME, String.class),
@@ -174,10 +204,42 @@ public class AuthenticationService {
      * 1. Authorization header
      * 2. Cookie
      *
+     * If the request is processed by ZUUL, the token is extracted just once and it is remembered in
+     * {@link TokenContext} for the rest of request.
+     *
      * @param request the http request
      * @return the JWT token
      */
     public Optional<String> getJwtTokenFromRequest(HttpServletRequest request) {
+        final TokenContext tokenContext = getTokenContext(request);
+        if (tokenContext != null) {
+            return Optional.ofNullable(tokenContext.getToken());
+        }
+
+        return extractJwtTokenFromRequest(request);
+    }
+
+    /**
+     * Return the token context of the request processed by ZUUL. It is created on the first call.
+     *
+     * @param request the http request
+     * @return the token context, null if the request is not the current request of ZUUL
+     */
+    private TokenContext getTokenContext(HttpServletRequest request) {
+        if (request == null) return null;
+
+        final RequestContext context = RequestContext.getCurrentContext();
+        if (context.getRequest() != request) return null;
+
+        TokenContext tokenContext = (TokenContext) context.get(TokenContext.TOKEN_CONTEXT_KEY);
+        if ((tokenContext == null) || (tokenContext.getRequest() != request)) {
+            tokenContext = new TokenContext(request, extractJwtTokenFromRequest(request).orElse(null));
+            context.set(TokenContext.TOKEN_CONTEXT_KEY, tokenContext);
+        }
+        return tokenContext;
+    }
+
+    private Optional<String> extractJwtTokenFromRequest(HttpServletRequest request) {
         Cookie[] cookies = request.getCookies();
         if (cookies == null) {
             return extractJwtTokenFromAuthorizationHeader(request.getHeader(HttpHeaders.AUTHORIZATION));
@@ -198,7 +260,7 @@ public class AuthenticationService {
      * @throws TokenNotValidException if the JWT token is not valid
      */
     public String getLtpaTokenFromJwtToken(String jwtToken) {
-        return getClaims(jwtToken).get(LTPA_CLAIM_NAME, String.class);
+        return getRequestClaims(jwtToken).get(LTPA_CLAIM_NAME, String.class);
     }
 
     /**
@@ -239,6 +301,30 @@ public class AuthenticationService {
         return expiration;
     }
 
+    /**
+     * Get claims of the token. If the token belongs to the current request of ZUUL, the claims are verified just once
+     * per request (see {@link TokenContext}).
+     *
+     * @param jwtToken the JWT token
+     * @return claims of the token
+     * @throws TokenExpireException   if the token is expired
+     * @throws TokenNotValidException if the token is not valid
+     */
+    private Claims getRequestClaims(String jwtToken) {
+        if (jwtToken != null) {
+            final RequestContext context = RequestContext.getCurrentContext();
+            final TokenContext tokenContext = (TokenContext) context.get(TokenContext.TOKEN_CONTEXT_KEY);
+            if ((tokenContext != null)
+                && (tokenContext.getRequest() == context.getRequest())
+                && jwtToken.equals(tokenContext.getToken())
+            ) {
+                return tokenContext.getClaims(this::getClaims);
+            }
+        }
+
+        return getClaims(jwtToken);
+    }
+
     private Claims getClaims(String jwtToken) {
         try {
             return Jwts.parser()
@@ -12,26 +12,24 @@ package org.zowe.apiml.gateway.security.service;
 import org.zowe.apiml.security.common.auth.Authentication;
 import org.zowe.apiml.security.common.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.token.QueryResponse;
-import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.cache.TypedCache;
+import org.zowe.apiml.cache.TypedCacheManager;
 import org.zowe.apiml.gateway.security.service.schema.AbstractAuthenticationScheme;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationSchemeFactory;
 import org.zowe.apiml.gateway.security.service.schema.ServiceAuthenticationService;
-import org.zowe.apiml.util.CacheUtils;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
 import com.netflix.zuul.context.RequestContext;
-import lombok.AllArgsConstructor;
+import lombok.Value;
 import org.apache.commons.lang.StringUtils;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_APPLID;
 import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_SCHEME;
@@ -49,28 +47,51 @@ import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_S
  * UniversalAuthenticationCommand, which is used in Ribbon loadbalancer. There is a listener which work with this value.
  * After load balancer will decide which instance will be used, universal command is called and update the request.
  *
- * All those operation are cached:
- *  - serviceAuthenticationByAuthentication
+ * All those operation are cached (in {@link TypedCache}, this bean is on the path of each request and it avoids costs
+ * of Spring cache proxy):
+ *  - serviceAuthenticationByServiceId
  *    - it caches command which can be deside only by serviceId (in pre filter)
  *  - serviceAuthenticationByAuthentication
  *    - it caches commands by {@link Authentication}, it could be in pre filters and
  *      also in loadbalancer
+ *
+ * The decision by serviceId itself does not depend on the user. The bean keeps an index serviceId -> authentication
+ * profile of the service (the authentication if it is the same on all instances or the mark to decide in load balancer).
+ * The profile is computed from the discovery client on the first request of the service and it is removed with each
+ * eviction of the service ({@link org.zowe.apiml.gateway.cache.ServiceCacheEvictor} calls it after the registry is
+ * refreshed). Therefore, on a cache miss (the key contains also JWT token) the decision is just a lookup in the index.
  */
 @Service
-@AllArgsConstructor
 public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationService {
 
     public static final String AUTHENTICATION_COMMAND_KEY = "zoweAuthenticationCommand";
 
-    private static final String CACHE_BY_SERVICE_ID = "serviceAuthenticationByServiceId";
-    private static final String CACHE_BY_AUTHENTICATION = "serviceAuthenticationByAuthentication";
+    public static final String CACHE_BY_SERVICE_ID = "serviceAuthenticationByServiceId";
+    public static final String CACHE_BY_AUTHENTICATION = "serviceAuthenticationByAuthentication";
 
     private final LoadBalancerAuthenticationCommand loadBalancerCommand = new LoadBalancerAuthenticationCommand();
 
+    private final Map<String, ServiceAuthentication> serviceAuthenticationIndex = new ConcurrentHashMap<>();
+
     private final EurekaClient discoveryClient;
     private final AuthenticationSchemeFactory authenticationSchemeFactory;
     private final AuthenticationService authenticationService;
-    private final CacheManager cacheManager;
+
+    private final TypedCache<ByServiceIdKey, AuthenticationCommand> cacheByServiceId;
+    private final TypedCache<ByAuthenticationKey, AuthenticationCommand> cacheByAuthentication;
+
+    public ServiceAuthenticationServiceImpl(
+        EurekaClient discoveryClient,
+        AuthenticationSchemeFactory authenticationSchemeFactory,
+        AuthenticationService authenticationService,
+        TypedCacheManager typedCacheManager
+    ) {
+        this.discoveryClient = discoveryClient;
+        this.authenticationSchemeFactory = authenticationSchemeFactory;
+        this.authenticationService = authenticationService;
+        this.cacheByServiceId = typedCacheManager.getCache(CACHE_BY_SERVICE_ID);
+        this.cacheByAuthentication = typedCacheManager.getCache(CACHE_BY_AUTHENTICATION);
+    }
 
     protected Authentication getAuthentication(InstanceInfo instanceInfo) {
         final Map<String, String> metadata = instanceInfo.getMetadata();
@@ -90,20 +111,43 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
     }
 
     @Override
-    @CacheEvict(value = CACHE_BY_AUTHENTICATION, condition = "#result != null && #result.isExpired()")
-    @Cacheable(CACHE_BY_AUTHENTICATION)
     public AuthenticationCommand getAuthenticationCommand(Authentication authentication, String jwtToken) throws AuthenticationException {
+        return cacheByAuthentication.compute(new ByAuthenticationKey(authentication, jwtToken), this::createCommandByAuthentication);
+    }
+
+    private AuthenticationCommand createCommandByAuthentication(ByAuthenticationKey key) throws AuthenticationException {
+        final Authentication authentication = key.getAuthentication();
+        final String jwtToken = key.getJwtToken();
         final AbstractAuthenticationScheme scheme = authenticationSchemeFactory.getSchema(authentication.getScheme());
         final QueryResponse queryResponse = authenticationService.parseJwtToken(jwtToken);
         return scheme.createCommand(authentication, queryResponse);
     }
 
     @Override
-    @CacheEvict(value = CACHE_BY_SERVICE_ID, condition = "#result != null && #result.isExpired()")
-    @Cacheable(value = CACHE_BY_SERVICE_ID, keyGenerator = CacheConfig.COMPOSITE_KEY_GENERATOR)
     public AuthenticationCommand getAuthenticationCommand(String serviceId, String jwtToken) throws AuthenticationException {
+        return cacheByServiceId.compute(new ByServiceIdKey(serviceId, jwtToken), this::createCommandByServiceId);
+    }
+
+    private AuthenticationCommand createCommandByServiceId(ByServiceIdKey key) throws AuthenticationException {
+        final String serviceId = key.getServiceId();
+        final String jwtToken = key.getJwtToken();
+        ServiceAuthentication serviceAuthentication = serviceAuthenticationIndex.get(serviceId);
+        if (serviceAuthentication == null) {
+            serviceAuthentication = serviceAuthenticationIndex.computeIfAbsent(serviceId, this::createServiceAuthentication);
+        }
+
+        // authentication of instances are different, it will be decided in load balancer
+        if (!serviceAuthentication.isUniform()) return loadBalancerCommand;
+
+        // if no instance exist or no metadata found, do nothing
+        if (serviceAuthentication.isEmpty()) return AuthenticationCommand.EMPTY;
+
+        return getAuthenticationCommand(serviceAuthentication.getAuthentication(), jwtToken);
+    }
+
+    protected ServiceAuthentication createServiceAuthentication(String serviceId) {
         final Application application = discoveryClient.getApplication(serviceId);
-        if (application == null) return AuthenticationCommand.EMPTY;
+        if (application == null) return ServiceAuthentication.EMPTY;
 
         final List<InstanceInfo> instances = application.getInstances();
 
@@ -116,20 +160,21 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
                 found = auth;
             } else if (!found.equals(auth)) {
                 // if next record is different, authentication cannot be determined before load balancer
-                return loadBalancerCommand;
+                return ServiceAuthentication.NOT_UNIFORM;
             }
         }
 
         // if no instance exist or no metadata found, do nothing
-        if (found == null || found.isEmpty()) return AuthenticationCommand.EMPTY;
+        if (found == null || found.isEmpty()) return ServiceAuthentication.EMPTY;
 
-        return getAuthenticationCommand(found, jwtToken);
+        return new ServiceAuthentication(found, true);
     }
 
     @Override
-    @CacheEvict(value = CACHE_BY_SERVICE_ID, allEntries = true)
     public void evictCacheAllService() {
         // evict all cached data accessible by serviceId
+        serviceAuthenticationIndex.clear();
+        cacheByServiceId.evictAll();
     }
 
     /**
@@ -140,7 +185,43 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
      */
     @Override
     public void evictCacheService(String serviceId) {
-        CacheUtils.evictSubset(cacheManager, CACHE_BY_SERVICE_ID, x -> StringUtils.equalsIgnoreCase((String) x.get(0), serviceId));
+        serviceAuthenticationIndex.keySet().removeIf(x -> StringUtils.equalsIgnoreCase(x, serviceId));
+        cacheByServiceId.evictIf(x -> StringUtils.equalsIgnoreCase(x.getServiceId(), serviceId));
+    }
+
+    /**
+     * Authentication profile of a service. If all instances of the service have the same authentication, it is
+     * uniform and the command can be created before load balancer.
+     */
+    @Value
+    protected static class ServiceAuthentication {
+
+        static final ServiceAuthentication EMPTY = new ServiceAuthentication(null, true);
+        static final ServiceAuthentication NOT_UNIFORM = new ServiceAuthentication(null, false);
+
+        private final Authentication authentication;
+        private final boolean uniform;
+
+        public boolean isEmpty() {
+            return authentication == null;
+        }
+
+    }
+
+    @Value
+    private static class ByServiceIdKey {
+
+        private final String serviceId;
+        private final String jwtToken;
+
+    }
+
+    @Value
+    private static class ByAuthenticationKey {
+
+        private final Authentication authentication;
+        private final String jwtToken;
+
     }
 
     public class UniversalAuthenticationCommand extends AuthenticationCommand {
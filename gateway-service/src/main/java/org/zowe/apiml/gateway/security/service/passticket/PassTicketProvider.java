@@ -0,0 +1,304 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.passticket;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import org.apache.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.passticket.AbstractIRRPassTicketException;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provider of PassTickets keyed by (userId, applId). Generation of PassTicket is a SAF call, it is expensive and it
+ * could take a long time. The provider:
+ *  - returns the last generated PassTicket until it expires (apiml.security.auth.passTicket.timeout)
+ *  - regenerates the PassTicket in background shortly before the expiration
+ *    (apiml.security.auth.passTicket.refreshAheadInSeconds), but only if the PassTicket was used meanwhile. Unused
+ *    PassTickets are forgotten.
+ *  - merges concurrent requests for the same key into one generation
+ *  - limits count of concurrent SAF calls (apiml.security.auth.passTicket.maxConcurrentGenerations), other
+ *    generations wait in the queue. The queue is bounded (apiml.security.auth.passTicket.maxQueuedGenerations) and
+ *    a request waits for its PassTicket at most apiml.security.auth.passTicket.generationTimeoutInSeconds, so slow
+ *    SAF calls cannot hold all threads of the gateway. In both cases {@link UnavailableException} is thrown.
+ *
+ * Metrics: apiml.gateway.passticket.generation (timer), apiml.gateway.passticket.failures,
+ * apiml.gateway.passticket.queue (count of waiting generations) and apiml.gateway.passticket.cached.
+ */
+@Slf4j
+@Component
+public class PassTicketProvider implements MeterBinder {
+
+    private final PassTicketService passTicketService;
+    private final AuthConfigurationProperties authConfigurationProperties;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder generationCount = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    private ThreadPoolExecutor generators;
+    private ScheduledExecutorService refresher;
+
+    public PassTicketProvider(PassTicketService passTicketService, AuthConfigurationProperties authConfigurationProperties) {
+        this.passTicketService = passTicketService;
+        this.authConfigurationProperties = authConfigurationProperties;
+    }
+
+    @PostConstruct
+    public void afterPropertiesSet() {
+        final int maxConcurrentGenerations = Math.max(1, authConfigurationProperties.getPassTicket().getMaxConcurrentGenerations());
+        final int maxQueuedGenerations = Math.max(1, authConfigurationProperties.getPassTicket().getMaxQueuedGenerations());
+        generators = new ThreadPoolExecutor(
+            maxConcurrentGenerations, maxConcurrentGenerations, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(maxQueuedGenerations), r -> createThread(r, "PassTicketProvider-Generator")
+        );
+        generators.allowCoreThreadTimeOut(true);
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> createThread(r, "PassTicketProvider-Refresh"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refresher != null) refresher.shutdownNow();
+        if (generators != null) generators.shutdownNow();
+    }
+
+    private static Thread createThread(Runnable runnable, String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Return valid PassTicket for the user and application. If there is no valid PassTicket, it is generated (in
+     * the case of concurrent requests just once).
+     *
+     * @param userId user ID
+     * @param applId APPLID of application
+     * @return PassTicket with its expiration
+     * @throws IRRPassTicketGenerationException if PassTicket cannot be generated
+     */
+    public Ticket get(String userId, String applId) throws IRRPassTicketGenerationException {
+        final Key key = new Key(userId, applId);
+
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            final Ticket ticket = entry.ticket;
+            if ((ticket != null) && !ticket.isExpired(System.currentTimeMillis())) {
+                entry.accessed = true;
+                return ticket;
+            }
+        }
+
+        // the new PassTicket is not marked as accessed, it is refreshed only if it is used again
+        return await(generate(key));
+    }
+
+    private Ticket await(CompletableFuture<Ticket> future) throws IRRPassTicketGenerationException {
+        final int timeout = authConfigurationProperties.getPassTicket().getGenerationTimeoutInSeconds();
+        try {
+            return future.get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // the generation continues, the PassTicket will be available for next requests
+            throw new UnavailableException("PassTicket was not generated in " + timeout + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for PassTicket", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IRRPassTicketGenerationException) throw (IRRPassTicketGenerationException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("Cannot generate PassTicket", cause);
+        }
+    }
+
+    private CompletableFuture<Ticket> generate(Key key) {
+        while (true) {
+            final Entry entry = entries.computeIfAbsent(key, x -> new Entry());
+            synchronized (entry) {
+                // the entry was removed meanwhile (failed generation), use a new one
+                if (entries.get(key) != entry) continue;
+
+                // concurrent requests wait for the same generation
+                if (entry.inFlight != null) return entry.inFlight;
+
+                final CompletableFuture<Ticket> future = new CompletableFuture<>();
+                entry.inFlight = future;
+                try {
+                    generators.execute(() -> runGeneration(key, entry, future));
+                } catch (RejectedExecutionException e) {
+                    failed(key, entry);
+                    future.completeExceptionally(new UnavailableException("Queue of PassTicket generations is full"));
+                }
+                return future;
+            }
+        }
+    }
+
+    /**
+     * Finish failed generation, the entry is kept only if it contains a PassTicket generated before.
+     */
+    private void failed(Key key, Entry entry) {
+        synchronized (entry) {
+            entry.inFlight = null;
+            if (entry.ticket == null) entries.remove(key, entry);
+        }
+    }
+
+    private void runGeneration(Key key, Entry entry, CompletableFuture<Ticket> future) {
+        final long start = System.nanoTime();
+        // validity of PassTicket starts before the SAF call, a slow generation must not prolong it
+        final long requested = System.currentTimeMillis();
+        try {
+            final String passTicket = passTicketService.generate(key.getUserId(), key.getApplId());
+            final Ticket ticket = new Ticket(passTicket, requested + authConfigurationProperties.getPassTicket().getTimeout() * 1000L);
+            synchronized (entry) {
+                entry.ticket = ticket;
+                entry.accessed = false;
+                entry.inFlight = null;
+            }
+            scheduleRefresh(key, entry, ticket, System.currentTimeMillis());
+            future.complete(ticket);
+        } catch (IRRPassTicketGenerationException | RuntimeException e) {
+            failureCount.increment();
+            failed(key, entry);
+            log.debug("Cannot generate PassTicket for user ID {} and APPLID {}: {}", key.getUserId(), key.getApplId(), e.getMessage());
+            future.completeExceptionally(e);
+        } finally {
+            generationNanos.add(System.nanoTime() - start);
+            generationCount.increment();
+        }
+    }
+
+    private void scheduleRefresh(Key key, Entry entry, Ticket ticket, long now) {
+        final long timeout = authConfigurationProperties.getPassTicket().getTimeout() * 1000L;
+        final long refreshAhead = Math.min(authConfigurationProperties.getPassTicket().getRefreshAheadInSeconds() * 1000L, timeout / 2);
+        final long delay = Math.max(0, ticket.getExpireAt() - refreshAhead - now);
+        try {
+            refresher.schedule(() -> refresh(key, entry, ticket), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // provider is stopped
+        }
+    }
+
+    private void refresh(Key key, Entry entry, Ticket ticket) {
+        if ((entries.get(key) != entry) || (entry.ticket != ticket)) return;
+
+        if (!entry.accessed) {
+            // PassTicket was not used, it is not necessary to keep it
+            entries.remove(key, entry);
+            return;
+        }
+
+        generate(key);
+    }
+
+    public long getGenerationCount() {
+        return generationCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public int getQueueDepth() {
+        return generators == null ? 0 : generators.getQueue().size();
+    }
+
+    public int getCachedCount() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("apiml.gateway.passticket.generation", this,
+            PassTicketProvider::getGenerationCount, x -> x.generationNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Generation of PassTickets (SAF calls)")
+            .register(registry);
+        FunctionCounter.builder("apiml.gateway.passticket.failures", this, PassTicketProvider::getFailureCount)
+            .description("Failed generations of PassTickets")
+            .register(registry);
+        Gauge.builder("apiml.gateway.passticket.queue", this, PassTicketProvider::getQueueDepth)
+            .description("Count of PassTicket generations waiting for a free SAF call")
+            .register(registry);
+        Gauge.builder("apiml.gateway.passticket.cached", this, PassTicketProvider::getCachedCount)
+            .description("Count of cached PassTickets")
+            .register(registry);
+    }
+
+    @Value
+    private static class Key {
+
+        private final String userId;
+        private final String applId;
+
+    }
+
+    private static class Entry {
+
+        private volatile Ticket ticket;
+        private volatile boolean accessed;
+        private CompletableFuture<Ticket> inFlight;
+
+    }
+
+    @Value
+    public static class Ticket {
+
+        private final String passTicket;
+        private final long expireAt;
+
+        public boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+
+    }
+
+    /**
+     * PassTicket cannot be generated now, because the queue of generations is full or the generation takes too long
+     */
+    public static class UnavailableException extends IRRPassTicketGenerationException {
+
+        private static final long serialVersionUID = 2383446329441513584L;
+
+        private final String reason;
+
+        public UnavailableException(String reason) {
+            super(AbstractIRRPassTicketException.ErrorCode.ERR_8_8_8);
+            this.reason = reason;
+        }
+
+        @Override
+        public String getMessage() {
+            return "Error on generation of PassTicket: " + reason;
+        }
+
+        @Override
+        public int getHttpStatus() {
+            return HttpStatus.SC_SERVICE_UNAVAILABLE;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counting Bloom filter over {@link TokenHash}. Positions of probes are derived from the hash itself (double hashing),
+ * there is no extra hashing. Counters allow to remove entries (ie. after expiration of the token). Answer false means
+ * the token was surely not added, answer true has to be verified in an exact structure.
+ *
+ * All operations are lock-free, counters are stored in {@link AtomicIntegerArray}.
+ */
+public class CountingBloomFilter {
+
+    private final AtomicIntegerArray counters;
+    private final int numberOfProbes;
+
+    /**
+     * @param expectedInsertions expected count of entries at the same time
+     * @param falsePositiveRate  required probability of false positive answer (0, 1)
+     */
+    public CountingBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) throw new IllegalArgumentException("Expected insertions has to be positive");
+        if ((falsePositiveRate <= 0) || (falsePositiveRate >= 1)) {
+            throw new IllegalArgumentException("False positive rate has to be in range (0, 1)");
+        }
+
+        final double ln2 = Math.log(2);
+        final int size = (int) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.counters = new AtomicIntegerArray(Math.max(size, 64));
+        this.numberOfProbes = Math.max(1, (int) Math.round((double) counters.length() / expectedInsertions * ln2));
+    }
+
+    private int index(TokenHash hash, int probe) {
+        final long combined = hash.getPart(1) + probe * hash.getPart(2);
+        return (int) ((combined & Long.MAX_VALUE) % counters.length());
+    }
+
+    public void add(TokenHash hash) {
+        for (int i = 0; i < numberOfProbes; i++) {
+            counters.incrementAndGet(index(hash, i));
+        }
+    }
+
+    /**
+     * Remove the hash from the filter. It is allowed to remove only previously added hashes.
+     *
+     * @param hash hash to remove
+     */
+    public void remove(TokenHash hash) {
+        for (int i = 0; i < numberOfProbes; i++) {
+            final int index = index(hash, i);
+            counters.getAndUpdate(index, x -> x > 0 ? x - 1 : 0);
+        }
+    }
+
+    public boolean mightContain(TokenHash hash) {
+        for (int i = 0; i < numberOfProbes; i++) {
+            if (counters.get(index(hash, i)) == 0) return false;
+        }
+        return true;
+    }
+
+    int getNumberOfProbes() {
+        return numberOfProbes;
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.gateway.config.CacheConfig;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store of invalidated (revoked) JWT tokens. It replaces the disk-persistent Ehcache cache invalidatedJwtTokens.
+ *
+ * The most common question is "is this token revoked?" with the answer "no". Therefor the store is fronted by
+ * {@link CountingBloomFilter}, for most of tokens the answer is just a few probes into memory. Only positive answer of
+ * the filter is verified in the exact set.
+ *
+ * The store is persisted as an append-only log (file invalidatedJwtTokens.log in apiml.cache.storage.location). Each
+ * record has fixed length: hash of token (4 longs) and the expiration of token (long). On start the log is loaded,
+ * expired records are skipped and the file is compacted. Expired tokens are also removed periodically, so the store
+ * does not grow across restarts.
+ */
+@Slf4j
+@Component
+public class InvalidatedTokenStore {
+
+    static final String LOG_FILE_NAME = "invalidatedJwtTokens.log";
+
+    private static final int RECORD_LENGTH = 5 * Long.BYTES;
+    private static final int EXPECTED_INSERTIONS = 10000;
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final long PURGE_INTERVAL_SECONDS = 60;
+
+    private final File logFile;
+    private final CountingBloomFilter filter = new CountingBloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+    private final Map<TokenHash, Long> invalidated = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService purgeExecutor;
+    private DataOutputStream output;
+
+    public InvalidatedTokenStore() {
+        this(new File(CacheConfig.getStorageLocation()));
+    }
+
+    public InvalidatedTokenStore(File directory) {
+        this.logFile = new File(directory, LOG_FILE_NAME);
+    }
+
+    @PostConstruct
+    public void afterPropertiesSet() {
+        load();
+        purgeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "InvalidatedTokenStore-Purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purgeExecutor.scheduleWithFixedDelay(this::purge, PURGE_INTERVAL_SECONDS, PURGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (purgeExecutor != null) purgeExecutor.shutdownNow();
+        closeOutput();
+    }
+
+    /**
+     * Check if token was invalidated
+     *
+     * @param jwtToken JWT token
+     * @return true if token was invalidated and it is not expired yet
+     */
+    public boolean isInvalidated(String jwtToken) {
+        if (jwtToken == null) return false;
+
+        final TokenHash hash = TokenHash.of(jwtToken);
+        if (!filter.mightContain(hash)) return false;
+
+        return invalidated.containsKey(hash);
+    }
+
+    /**
+     * Store token as invalidated until its expiration
+     *
+     * @param jwtToken   JWT token to invalidate
+     * @param expiration expiration of the token in millis
+     * @return true if the token was not invalidated before
+     */
+    public synchronized boolean invalidate(String jwtToken, long expiration) {
+        if (expiration <= System.currentTimeMillis()) return false;
+
+        final TokenHash hash = TokenHash.of(jwtToken);
+        if (invalidated.containsKey(hash)) return false;
+
+        // the filter first, the lock-free isInvalidated must not skip a token which is already in the map
+        filter.add(hash);
+        invalidated.put(hash, expiration);
+        append(hash, expiration);
+        return true;
+    }
+
+    /**
+     * Return all invalidated tokens, which are not expired yet
+     *
+     * @return unmodifiable view of hashes of tokens and their expirations
+     */
+    public Map<TokenHash, Long> getInvalidated() {
+        return Collections.unmodifiableMap(invalidated);
+    }
+
+    /**
+     * Remove all expired records, if there was any, the log is compacted
+     */
+    public synchronized void purge() {
+        final long now = System.currentTimeMillis();
+        boolean removed = false;
+        for (final Map.Entry<TokenHash, Long> entry : invalidated.entrySet()) {
+            if (entry.getValue() <= now) {
+                invalidated.remove(entry.getKey());
+                filter.remove(entry.getKey());
+                removed = true;
+            }
+        }
+
+        if (removed) compact();
+    }
+
+    synchronized void load() {
+        invalidated.clear();
+        if (logFile.exists()) {
+            final long now = System.currentTimeMillis();
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+                long available = logFile.length() / RECORD_LENGTH;
+                for (long i = 0; i < available; i++) {
+                    final TokenHash hash = new TokenHash(input.readLong(), input.readLong(), input.readLong(), input.readLong());
+                    final long expiration = input.readLong();
+                    if ((expiration > now) && !invalidated.containsKey(hash)) {
+                        filter.add(hash);
+                        invalidated.put(hash, expiration);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Cannot read the log of invalidated tokens {}: {}", logFile, e.getMessage());
+            }
+        }
+
+        compact();
+    }
+
+    private void compact() {
+        closeOutput();
+
+        final File tempFile = new File(logFile.getPath() + ".tmp");
+        try (DataOutputStream tempOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            for (final Map.Entry<TokenHash, Long> entry : invalidated.entrySet()) {
+                write(tempOutput, entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            log.warn("Cannot compact the log of invalidated tokens {}: {}", logFile, e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Cannot replace the log of invalidated tokens {}: {}", logFile, e.getMessage());
+        }
+    }
+
+    private void append(TokenHash hash, long expiration) {
+        try {
+            if (output == null) {
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, true), RECORD_LENGTH));
+            }
+            write(output, hash, expiration);
+            output.flush();
+        } catch (IOException e) {
+            log.warn("Cannot write into the log of invalidated tokens {}: {}", logFile, e.getMessage());
+            closeOutput();
+        }
+    }
+
+    private void write(DataOutputStream out, TokenHash hash, long expiration) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            out.writeLong(hash.getPart(i));
+        }
+        out.writeLong(expiration);
+    }
+
+    private void closeOutput() {
+        if (output == null) return;
+
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.debug("Cannot close the log of invalidated tokens {}: {}", logFile, e.getMessage());
+        }
+        output = null;
+    }
+
+}
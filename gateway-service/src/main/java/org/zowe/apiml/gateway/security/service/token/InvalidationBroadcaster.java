@@ -0,0 +1,400 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.zowe.apiml.product.constants.CoreService;
+import org.zowe.apiml.util.EurekaUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous distribution of token invalidation to other gateway instances. The logout request only puts the token
+ * into a bounded queue, sending is processed in the background:
+ *  - tokens are collected for a short window and sent to each peer in one request (POST /auth/invalidate)
+ *  - all peers are called in parallel, slow peer does not block others
+ *  - failed delivery is repeated with exponential backoff, undelivered tokens are kept until their expiration (one
+ *    entry per token, so the backlog of an unreachable peer is bounded by the count of revoked tokens)
+ *  - a newly registered gateway (also restarted one) receives all recent not expired invalidations
+ *
+ * Peers which do not support the batch endpoint yet are called with the original endpoint per token
+ * (DELETE /auth/invalidate/{token}).
+ *
+ * When the queue is full, the invalidation is kept in an overflow map (one entry per token, so it is bounded by the
+ * count of revoked tokens like the store of invalidated tokens) and the dispatcher takes it before the queue. Such
+ * invalidations are counted by apiml.gateway.invalidation.overflow.
+ *
+ * Delivery lag (age of the oldest undelivered invalidation) is available per peer as the gauge
+ * apiml.gateway.invalidation.lag.
+ */
+@Slf4j
+@Component
+public class InvalidationBroadcaster implements MeterBinder {
+
+    static final String INVALIDATE_BATCH_PATH = "/auth/invalidate";
+    static final String INVALIDATE_PATH = "/auth/invalidate/{}";
+
+    static final int QUEUE_CAPACITY = 10000;
+    private static final int MAX_BATCH_SIZE = 500;
+    static final int RECENT_LIMIT = 10000;
+    private static final int SENDER_THREADS = 4;
+    private static final long BATCH_WINDOW_MILLIS = 50;
+    private static final long PEER_REFRESH_MILLIS = 1000;
+    private static final long RETRY_BASE_MILLIS = 500;
+    private static final long RETRY_MAX_MILLIS = 60000;
+
+    private final EurekaClient discoveryClient;
+    private final RestTemplate restTemplate;
+
+    private final BlockingQueue<Revocation> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<String, Revocation> overflow = new ConcurrentHashMap<>();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    // recent invalidations to send to the new peers, it is used only by dispatcher thread
+    private final LinkedHashMap<String, Revocation> recent = new LinkedHashMap<>();
+
+    private volatile boolean running;
+    private Thread dispatcher;
+    private ExecutorService senders;
+    private ScheduledExecutorService retryScheduler;
+    private volatile MeterRegistry meterRegistry;
+
+    public InvalidationBroadcaster(EurekaClient discoveryClient, RestTemplate restTemplate) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+    }
+
+    @PostConstruct
+    public void afterPropertiesSet() {
+        running = true;
+        senders = Executors.newFixedThreadPool(SENDER_THREADS, r -> createThread(r, "InvalidationBroadcaster-Sender"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> createThread(r, "InvalidationBroadcaster-Retry"));
+        dispatcher = createThread(this::dispatchLoop, "InvalidationBroadcaster-Dispatcher");
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (dispatcher != null) dispatcher.interrupt();
+        if (retryScheduler != null) retryScheduler.shutdownNow();
+        if (senders != null) senders.shutdownNow();
+    }
+
+    private static Thread createThread(Runnable runnable, String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Schedule distribution of invalidation to all other gateways
+     *
+     * @param jwtToken   invalidated token
+     * @param expiration expiration of the token in millis, after that time it is not necessary to distribute it
+     * @return true if the token was queued, false if the queue is full and the token waits in the overflow
+     */
+    public boolean broadcast(String jwtToken, long expiration) {
+        final Revocation revocation = new Revocation(jwtToken, expiration, System.currentTimeMillis());
+        if (queue.offer(revocation)) return true;
+
+        overflow.put(jwtToken, revocation);
+        overflowCount.incrementAndGet();
+        log.warn("Queue of invalidated tokens to distribute is full, the invalidation will be distributed with a delay");
+        return false;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                dispatch(nextBatch());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.debug("Unexpected error during distribution of invalidated tokens", e);
+            }
+        }
+    }
+
+    /**
+     * Wait for the first invalidation and then collect others arrived in the batch window
+     *
+     * @return batch of invalidations, empty list if nothing arrived till the peer refresh interval
+     */
+    List<Revocation> nextBatch() throws InterruptedException {
+        final List<Revocation> batch = new ArrayList<>();
+        drainOverflow(batch);
+        if (!batch.isEmpty()) {
+            queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            return batch;
+        }
+
+        final Revocation first = queue.poll(PEER_REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) return Collections.emptyList();
+        batch.add(first);
+
+        final long deadline = System.currentTimeMillis() + BATCH_WINDOW_MILLIS;
+        long remaining;
+        while ((batch.size() < MAX_BATCH_SIZE) && ((remaining = deadline - System.currentTimeMillis()) > 0)) {
+            final Revocation next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+
+        return batch;
+    }
+
+    private void drainOverflow(List<Revocation> batch) {
+        final Iterator<Revocation> i = overflow.values().iterator();
+        while ((batch.size() < MAX_BATCH_SIZE) && i.hasNext()) {
+            batch.add(i.next());
+            i.remove();
+        }
+    }
+
+    /**
+     * Remember the batch for new peers, update set of peers by discovery client and send all pending invalidations
+     *
+     * @param batch new invalidations
+     */
+    void dispatch(List<Revocation> batch) {
+        final long now = System.currentTimeMillis();
+        batch.forEach(x -> recent.put(x.getToken(), x));
+        recent.values().removeIf(x -> x.isExpired(now));
+        final Iterator<Revocation> i = recent.values().iterator();
+        while ((recent.size() > RECENT_LIMIT) && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+
+        refreshPeers(batch);
+        peers.values().forEach(Peer::trySend);
+    }
+
+    private void refreshPeers(List<Revocation> batch) {
+        final Application application = discoveryClient.getApplication(CoreService.GATEWAY.getServiceId());
+        final List<InstanceInfo> instances = application == null ? Collections.emptyList() : application.getInstances();
+        final String myInstanceId = discoveryClient.getApplicationInfoManager().getInfo().getInstanceId();
+
+        final Set<String> actual = new HashSet<>();
+        for (final InstanceInfo instanceInfo : instances) {
+            final String instanceId = instanceInfo.getInstanceId();
+            if (StringUtils.equals(myInstanceId, instanceId)) continue;
+            actual.add(instanceId);
+
+            final long registration = instanceInfo.getLeaseInfo() == null ? 0 : instanceInfo.getLeaseInfo().getRegistrationTimestamp();
+            final Peer peer = peers.get(instanceId);
+            if ((peer == null) || (peer.getRegistration() != registration)) {
+                // new or restarted instance, it has to receive all recent invalidations
+                if (peer != null) peer.unregisterGauge();
+                final Peer newPeer = new Peer(instanceId, registration, EurekaUtils.getUrl(instanceInfo));
+                newPeer.enqueue(recent.values());
+                newPeer.registerGauge(meterRegistry);
+                peers.put(instanceId, newPeer);
+            } else {
+                peer.setUrl(EurekaUtils.getUrl(instanceInfo));
+                peer.enqueue(batch);
+            }
+        }
+
+        peers.entrySet().removeIf(entry -> {
+            if (actual.contains(entry.getKey())) return false;
+            entry.getValue().unregisterGauge();
+            return true;
+        });
+    }
+
+    /**
+     * @return delivery lag in millis per peer's instanceId (age of the oldest undelivered invalidation)
+     */
+    public Map<String, Long> getDeliveryLags() {
+        final long now = System.currentTimeMillis();
+        return peers.values().stream().collect(Collectors.toMap(Peer::getInstanceId, x -> x.getLag(now)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        Gauge.builder("apiml.gateway.invalidation.queue", this, x -> x.queue.size() + x.overflow.size())
+            .description("Count of invalidated tokens waiting for distribution to other gateways")
+            .register(registry);
+        FunctionCounter.builder("apiml.gateway.invalidation.overflow", overflowCount, AtomicLong::get)
+            .description("Count of invalidated tokens which did not fit into the queue")
+            .register(registry);
+        peers.values().forEach(x -> x.registerGauge(registry));
+    }
+
+    @Value
+    static class Revocation {
+
+        private final String token;
+        private final long expiration;
+        private final long createdAt;
+
+        boolean isExpired(long now) {
+            return expiration <= now;
+        }
+
+    }
+
+    class Peer {
+
+        private final String instanceId;
+        private final long registration;
+        private volatile String url;
+
+        private final List<Revocation> pending = new ArrayList<>();
+        private final Set<String> pendingTokens = new HashSet<>();
+        private boolean inFlight;
+        private int attempts;
+        private long nextAttemptAt;
+        private Gauge gauge;
+
+        Peer(String instanceId, long registration, String url) {
+            this.instanceId = instanceId;
+            this.registration = registration;
+            this.url = url;
+        }
+
+        String getInstanceId() {
+            return instanceId;
+        }
+
+        long getRegistration() {
+            return registration;
+        }
+
+        void setUrl(String url) {
+            this.url = url;
+        }
+
+        synchronized void enqueue(Collection<Revocation> revocations) {
+            final long now = System.currentTimeMillis();
+            for (final Revocation revocation : revocations) {
+                if (!revocation.isExpired(now) && pendingTokens.add(revocation.getToken())) pending.add(revocation);
+            }
+            if (!inFlight) removeExpired(now);
+        }
+
+        private void removeExpired(long now) {
+            pending.removeIf(x -> x.isExpired(now) && pendingTokens.remove(x.getToken()));
+        }
+
+        synchronized long getLag(long now) {
+            if (pending.isEmpty()) return 0;
+            return now - pending.get(0).getCreatedAt();
+        }
+
+        void registerGauge(MeterRegistry registry) {
+            if (registry == null) return;
+            gauge = Gauge.builder("apiml.gateway.invalidation.lag", this, x -> x.getLag(System.currentTimeMillis()))
+                .description("Age of the oldest invalidation not delivered to the gateway instance (ms)")
+                .tag("peer", instanceId)
+                .register(registry);
+        }
+
+        void unregisterGauge() {
+            final MeterRegistry registry = meterRegistry;
+            if ((registry != null) && (gauge != null)) registry.remove(gauge);
+        }
+
+        void trySend() {
+            final List<Revocation> toSend;
+            synchronized (this) {
+                if (inFlight || pending.isEmpty() || (System.currentTimeMillis() < nextAttemptAt)) return;
+                if (!peers.containsValue(this)) return;
+
+                inFlight = true;
+                toSend = new ArrayList<>(pending.subList(0, Math.min(pending.size(), MAX_BATCH_SIZE)));
+            }
+
+            try {
+                senders.execute(() -> send(toSend));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    inFlight = false;
+                }
+            }
+        }
+
+        private void send(List<Revocation> toSend) {
+            boolean delivered = false;
+            try {
+                deliver(url, toSend.stream().map(Revocation::getToken).collect(Collectors.toList()));
+                delivered = true;
+            } catch (RestClientException e) {
+                log.debug("Cannot distribute invalidated tokens to {}: {}", instanceId, e.getMessage());
+            }
+
+            final long retryIn;
+            synchronized (this) {
+                inFlight = false;
+                if (delivered) {
+                    // new invalidations are only appended, delivered ones are still at the beginning
+                    final List<Revocation> sent = pending.subList(0, toSend.size());
+                    sent.forEach(x -> pendingTokens.remove(x.getToken()));
+                    sent.clear();
+                    attempts = 0;
+                    nextAttemptAt = 0;
+                    retryIn = pending.isEmpty() ? -1 : 0;
+                } else {
+                    removeExpired(System.currentTimeMillis());
+                    retryIn = Math.min(RETRY_BASE_MILLIS << Math.min(attempts, 16), RETRY_MAX_MILLIS);
+                    attempts++;
+                    nextAttemptAt = System.currentTimeMillis() + retryIn;
+                }
+            }
+
+            if (retryIn >= 0) {
+                try {
+                    retryScheduler.schedule(this::trySend, retryIn, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // broadcaster is stopped
+                }
+            }
+        }
+
+    }
+
+    private void deliver(String baseUrl, List<String> tokens) {
+        try {
+            restTemplate.postForEntity(baseUrl + INVALIDATE_BATCH_PATH, tokens, Void.class);
+        } catch (HttpClientErrorException e) {
+            if ((e.getStatusCode() != HttpStatus.NOT_FOUND) && (e.getStatusCode() != HttpStatus.METHOD_NOT_ALLOWED)) throw e;
+
+            // the peer does not support batch yet
+            for (final String token : tokens) {
+                restTemplate.delete(baseUrl + INVALIDATE_PATH, token);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Issuer of JWT tokens for the login. It produces the same tokens as JJWT's builder (the same header, the same order
+ * of claims and the same JSON encoding), but without its overhead:
+ *  - the encoded header and the issuer claim are prepared just once
+ *  - signing objects ({@link Signature} for RSA, {@link Mac} for HMAC) are created once per thread and reused
+ *  - the id of token (jti) is generated from {@link ThreadLocalRandom} instead of shared {@link java.security.SecureRandom}
+ *
+ * Other algorithms (RSASSA-PSS, ECDSA) are delegated to JJWT.
+ */
+@Component
+public class JwtTokenIssuer {
+
+    public static final String DOMAIN_CLAIM_NAME = "dom";
+    public static final String LTPA_CLAIM_NAME = "ltpa";
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final JwtSecurityInitializer jwtSecurityInitializer;
+    private final String issuer;
+    private final String issuerClaim;
+
+    private final ThreadLocal<Signer> signers = new ThreadLocal<>();
+
+    public JwtTokenIssuer(AuthConfigurationProperties authConfigurationProperties, JwtSecurityInitializer jwtSecurityInitializer) {
+        this.jwtSecurityInitializer = jwtSecurityInitializer;
+        this.issuer = authConfigurationProperties.getTokenProperties().getIssuer();
+        this.issuerClaim = StringUtils.isBlank(issuer) ? "" : ",\"iss\":" + quote(issuer);
+    }
+
+    /**
+     * Create and sign the JWT token
+     *
+     * @param username   the username (subject)
+     * @param domain     the domain
+     * @param ltpaToken  the LTPA token
+     * @param issuedAt   the time of issue in millis
+     * @param expiration the expiration time in millis
+     * @return the JWT token
+     */
+    public String createJwtToken(String username, String domain, String ltpaToken, long issuedAt, long expiration) {
+        return createJwtToken(username, domain, ltpaToken, issuedAt, expiration, randomId());
+    }
+
+    String createJwtToken(String username, String domain, String ltpaToken, long issuedAt, long expiration, String id) {
+        final SignatureAlgorithm algorithm = jwtSecurityInitializer.getSignatureAlgorithm();
+        final Key key = jwtSecurityInitializer.getJwtSecret();
+        if (key == null) throw new IllegalArgumentException("Key argument cannot be null.");
+
+        final Signer signer = getSigner(algorithm, key);
+        if (signer == null) {
+            return createJwtTokenByJjwt(username, domain, ltpaToken, issuedAt, expiration, id, algorithm, key);
+        }
+
+        final StringBuilder sb = new StringBuilder(signer.header.length() + 1024);
+        sb.append(signer.header).append('.');
+        sb.append(BASE64_URL.encodeToString(getPayload(username, domain, ltpaToken, issuedAt, expiration, id)));
+
+        final byte[] signature = signer.sign(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        return sb.append('.').append(BASE64_URL.encodeToString(signature)).toString();
+    }
+
+    private byte[] getPayload(String username, String domain, String ltpaToken, long issuedAt, long expiration, String id) {
+        final StringBuilder sb = new StringBuilder(512);
+        sb.append('{');
+        if (StringUtils.isNotBlank(username)) sb.append("\"sub\":").append(quote(username)).append(',');
+        if (domain != null) sb.append('"').append(DOMAIN_CLAIM_NAME).append("\":").append(quote(domain)).append(',');
+        if (ltpaToken != null) sb.append('"').append(LTPA_CLAIM_NAME).append("\":").append(quote(ltpaToken)).append(',');
+        sb.append("\"iat\":").append(issuedAt / 1000);
+        sb.append(",\"exp\":").append(expiration / 1000);
+        sb.append(issuerClaim);
+        if (StringUtils.isNotBlank(id)) sb.append(",\"jti\":").append(quote(id));
+        sb.append('}');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    String createJwtTokenByJjwt(
+        String username, String domain, String ltpaToken, long issuedAt, long expiration, String id,
+        SignatureAlgorithm algorithm, Key key
+    ) {
+        return Jwts.builder()
+            .setSubject(username)
+            .claim(DOMAIN_CLAIM_NAME, domain)
+            .claim(LTPA_CLAIM_NAME, ltpaToken)
+            .setIssuedAt(new Date(issuedAt))
+            .setExpiration(new Date(expiration))
+            .setIssuer(issuer)
+            .setId(id)
+            .signWith(algorithm, key)
+            .compact();
+    }
+
+    private static String quote(String value) {
+        return '"' + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + '"';
+    }
+
+    /**
+     * @return random UUID (version 4) as it is generated by {@link UUID#randomUUID()}
+     */
+    static String randomId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = random.nextLong();
+        long lsb = random.nextLong();
+        msb = (msb & ~0xf000L) | 0x4000L;
+        lsb = (lsb & ~(0xc0L << 56)) | (0x80L << 56);
+        return new UUID(msb, lsb).toString();
+    }
+
+    private Signer getSigner(SignatureAlgorithm algorithm, Key key) {
+        Signer signer = signers.get();
+        if ((signer != null) && (signer.algorithm == algorithm) && (signer.key == key)) return signer;
+
+        signer = createSigner(algorithm, key);
+        if (signer != null) signers.set(signer);
+        return signer;
+    }
+
+    private static Signer createSigner(SignatureAlgorithm algorithm, Key key) {
+        if (algorithm == null) return null;
+
+        try {
+            switch (algorithm) {
+                case RS256:
+                case RS384:
+                case RS512:
+                    if (!(key instanceof PrivateKey)) return null;
+                    final Signature signature = Signature.getInstance(algorithm.getJcaName());
+                    signature.initSign((PrivateKey) key);
+                    return new Signer(algorithm, key, signature, null);
+                case HS256:
+                case HS384:
+                case HS512:
+                    if (!(key instanceof SecretKey)) return null;
+                    final Mac mac = Mac.getInstance(algorithm.getJcaName());
+                    mac.init(key);
+                    return new Signer(algorithm, key, null, mac);
+                default:
+                    return null;
+            }
+        } catch (GeneralSecurityException e) {
+            // let JJWT to handle the error in the same way as before
+            return null;
+        }
+    }
+
+    private static class Signer {
+
+        private final SignatureAlgorithm algorithm;
+        private final Key key;
+        private final Signature signature;
+        private final Mac mac;
+        private final String header;
+
+        Signer(SignatureAlgorithm algorithm, Key key, Signature signature, Mac mac) {
+            this.algorithm = algorithm;
+            this.key = key;
+            this.signature = signature;
+            this.mac = mac;
+            this.header = BASE64_URL.encodeToString(
+                ("{\"alg\":\"" + algorithm.getValue() + "\"}").getBytes(StandardCharsets.UTF_8)
+            );
+        }
+
+        byte[] sign(byte[] data) {
+            if (mac != null) return mac.doFinal(data);
+
+            try {
+                signature.update(data);
+                return signature.sign();
+            } catch (java.security.SignatureException e) {
+                throw new SignatureException("Invalid Java Signature: " + e.getMessage(), e);
+            }
+        }
+
+    }
+
+}
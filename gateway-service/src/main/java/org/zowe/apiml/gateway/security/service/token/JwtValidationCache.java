@@ -0,0 +1,174 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of results of JWT token validation. It replaces the Ehcache cache validationJwtToken on the request
+ * path:
+ *  - key is {@link TokenHash}, therefor the size of entry does not depend on the size of the token
+ *  - each entry expires at the expiration time of the token (claim exp)
+ *  - entry contains also state of invalidation, validation and check of invalidation is one lookup
+ *  - reading does not lock, size is bounded, when the limit is reached, expired entries are removed at first and then
+ *    entries in iteration order of the map (it is random, because keys are hashes)
+ *
+ * The cache offers counters of hits, misses and evictions.
+ */
+@Component
+public class JwtValidationCache {
+
+    private final ConcurrentHashMap<TokenHash, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final int maxSize;
+
+    @Autowired
+    public JwtValidationCache(AuthConfigurationProperties authConfigurationProperties) {
+        this(authConfigurationProperties.getTokenProperties().getValidationCacheSize());
+    }
+
+    public JwtValidationCache(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Size of JWT validation cache has to be positive");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Find the result of previous validation of token
+     *
+     * @param jwtToken JWT token
+     * @return cached entry or null if token was not validated yet or it is already expired
+     */
+    public Entry get(String jwtToken) {
+        if (jwtToken == null) {
+            misses.increment();
+            return null;
+        }
+
+        final TokenHash key = TokenHash.of(jwtToken);
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, entry)) evictions.increment();
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Store the result of validation
+     *
+     * @param jwtToken    JWT token (with valid signature)
+     * @param subject     subject of the token (user ID)
+     * @param expiration  expiration time of token in millis
+     * @param invalidated true if token was invalidated (logout)
+     * @return stored entry
+     */
+    public Entry put(String jwtToken, String subject, long expiration, boolean invalidated) {
+        final Entry entry = new Entry(subject, expiration, invalidated);
+        entries.put(TokenHash.of(jwtToken), entry);
+        if (entries.mappingCount() > maxSize) evict();
+        return entry;
+    }
+
+    /**
+     * Mark the token as invalidated, if it is cached. Next lookup returns entry with invalidated flag, it is not
+     * necessary to validate the token again.
+     *
+     * @param jwtToken JWT token to invalidate
+     */
+    public void invalidate(String jwtToken) {
+        if (jwtToken == null) return;
+
+        entries.computeIfPresent(TokenHash.of(jwtToken), (k, v) -> v.isInvalidated() ? v : new Entry(v.getSubject(), v.getExpiration(), true));
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Make free space in the cache. Just one thread evicts at the time, other threads continue without waiting.
+     */
+    void evict() {
+        if (!evicting.compareAndSet(false, true)) return;
+
+        try {
+            final long now = System.currentTimeMillis();
+            // at first remove all expired records
+            entries.forEach((k, v) -> {
+                if (v.isExpired(now) && entries.remove(k, v)) evictions.increment();
+            });
+
+            // if it is not enough, make free 10 % of capacity to avoid eviction on each put
+            final long target = maxSize - maxSize / 10;
+            final Iterator<TokenHash> i = entries.keySet().iterator();
+            while ((entries.mappingCount() > target) && i.hasNext()) {
+                i.next();
+                i.remove();
+                evictions.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public long size() {
+        return entries.mappingCount();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Value
+    public static class Entry {
+
+        private final String subject;
+        private final long expiration;
+        private final boolean invalidated;
+
+        boolean isExpired(long now) {
+            return now >= expiration;
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import io.jsonwebtoken.Claims;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.function.Function;
+
+/**
+ * JWT token of the current request (stored in ZUUL's RequestContext under the key {@link #TOKEN_CONTEXT_KEY}). The
+ * token is extracted from the request just once and its claims are verified (signature check) only on the first use.
+ * All others filters, schemes and commands of the same request read the token and the claims from this object.
+ *
+ * The context is bound to the instance of request, a context of another request is never used.
+ */
+public class TokenContext {
+
+    public static final String TOKEN_CONTEXT_KEY = "zoweTokenContext";
+
+    private final HttpServletRequest request;
+    private final String token;
+
+    private Claims claims;
+    private RuntimeException exception;
+
+    public TokenContext(HttpServletRequest request, String token) {
+        this.request = request;
+        this.token = token;
+    }
+
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return JWT token of the request, null if request does not contain any
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Return verified claims of the token. The parser is called only once, the result (also an exception) is
+     * remembered for the rest of request.
+     *
+     * @param parser method to verify the token and to get its claims
+     * @return claims of the token
+     */
+    public synchronized Claims getClaims(Function<String, Claims> parser) {
+        if (exception != null) throw exception;
+
+        if (claims == null) {
+            try {
+                claims = parser.apply(token);
+            } catch (RuntimeException e) {
+                exception = e;
+                throw e;
+            }
+        }
+
+        return claims;
+    }
+
+}
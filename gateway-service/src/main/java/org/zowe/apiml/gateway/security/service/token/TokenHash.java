@@ -0,0 +1,100 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fixed-length (SHA-256) identity of a JWT token. It is used as a key in the in-process token structures instead of
+ * the token itself, so memory used by a key does not depend on the size of the token (claims, LTPA token etc.).
+ *
+ * The hash is stored as four longs, equals compares all of them and hashCode is taken from the first one (it is
+ * already uniformly distributed).
+ */
+public final class TokenHash {
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    });
+
+    private final long h0;
+    private final long h1;
+    private final long h2;
+    private final long h3;
+
+    TokenHash(long h0, long h1, long h2, long h3) {
+        this.h0 = h0;
+        this.h1 = h1;
+        this.h2 = h2;
+        this.h3 = h3;
+    }
+
+    /**
+     * Compute hash of the token
+     *
+     * @param token JWT token, it cannot be null
+     * @return hash of the token
+     */
+    public static TokenHash of(String token) {
+        final MessageDigest digest = DIGEST.get();
+        final byte[] bytes = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return new TokenHash(toLong(bytes, 0), toLong(bytes, 8), toLong(bytes, 16), toLong(bytes, 24));
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long out = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            out = (out << 8) | (bytes[i] & 0xFF);
+        }
+        return out;
+    }
+
+    /**
+     * Return one of the 64-bits parts of the hash
+     *
+     * @param index index of part (0 - 3)
+     * @return part of the hash
+     */
+    public long getPart(int index) {
+        switch (index) {
+            case 0: return h0;
+            case 1: return h1;
+            case 2: return h2;
+            case 3: return h3;
+            default: throw new IndexOutOfBoundsException("Index " + index + " is out of range 0 - 3");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TokenHash)) return false;
+
+        final TokenHash that = (TokenHash) o;
+        return (h0 == that.h0) && (h1 == that.h1) && (h2 == that.h2) && (h3 == that.h3);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (h0 ^ (h0 >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x%016x%016x", h0, h1, h2, h3);
+    }
+
+}
@@ -9,9 +9,9 @@
  */
 package org.zowe.apiml.gateway.ws;
 
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
-import org.zowe.apiml.product.routing.RoutedServicesUser;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,18 +38,20 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 @Singleton
 @Slf4j
-public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implements RoutedServicesUser {
+public class WebSocketProxyServerHandler extends AbstractWebSocketHandler {
 
     private final Map<String, WebSocketRoutedSession> routedSessions;
-    private final Map<String, RoutedServices> routedServicesMap = new ConcurrentHashMap<>();
+    private final RouteSnapshotRegistry routeSnapshotRegistry;
     private final DiscoveryClient discovery;
     private final SslContextFactory jettySslContextFactory;
     private final WebSocketRoutedSessionFactory webSocketRoutedSessionFactory;
     private static final String SEPARATOR = "/";
 
     @Autowired
-    public WebSocketProxyServerHandler(DiscoveryClient discovery, SslContextFactoryProvider jettySslContextFactoryProvider) {
+    public WebSocketProxyServerHandler(DiscoveryClient discovery, SslContextFactoryProvider jettySslContextFactoryProvider,
+                                       RouteSnapshotRegistry routeSnapshotRegistry) {
         this.discovery = discovery;
+        this.routeSnapshotRegistry = routeSnapshotRegistry;
         this.jettySslContextFactory = jettySslContextFactoryProvider.getSslFactory();
         this.routedSessions = new ConcurrentHashMap<>();  // Default
         this.webSocketRoutedSessionFactory = new WebSocketRoutedSessionFactoryImpl();
@@ -57,18 +59,16 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
     }
 
     public WebSocketProxyServerHandler(DiscoveryClient discovery, SslContextFactoryProvider sslContextFactoryProvider,
+                                       RouteSnapshotRegistry routeSnapshotRegistry,
                                        Map<String, WebSocketRoutedSession> routedSessions, WebSocketRoutedSessionFactory webSocketRoutedSessionFactory) {
         this.discovery = discovery;
+        this.routeSnapshotRegistry = routeSnapshotRegistry;
         this.jettySslContextFactory = sslContextFactoryProvider.getSslFactory();
         this.routedSessions = routedSessions;
         this.webSocketRoutedSessionFactory = webSocketRoutedSessionFactory;
         log.debug("Creating WebSocketProxyServerHandler {} jettySslContextFactory={}", this, jettySslContextFactory);
     }
 
-    public void addRoutedServices(String serviceId, RoutedServices routedServices) {
-        routedServicesMap.put(serviceId, routedServices);
-    }
-
     private String getTargetUrl(String serviceUrl, ServiceInstance serviceInstance, String path) {
         String servicePath = serviceUrl.charAt(serviceUrl.length() - 1) == '/' ? serviceUrl : serviceUrl + SEPARATOR;
         return (serviceInstance.isSecure() ? "wss" : "ws") + "://" + serviceInstance.getHost() + ":"
@@ -87,7 +87,7 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
             String serviceId = uriParts[3];
             String path = uriParts[4];
 
-            RoutedServices routedServices = routedServicesMap.get(serviceId);
+            RoutedServices routedServices = routeSnapshotRegistry.getRoutedServices(serviceId);
 
             if (routedServices != null) {
                 RoutedService service = routedServices.findServiceByGatewayUrl("ws/" + majorVersion);
@@ -15,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.mockito.Mock;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -22,6 +23,7 @@ import static org.apache.http.HttpStatus.SC_OK;
 import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -52,4 +54,19 @@ public class AuthControllerTest {
         verify(authenticationService, times(1)).invalidateJwtToken("a/b", false);
     }
 
+    @Test
+    public void invalidateJwtTokens() throws Exception {
+        when(authenticationService.invalidateJwtToken("abc", false)).thenReturn(Boolean.TRUE);
+        when(authenticationService.invalidateJwtToken("def", false)).thenReturn(Boolean.TRUE);
+        this.mockMvc.perform(post("/auth/invalidate").contentType(MediaType.APPLICATION_JSON).content("[\"abc\",\"def\"]"))
+            .andExpect(status().is(SC_OK));
+
+        this.mockMvc.perform(post("/auth/invalidate").contentType(MediaType.APPLICATION_JSON).content("[\"abc\",\"xyz\"]"))
+            .andExpect(status().is(SC_SERVICE_UNAVAILABLE));
+
+        verify(authenticationService, times(2)).invalidateJwtToken("abc", false);
+        verify(authenticationService, times(1)).invalidateJwtToken("def", false);
+        verify(authenticationService, times(1)).invalidateJwtToken("xyz", false);
+    }
+
 }
@@ -0,0 +1,183 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.latency;
+
+import com.netflix.zuul.FilterProcessor;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.Debug;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import com.netflix.zuul.monitoring.CounterFactory;
+import com.netflix.zuul.monitoring.TracerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.netflix.zuul.metrics.EmptyCounterFactory;
+import org.springframework.cloud.netflix.zuul.metrics.EmptyTracerFactory;
+import org.zowe.apiml.gateway.filters.latency.FilterLatencyRecorder.FilterStatistics;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilterLatencyRecorderTest {
+
+    private final FilterProcessor originalProcessor = FilterProcessor.getInstance();
+
+    @BeforeEach
+    void setUp() {
+        CounterFactory.initialize(new EmptyCounterFactory());
+        TracerFactory.initialize(new EmptyTracerFactory());
+        RequestContext.testSetCurrentContext(new RequestContext());
+    }
+
+    @AfterEach
+    void tearDown() {
+        FilterProcessor.setProcessor(originalProcessor);
+        RequestContext.testSetCurrentContext(null);
+    }
+
+    @Test
+    void givenSampledCall_whenProcessFilter_thenRecordShouldFilterAndRun() throws ZuulException {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(1.0);
+        TestFilter filter = new TestFilter(true);
+
+        assertEquals("result", recorder.processZuulFilter(filter));
+        assertEquals(1, filter.runCount);
+
+        List<FilterStatistics> statistics = recorder.getStatistics();
+        assertEquals(1, statistics.size());
+        assertEquals("TestFilter", statistics.get(0).getName());
+        assertEquals("pre", statistics.get(0).getType());
+        assertEquals(5, statistics.get(0).getOrder());
+        assertEquals(1, statistics.get(0).getShouldFilter().getCount());
+        assertEquals(1, statistics.get(0).getRun().getCount());
+        assertTrue(statistics.get(0).getRun().getMax() >= statistics.get(0).getRun().getMin());
+    }
+
+    @Test
+    void givenSkippedFilter_whenProcessFilter_thenRecordJustShouldFilter() throws ZuulException {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(1.0);
+        TestFilter filter = new TestFilter(false);
+
+        recorder.processZuulFilter(filter);
+        recorder.processZuulFilter(filter);
+        assertEquals(0, filter.runCount);
+
+        FilterStatistics statistics = recorder.getStatistics().get(0);
+        assertEquals(2, statistics.getShouldFilter().getCount());
+        assertEquals(0, statistics.getRun().getCount());
+    }
+
+    @Test
+    void givenZeroSampleRate_whenProcessFilter_thenNothingIsRecorded() throws ZuulException {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(0.0);
+        TestFilter filter = new TestFilter(true);
+
+        assertEquals("result", recorder.processZuulFilter(filter));
+        assertEquals(1, filter.runCount);
+        assertTrue(recorder.getStatistics().isEmpty());
+
+        recorder.afterPropertiesSet();
+        assertSame(originalProcessor, FilterProcessor.getInstance());
+    }
+
+    @Test
+    void givenEnabledRecorder_whenStartAndStop_thenProcessorIsReplaced() {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(0.5);
+
+        recorder.afterPropertiesSet();
+        assertSame(recorder, FilterProcessor.getInstance());
+
+        recorder.destroy();
+        assertNotSame(recorder, FilterProcessor.getInstance());
+    }
+
+    @Test
+    void givenRecordedValues_whenReset_thenCountsAreZero() throws ZuulException {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(1.0);
+        recorder.processZuulFilter(new TestFilter(true));
+        assertEquals(1, recorder.getStatistics().get(0).getRun().getCount());
+
+        recorder.reset();
+
+        FilterStatistics statistics = recorder.getStatistics().get(0);
+        assertEquals(0, statistics.getShouldFilter().getCount());
+        assertEquals(0, statistics.getRun().getCount());
+    }
+
+    @Test
+    void givenDebugRouting_whenProcessSampledFilter_thenReportOriginalFilter() throws ZuulException {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(1.0);
+        RequestContext.getCurrentContext().setDebugRouting(true);
+
+        recorder.processZuulFilter(new TestFilter(true));
+
+        List<String> routingDebug = Debug.getRoutingDebug();
+        assertTrue(routingDebug.contains("Filter pre 5 TestFilter"));
+        assertTrue(routingDebug.stream().anyMatch(x -> x.startsWith("Filter {TestFilter TYPE:pre ORDER:5}")));
+        assertTrue(routingDebug.stream().noneMatch(x -> x.contains("TimedZuulFilter")));
+        assertTrue(RequestContext.getCurrentContext().getFilterExecutionSummary().toString().contains("TestFilter[SUCCESS]"));
+    }
+
+    @Test
+    void givenFailingFilter_whenProcessSampledFilter_thenErrorCauseContainsOriginalFilter() {
+        FilterLatencyRecorder recorder = new FilterLatencyRecorder(1.0);
+        RequestContext.getCurrentContext().setDebugRouting(true);
+        IllegalStateException failure = new IllegalStateException("failure");
+
+        ZuulException exception = assertThrows(ZuulException.class, () -> recorder.processZuulFilter(new TestFilter(true, failure)));
+
+        assertSame(failure, exception.getCause());
+        assertEquals("pre:TestFilter", exception.errorCause);
+        assertTrue(Debug.getRoutingDebug().stream().anyMatch(x -> x.startsWith("Running Filter failed TestFilter type:pre order:5")));
+        assertEquals(1, recorder.getStatistics().get(0).getRun().getCount());
+    }
+
+    private static class TestFilter extends ZuulFilter {
+
+        private final boolean shouldFilter;
+        private final RuntimeException failure;
+        private int runCount;
+
+        TestFilter(boolean shouldFilter) {
+            this(shouldFilter, null);
+        }
+
+        TestFilter(boolean shouldFilter, RuntimeException failure) {
+            this.shouldFilter = shouldFilter;
+            this.failure = failure;
+        }
+
+        @Override
+        public String filterType() {
+            return "pre";
+        }
+
+        @Override
+        public int filterOrder() {
+            return 5;
+        }
+
+        @Override
+        public boolean shouldFilter() {
+            return shouldFilter;
+        }
+
+        @Override
+        public Object run() {
+            runCount++;
+            if (failure != null) throw failure;
+            return "result";
+        }
+
+    }
+
+}
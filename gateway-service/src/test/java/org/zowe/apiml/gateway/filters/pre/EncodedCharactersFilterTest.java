@@ -34,7 +34,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
 
@@ -90,6 +90,25 @@ public class EncodedCharactersFilterTest {
         assertThat(filter.shouldFilter(), is(equalTo(false)));
     }
 
+    @Test
+    public void givenCachedDecision_whenServiceEvicted_thenReloadInstances() {
+        List<ServiceInstance> instanceList = new ArrayList<>();
+        instanceList.add(serviceInstanceWithConfiguration);
+        when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(instanceList);
+
+        assertThat(filter.shouldFilter(), is(equalTo(false)));
+        assertThat(filter.shouldFilter(), is(equalTo(false)));
+        verify(discoveryClient, times(1)).getInstances(SERVICE_ID);
+
+        instanceList.add(serviceInstanceWithoutConfiguration);
+        filter.evictCacheService(SERVICE_ID.toUpperCase());
+        assertThat(filter.shouldFilter(), is(equalTo(true)));
+
+        filter.evictCacheAllService();
+        assertThat(filter.shouldFilter(), is(equalTo(true)));
+        verify(discoveryClient, times(3)).getInstances(SERVICE_ID);
+    }
+
     @Test
     public void shouldReturnFilterType() {
         String filterType = this.filter.filterType();
@@ -124,6 +143,19 @@ public class EncodedCharactersFilterTest {
         assertEquals(400, context.getResponse().getStatus());
     }
 
+    @Test
+    public void shouldRejectRequestsWithSemicolonOrBackslash() {
+        RequestContext context = RequestContext.getCurrentContext();
+        for (String uri : new String[] {"/api/v1/serviceid/path;jsessionid=1", "/api/v1/serviceid/..\\path"}) {
+            context.setResponse(new MockHttpServletResponse());
+            MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+            mockRequest.setRequestURI(uri);
+            context.setRequest(mockRequest);
+            this.filter.run();
+            assertEquals(400, context.getResponse().getStatus());
+        }
+    }
+
     @Test
     public void shouldAllowRequestsWithoutEncodedCharacters() {
         RequestContext context = RequestContext.getCurrentContext();
@@ -9,12 +9,15 @@
  */
 package org.zowe.apiml.gateway.filters.pre;
 
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 import com.netflix.zuul.context.RequestContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.PROXY_KEY;
@@ -23,11 +26,13 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
 
 public class LocationFilterTest {
 
+    private RouteSnapshotRegistry routeSnapshotRegistry;
     private LocationFilter filter;
 
     @BeforeEach
     public void setUp() {
-        this.filter = new LocationFilter();
+        this.routeSnapshotRegistry = new RouteSnapshotRegistry();
+        this.filter = new LocationFilter(routeSnapshotRegistry);
         RequestContext ctx = RequestContext.getCurrentContext();
         ctx.clear();
         ctx.set(REQUEST_URI_KEY, "/path");
@@ -42,7 +47,7 @@ public class LocationFilterTest {
             new RoutedService("testv2", "test", "/service/test1"));
         routedServices.addRoutedService(
             new RoutedService("testv3", "api/v1", "/service/v1"));
-        this.filter.addRoutedServices("service", routedServices);
+        this.routeSnapshotRegistry.publish(Collections.singletonMap("service", routedServices));
     }
 
     @Test
@@ -117,6 +122,23 @@ public class LocationFilterTest {
         assertEquals("/path", ctx.get(REQUEST_URI_KEY));
     }
 
+    @Test
+    public void routeNotDefinedInMetadataIsNotModified() {
+        final RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.set(PROXY_KEY, "api/v3/service");
+        this.filter.run();
+        assertEquals("/path", ctx.get(REQUEST_URI_KEY));
+    }
+
+    @Test
+    public void whitespacesAreIgnored() {
+        final RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.set(PROXY_KEY, " /ui/r4/service/ ");
+        ctx.set(REQUEST_URI_KEY, " path ");
+        this.filter.run();
+        assertEquals("/service/r1/path", ctx.get(REQUEST_URI_KEY));
+    }
+
     @Test
     public void requestPathIsEmpty() {
         final RequestContext ctx = RequestContext.getCurrentContext();
@@ -153,12 +175,12 @@ public class LocationFilterTest {
 
     @Test
     public void normalizeOriginalPathShouldReturnEmptyString() {
-        LocationFilter filter = new LocationFilter();
+        LocationFilter filter = new LocationFilter(routeSnapshotRegistry);
         final RequestContext ctx = RequestContext.getCurrentContext();
         RoutedServices routedServices = new RoutedServices();
         routedServices.addRoutedService(
             new RoutedService("testv1", "api/v1", null));
-        filter.addRoutedServices("service", routedServices);
+        routeSnapshotRegistry.publish(Collections.singletonMap("service", routedServices));
         filter.run();
         assertEquals("/path", ctx.get(REQUEST_URI_KEY));
     }
@@ -0,0 +1,203 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
+class AsyncForwarderTest {
+
+    private static final int MAX_BODY_SIZE = 1024;
+
+    private CloseableHttpAsyncClient httpClient;
+    private Future<HttpResponse> future;
+    private AsyncForwarder.Handler handler;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        httpClient = mock(CloseableHttpAsyncClient.class);
+        future = mock(Future.class);
+        when(httpClient.execute(any(HttpAsyncRequestProducer.class), any(HttpAsyncResponseConsumer.class), any(FutureCallback.class)))
+            .thenReturn(future);
+        handler = mock(AsyncForwarder.Handler.class);
+        request = new MockHttpServletRequest("GET", "/greeting");
+        request.setAsyncSupported(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private FutureCallback<HttpResponse> forward() {
+        new AsyncForwarder(httpClient, 1000, MAX_BODY_SIZE).forward(request, RequestBuilder.get("http://host:10010/greeting"), false, handler);
+
+        assertTrue(request.isAsyncStarted());
+        ArgumentCaptor<FutureCallback> callback = ArgumentCaptor.forClass(FutureCallback.class);
+        verify(httpClient).execute(any(HttpAsyncRequestProducer.class), any(HttpAsyncResponseConsumer.class), callback.capture());
+        return callback.getValue();
+    }
+
+    private void timeout() throws Exception {
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+    }
+
+    @Test
+    void givenResponse_whenCompleted_thenHandleItOnce() throws Exception {
+        FutureCallback<HttpResponse> callback = forward();
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+
+        callback.completed(response);
+        timeout();
+
+        verify(handler).completed(request.getAsyncContext(), response);
+        verify(handler, never()).failed(any(), any());
+        verify(future, never()).cancel(anyBoolean());
+    }
+
+    @Test
+    void givenClosedConnection_whenError_thenCancelRequestAndNotifyHandler() throws Exception {
+        FutureCallback<HttpResponse> callback = forward();
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        IOException cause = new IOException("Connection reset by peer");
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, cause));
+        }
+        callback.completed(new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"));
+
+        verify(future).cancel(true);
+        verify(handler).failed(eq(asyncContext), isA(AsyncForwarder.ClientAbortedException.class));
+        verify(handler, never()).completed(any(), any());
+    }
+
+    @Test
+    void givenSlowService_whenTimeout_thenCancelRequestAndFail() throws Exception {
+        FutureCallback<HttpResponse> callback = forward();
+
+        timeout();
+        callback.completed(new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"));
+
+        verify(future).cancel(true);
+        verify(handler).failed(eq(request.getAsyncContext()), isA(TimeoutException.class));
+        verify(handler, never()).completed(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenChunkedBodyLargerThanLimit_whenForward_thenFailWithoutCallingService() {
+        byte[] body = new byte[MAX_BODY_SIZE * 3];
+        MockHttpServletRequest chunkedRequest = new MockHttpServletRequest("POST", "/greeting") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new ImmediateServletInputStream(body);
+            }
+        };
+        chunkedRequest.setAsyncSupported(true);
+        chunkedRequest.addHeader("Transfer-Encoding", "chunked");
+
+        new AsyncForwarder(httpClient, 1000, MAX_BODY_SIZE).forward(chunkedRequest, RequestBuilder.post("http://host:10010/greeting"), true, handler);
+
+        verify(handler).failed(eq(chunkedRequest.getAsyncContext()), isA(AsyncForwarder.RequestTooLargeException.class));
+        verify(handler, never()).completed(any(), any());
+        verify(httpClient, never()).execute(any(HttpAsyncRequestProducer.class), any(HttpAsyncResponseConsumer.class), any(FutureCallback.class));
+    }
+
+    @Test
+    void givenContentLengthLargerThanLimit_whenForward_thenFailWithoutReading() {
+        request.setContent(new byte[MAX_BODY_SIZE + 1]);
+
+        new AsyncForwarder(httpClient, 1000, MAX_BODY_SIZE).forward(request, RequestBuilder.post("http://host:10010/greeting"), true, handler);
+
+        verify(handler).failed(eq(request.getAsyncContext()), isA(AsyncForwarder.RequestTooLargeException.class));
+    }
+
+    @Test
+    void givenResponseLargerThanLimit_whenConsume_thenFail() {
+        AsyncForwarder.BoundedResponseConsumer consumer = new AsyncForwarder.BoundedResponseConsumer(MAX_BODY_SIZE);
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentLength(MAX_BODY_SIZE + 1);
+        response.setEntity(entity);
+
+        assertThrows(AsyncForwarder.ResponseTooLargeException.class, () -> consumer.responseReceived(response));
+    }
+
+    /**
+     * Input stream with all the data available at once, it calls the listener immediately
+     */
+    private static class ImmediateServletInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream data;
+
+        ImmediateServletInputStream(byte[] data) {
+            this.data = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return data.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            try {
+                readListener.onDataAvailable();
+                if (isFinished()) readListener.onAllDataRead();
+            } catch (IOException e) {
+                readListener.onError(e);
+            }
+        }
+
+        @Override
+        public int read() {
+            return data.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            return data.read(buffer, offset, length);
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.filters.route;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.zuul.context.RequestContext;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zowe.apiml.gateway.ribbon.EwmaPowerOfTwoChoicesRule;
+import org.zowe.apiml.gateway.ribbon.GatewayRibbonLoadBalancingHttpClientImpl;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
+
+class AsyncRoutingFilterTest {
+
+    private static final Server SERVER = new Server("host", 10010);
+
+    private MockHttpServletRequest request;
+    private GatewayRibbonLoadBalancingHttpClientImpl client;
+    private EwmaPowerOfTwoChoicesRule loadAwareRule;
+    private AsyncForwarder forwarder;
+    private AsyncRoutingFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        request = new MockHttpServletRequest("GET", "/api/v1/service/greeting");
+        request.setAsyncSupported(true);
+        request.setQueryString("name=a%20b");
+        request.addHeader("X-Test", "value");
+
+        RequestContext context = RequestContext.getCurrentContext();
+        context.clear();
+        context.setRequest(request);
+        context.setResponse(new MockHttpServletResponse());
+        context.set(SERVICE_ID_KEY, "service");
+        context.set(REQUEST_URI_KEY, "/greeting");
+
+        client = mock(GatewayRibbonLoadBalancingHttpClientImpl.class);
+        loadAwareRule = mock(EwmaPowerOfTwoChoicesRule.class);
+        when(client.getServerFromLoadBalancer(null, null)).thenReturn(SERVER);
+        when(client.getLoadAwareRule()).thenReturn(loadAwareRule);
+        when(client.reconstructURIWithServer(eq(SERVER), any()))
+            .thenAnswer(invocation -> URI.create("http://host:10010" + invocation.getArgument(1)));
+        SpringClientFactory clientFactory = mock(SpringClientFactory.class);
+        when(clientFactory.getClient("service", RibbonLoadBalancingHttpClient.class)).thenReturn(client);
+
+        ZuulProperties zuulProperties = new ZuulProperties();
+        zuulProperties.setForceOriginalQueryStringEncoding(true);
+        forwarder = mock(AsyncForwarder.class);
+        when(forwarder.getMaxBodySize()).thenReturn(1024L);
+        filter = new AsyncRoutingFilter(clientFactory, new ProxyRequestHelper(zuulProperties), zuulProperties, forwarder, "/error");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.getCurrentContext().clear();
+    }
+
+    @Test
+    void givenServiceRequest_whenShouldFilter_thenOnlyAsyncSupportedAndNotForms() {
+        assertTrue(filter.shouldFilter());
+
+        request.setContentType("application/x-www-form-urlencoded");
+        assertFalse(filter.shouldFilter());
+
+        request.setContentType("application/json");
+        request.setAsyncSupported(false);
+        assertFalse(filter.shouldFilter());
+
+        request.setAsyncSupported(true);
+        RequestContext.getCurrentContext().setRouteHost(URI.create("http://host").toURL());
+        assertFalse(filter.shouldFilter());
+    }
+
+    @Test
+    void givenBodyLargerThanLimit_whenShouldFilter_thenLeaveItToBlockingFilter() {
+        request.setContent(new byte[1024]);
+        assertTrue(filter.shouldFilter());
+
+        request.setContent(new byte[1025]);
+        assertFalse(filter.shouldFilter());
+    }
+
+    @Test
+    void givenServiceRequest_whenRun_thenForwardToSelectedInstanceAndClearContext() throws Exception {
+        filter.run();
+
+        ArgumentCaptor<RequestBuilder> requestBuilder = ArgumentCaptor.forClass(RequestBuilder.class);
+        verify(forwarder).forward(eq(request), requestBuilder.capture(), eq(false), any());
+        HttpUriRequest forwarded = requestBuilder.getValue().build();
+        assertEquals("GET", forwarded.getMethod());
+        assertEquals("http://host:10010/greeting?name=a%20b", forwarded.getURI().toString());
+        assertEquals("value", forwarded.getFirstHeader("X-Test").getValue());
+
+        // the synchronous pass has nothing to route or write
+        assertNull(RequestContext.getCurrentContext().get(SERVICE_ID_KEY));
+        verify(loadAwareRule).requestStarted(SERVER);
+    }
+
+    @Test
+    void givenTimeout_whenFailed_thenDispatchGatewayTimeoutError() throws Exception {
+        filter.run();
+        ArgumentCaptor<AsyncForwarder.Handler> handler = ArgumentCaptor.forClass(AsyncForwarder.Handler.class);
+        verify(forwarder).forward(any(), any(), anyBoolean(), handler.capture());
+
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        when(asyncContext.getRequest()).thenReturn(request);
+        when(asyncContext.getResponse()).thenReturn(new MockHttpServletResponse());
+        handler.getValue().failed(asyncContext, new TimeoutException("timeout"));
+
+        assertEquals(504, request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE));
+        assertEquals("timeout", request.getAttribute(RequestDispatcher.ERROR_MESSAGE));
+        verify(asyncContext).dispatch("/error");
+        verify(loadAwareRule).requestFailed(SERVER);
+        verify(loadAwareRule, never()).requestFinished(any(), anyLong());
+    }
+
+    @Test
+    void givenTooLargeRequest_whenFailed_thenDispatchPayloadTooLargeError() throws Exception {
+        filter.run();
+        ArgumentCaptor<AsyncForwarder.Handler> handler = ArgumentCaptor.forClass(AsyncForwarder.Handler.class);
+        verify(forwarder).forward(any(), any(), anyBoolean(), handler.capture());
+
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        when(asyncContext.getRequest()).thenReturn(request);
+        when(asyncContext.getResponse()).thenReturn(new MockHttpServletResponse());
+        handler.getValue().failed(asyncContext, new AsyncForwarder.RequestTooLargeException(1024));
+
+        assertEquals(413, request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE));
+        verify(asyncContext).dispatch("/error");
+    }
+
+    @Test
+    void givenClientAbort_whenFailed_thenReleaseInstanceWithoutPenaltyAndComplete() throws Exception {
+        filter.run();
+        ArgumentCaptor<AsyncForwarder.Handler> handler = ArgumentCaptor.forClass(AsyncForwarder.Handler.class);
+        verify(forwarder).forward(any(), any(), anyBoolean(), handler.capture());
+
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        handler.getValue().failed(asyncContext, new AsyncForwarder.ClientAbortedException(new IOException("reset")));
+
+        verify(loadAwareRule).requestCancelled(SERVER);
+        verify(loadAwareRule, never()).requestFailed(any());
+        verify(asyncContext).complete();
+        verify(asyncContext, never()).dispatch(anyString());
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.product.web.ConnectionPools;
+import org.zowe.apiml.security.ObservableConnectionManager;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolMetricsTest {
+
+    private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("host", 10010, "http"));
+
+    private ObservableConnectionManager connectionManager;
+    private ConnectionPools connectionPools;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        connectionManager = new ObservableConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory()).build(), -1);
+        connectionManager.setMaxTotal(10);
+        connectionManager.setDefaultMaxPerRoute(5);
+        connectionPools = new ConnectionPools();
+        connectionPools.register("shared", connectionManager);
+        registry = new SimpleMeterRegistry();
+        new ConnectionPoolMetrics(connectionPools).bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.shutdown();
+    }
+
+    private double gauge(String name, String route) {
+        if (route == null) {
+            return registry.get(ConnectionPoolMetrics.PREFIX + name).tag("pool", "shared").gauge().value();
+        }
+        return registry.get(ConnectionPoolMetrics.PREFIX + "route." + name).tag("route", route).gauge().value();
+    }
+
+    @Test
+    void givenLeasedConnection_whenReadMetrics_thenShowStateOfPoolAndRoute() throws Exception {
+        assertEquals(10, gauge("max", null));
+        assertEquals(0, gauge("leased", null));
+
+        HttpClientConnection connection = connectionManager.requestConnection(ROUTE, null).get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, gauge("leased", null));
+        assertEquals(1, gauge("leased", "http://host:10010"));
+        assertEquals(5, gauge("max", "http://host:10010"));
+        assertEquals(1, registry.get(ConnectionPoolMetrics.PREFIX + "lease").timer().count());
+
+        connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+        assertEquals(0, gauge("leased", "http://host:10010"));
+    }
+
+    @Test
+    void givenPoolRegisteredLater_whenBind_thenItIsObservedToo() throws Exception {
+        ObservableConnectionManager dedicated = new ObservableConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory()).build(), -1);
+        try {
+            connectionPools.register("service:dedicated", dedicated);
+            dedicated.requestConnection(ROUTE, null).get(1, TimeUnit.SECONDS);
+
+            assertEquals(1, registry.get(ConnectionPoolMetrics.PREFIX + "leased").tag("pool", "service:dedicated").gauge().value());
+            assertEquals(0, gauge("leased", null));
+        } finally {
+            dedicated.shutdown();
+        }
+    }
+
+}
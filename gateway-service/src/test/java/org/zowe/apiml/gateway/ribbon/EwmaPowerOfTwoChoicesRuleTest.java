@@ -0,0 +1,195 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EwmaPowerOfTwoChoicesRuleTest {
+
+    private EwmaPowerOfTwoChoicesRule rule;
+    private ILoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() {
+        rule = new EwmaPowerOfTwoChoicesRule(TimeUnit.SECONDS.toNanos(10));
+        loadBalancer = mock(ILoadBalancer.class);
+        rule.setLoadBalancer(loadBalancer);
+    }
+
+    private Server createServer(String host, boolean enabled) {
+        Map<String, String> metadata = new HashMap<>();
+        if (enabled) metadata.put(EwmaPowerOfTwoChoicesRule.METADATA_KEY, "EWMA");
+        InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+            .setAppName("service")
+            .setInstanceId(host + ":service:8080")
+            .setHostName(host)
+            .setPort(8080)
+            .setMetadata(metadata)
+            .build();
+        return new DiscoveryEnabledServer(instanceInfo, false);
+    }
+
+    private void setServers(Server...servers) {
+        List<Server> list = Arrays.asList(servers);
+        when(loadBalancer.getReachableServers()).thenReturn(list);
+        when(loadBalancer.getAllServers()).thenReturn(list);
+    }
+
+    @Test
+    void givenMetadata_whenIsEnabled_thenCheckStrategy() {
+        assertTrue(EwmaPowerOfTwoChoicesRule.isEnabled(createServer("host", true)));
+        assertFalse(EwmaPowerOfTwoChoicesRule.isEnabled(createServer("host", false)));
+        assertFalse(EwmaPowerOfTwoChoicesRule.isEnabled(new Server("host", 8080)));
+    }
+
+    @Test
+    void givenNoServers_whenChoose_thenReturnNull() {
+        setServers();
+        assertNull(rule.choose("key"));
+    }
+
+    @Test
+    void givenSlowInstance_whenChoose_thenFastInstanceIsUsed() {
+        Server slow = createServer("slow", true);
+        Server fast = createServer("fast", true);
+        setServers(slow, fast);
+
+        rule.requestStarted(slow);
+        rule.requestFinished(slow, TimeUnit.MILLISECONDS.toNanos(500));
+        rule.requestStarted(fast);
+        rule.requestFinished(fast, TimeUnit.MILLISECONDS.toNanos(5));
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(fast, rule.choose("key"));
+        }
+    }
+
+    @Test
+    void givenFastFailingInstance_whenChoose_thenHealthySlowerInstanceIsUsed() {
+        Server failing = createServer("failing", true);
+        Server healthy = createServer("healthy", true);
+        setServers(failing, healthy);
+
+        rule.requestStarted(healthy);
+        rule.requestFinished(healthy, TimeUnit.MILLISECONDS.toNanos(200));
+        rule.requestStarted(failing);
+        rule.requestFinished(failing, TimeUnit.MILLISECONDS.toNanos(5));
+        // the instance starts to refuse connections, it fails in a millisecond
+        rule.requestStarted(failing);
+        rule.requestFailed(failing);
+
+        assertEquals(0, rule.getOutstanding(failing));
+        assertTrue(rule.getCost(failing) >= TimeUnit.MILLISECONDS.toNanos(EwmaPowerOfTwoChoicesRule.FAILURE_PENALTY_MILLIS));
+        for (int i = 0; i < 100; i++) {
+            assertSame(healthy, rule.choose("key"));
+        }
+    }
+
+    @Test
+    void givenOutstandingRequests_whenChoose_thenLessLoadedInstanceIsUsed() {
+        Server busy = createServer("busy", true);
+        Server idle = createServer("idle", true);
+        setServers(busy, idle);
+
+        rule.requestStarted(busy);
+        rule.requestFinished(busy, 1000);
+        rule.requestStarted(idle);
+        rule.requestFinished(idle, 1000);
+        for (int i = 0; i < 3; i++) {
+            rule.requestStarted(busy);
+        }
+
+        assertEquals(3, rule.getOutstanding(busy));
+        assertTrue(rule.getCost(busy) > rule.getCost(idle));
+        for (int i = 0; i < 100; i++) {
+            assertSame(idle, rule.choose("key"));
+        }
+    }
+
+    @Test
+    void givenNewInstance_whenChoose_thenCompareOutstandingRequests() {
+        Server measured = createServer("measured", true);
+        Server fresh = createServer("fresh", true);
+        setServers(measured, fresh);
+
+        rule.requestStarted(measured);
+        rule.requestFinished(measured, 1000);
+        rule.requestStarted(fresh);
+        rule.requestStarted(fresh);
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(measured, rule.choose("key"));
+        }
+    }
+
+    @Test
+    void givenCancelledRequest_whenGetCost_thenOnlyOutstandingIsDecreased() {
+        Server server = createServer("host", true);
+        rule.requestStarted(server);
+        rule.requestFinished(server, 1000);
+        double cost = rule.getCost(server);
+
+        rule.requestStarted(server);
+        rule.requestCancelled(server);
+
+        assertEquals(0, rule.getOutstanding(server));
+        assertEquals(cost, rule.getCost(server));
+    }
+
+    @Test
+    void givenFinishedRequests_whenGetOutstanding_thenIsNotNegative() {
+        Server server = createServer("host", true);
+
+        rule.requestStarted(server);
+        rule.requestFinished(server, 1000);
+        rule.requestFinished(server, 1000);
+
+        assertEquals(0, rule.getOutstanding(server));
+    }
+
+    @Test
+    void givenServiceWithoutMetadata_whenChoose_thenDefaultRuleIsUsed() {
+        Server slow = createServer("slow", false);
+        Server fast = createServer("fast", false);
+        setServers(slow, fast);
+
+        rule.requestStarted(slow);
+        rule.requestFinished(slow, TimeUnit.MILLISECONDS.toNanos(500));
+        rule.requestStarted(fast);
+        rule.requestFinished(fast, TimeUnit.MILLISECONDS.toNanos(5));
+
+        // round robin of ZoneAvoidanceRule
+        assertNotSame(rule.choose("key"), rule.choose("key"));
+    }
+
+    @Test
+    void givenSingleServer_whenChoose_thenReturnIt() {
+        Server server = createServer("host", true);
+        when(loadBalancer.getReachableServers()).thenReturn(Collections.singletonList(server));
+        assertSame(server, rule.choose("key"));
+    }
+
+}
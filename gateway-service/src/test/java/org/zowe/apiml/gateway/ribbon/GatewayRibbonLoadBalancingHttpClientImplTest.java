@@ -11,14 +11,15 @@ package org.zowe.apiml.gateway.ribbon;/*
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import org.zowe.apiml.gateway.config.CacheConfig;
 import org.zowe.apiml.gateway.security.service.AuthenticationException;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.client.config.DefaultClientConfigImpl;
 import com.netflix.client.config.IClientConfig;
+import com.netflix.discovery.CacheRefreshedEvent;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.reactive.ExecutionContext;
 import com.netflix.loadbalancer.reactive.ExecutionInfo;
@@ -31,12 +32,10 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpRequest;
 import org.springframework.cloud.netflix.ribbon.apache.RibbonApacheHttpResponse;
 import org.springframework.cloud.netflix.ribbon.support.RibbonCommandContext;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
@@ -55,8 +54,7 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {
-    GatewayRibbonLoadBalancingHttpClientImplTest.Context.class,
-    CacheConfig.class
+    GatewayRibbonLoadBalancingHttpClientImplTest.Context.class
 })
 public class GatewayRibbonLoadBalancingHttpClientImplTest {
 
@@ -69,6 +67,9 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
     @Autowired
     private IClientConfig config;
 
+    @Autowired
+    private InstanceInfoIndex instanceInfoIndex;
+
     private InstanceInfo createInstanceInfo(String instanceId) {
         InstanceInfo out = mock(InstanceInfo.class);
         when(out.getInstanceId()).thenReturn(instanceId);
@@ -81,31 +82,6 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
         return out;
     }
 
-    @Test
-    public void testCache() {
-        InstanceInfo ii = mock(InstanceInfo.class);
-        bean.putInstanceInfo("service1", "host:service1:123", ii);
-
-        verify(discoveryClient, never()).getApplications(any());
-        assertSame(ii, bean.getInstanceInfo("service1", "host:service1:123"));
-
-        InstanceInfo ii1 = createInstanceInfo("host:service2:1");
-        InstanceInfo ii2 = createInstanceInfo("host:service2:2");
-        Application application = createApplication(ii1, ii2);
-        when(discoveryClient.getApplication("service2")).thenReturn(application);
-        assertSame(ii1, bean.getInstanceInfo("service2", "host:service2:1"));
-        assertSame(ii2, bean.getInstanceInfo("service2", "host:service2:2"));
-        verify(discoveryClient, times(1)).getApplication("service2");
-
-        bean.evictCacheService("service2");
-
-        assertSame(ii, bean.getInstanceInfo("service1", "host:service1:123"));
-        verify(discoveryClient, times(1)).getApplication("service2");
-
-        assertSame(ii2, bean.getInstanceInfo("service2", "host:service2:2"));
-        verify(discoveryClient, times(2)).getApplication("service2");
-    }
-
     private ExecutionListener<Object, RibbonApacheHttpResponse> getListener() {
         BuilderHolder builderHolder = new BuilderHolder();
         bean.customizeLoadBalancerCommandBuilder(mock(RibbonApacheHttpRequest.class), config, builderHolder.getBuilder());
@@ -135,7 +111,11 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
         InstanceInfo ii1 = createInstanceInfo("host:service3:1");
         InstanceInfo ii2 = createInstanceInfo("host:service3:2");
         Application application = createApplication(ii1, ii2);
-        when(discoveryClient.getApplication("service3")).thenReturn(application);
+        when(application.getName()).thenReturn("SERVICE3");
+        Applications applications = mock(Applications.class);
+        when(applications.getRegisteredApplications()).thenReturn(Collections.singletonList(application));
+        when(discoveryClient.getApplications()).thenReturn(applications);
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
         RibbonApacheHttpRequest request = mock(RibbonApacheHttpRequest.class);
         RibbonCommandContext ribbonCommandContext = mock(RibbonCommandContext.class);
         MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
@@ -168,10 +148,8 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
         assertNotNull(headers.get("testinstanceid"));
         assertEquals(1, headers.get("testinstanceid").size());
         assertEquals("host:service3:1", headers.get("testinstanceid").get(0));
-        verify(discoveryClient, times(1)).getApplication("service3");
-        bean.getInstanceInfo("service3", "host:service3:1");
-        bean.getInstanceInfo("service3", "host:service3:2");
-        verify(discoveryClient, times(1)).getApplication("service3");
+        // instances are read from the index, not from the registry
+        verify(discoveryClient, never()).getApplication("service3");
     }
 
     @Test
@@ -192,6 +170,33 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
         assertEquals("https://localhost:10014/apicatalog/", reconstructedURI.toString(),"URI is not same with expected");
     }
 
+    @Test
+    public void shouldReconstructURIWithServer_WhenPathIsEncodedAndHasQuery() throws URISyntaxException {
+        Server server = createServer("localhost", 10014, true, false, "defaultZone");
+
+        URI reconstructedURI = bean.reconstructURIWithServer(server, new URI("/apicatalog/a%20b%2Fc?x=1&y=%3D#top"));
+        assertEquals("https://localhost:10014/apicatalog/a%20b%2Fc?x=1&y=%3D#top", reconstructedURI.toString());
+
+        reconstructedURI = bean.reconstructURIWithServer(server, new URI("/apicatalog?"));
+        assertEquals("https://localhost:10014/apicatalog", reconstructedURI.toString());
+
+        reconstructedURI = bean.reconstructURIWithServer(server, new URI("http://user@otherhost:80/apicatalog?x"));
+        assertEquals("https://user@localhost:10014/apicatalog?x", reconstructedURI.toString());
+    }
+
+    @Test
+    public void shouldReconstructURIWithServer_WhenInstanceIsChanged() throws URISyntaxException {
+        URI request = new URI("/apicatalog/");
+
+        Server server = createServer("localhost", 10014, false, true, "defaultZone");
+        assertEquals("http://localhost:10014/apicatalog/", bean.reconstructURIWithServer(server, request).toString());
+        assertEquals("http://localhost:10014/apicatalog/", bean.reconstructURIWithServer(server, request).toString());
+
+        // the same instance registered again with the secure port only
+        server = createServer("localhost", 10014, true, false, "defaultZone");
+        assertEquals("https://localhost:10014/apicatalog/", bean.reconstructURIWithServer(server, request).toString());
+    }
+
     private DiscoveryEnabledServer createServer(String host,
                                                 int port,
                                                 boolean isSecureEnabled,
@@ -301,16 +306,19 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
             return mock(ServerIntrospector.class);
         }
 
+        @Bean
+        public InstanceInfoIndex instanceInfoIndex(EurekaClient discoveryClient) {
+            return new InstanceInfoIndex(discoveryClient);
+        }
+
         @Bean
         public GatewayRibbonLoadBalancingHttpClientTest ribbonLoadBalancingHttpClient(
             CloseableHttpClient secureHttpClient,
             IClientConfig config,
             ServerIntrospector serverIntrospector,
-            EurekaClient discoveryClient,
-            CacheManager cacheManager,
-            ApplicationContext applicationContext
+            InstanceInfoIndex instanceInfoIndex
         ) {
-            return new GatewayRibbonLoadBalancingHttpClientImplTestBean(secureHttpClient, config, serverIntrospector, discoveryClient, cacheManager, applicationContext);
+            return new GatewayRibbonLoadBalancingHttpClientImplTestBean(secureHttpClient, config, serverIntrospector, instanceInfoIndex);
         }
 
     }
@@ -329,10 +337,10 @@ public class GatewayRibbonLoadBalancingHttpClientImplTest {
          * @param secureHttpClient   custom http client for our certificates
          * @param config             configuration details
          * @param serverIntrospector introspector
-         * @param discoveryClient    using discovery client
+         * @param instanceInfoIndex  index of instances
          */
-        public GatewayRibbonLoadBalancingHttpClientImplTestBean(CloseableHttpClient secureHttpClient, IClientConfig config, ServerIntrospector serverIntrospector, EurekaClient discoveryClient, CacheManager cacheManager, ApplicationContext applicationContext) {
-            super(secureHttpClient, config, serverIntrospector, discoveryClient, cacheManager, applicationContext);
+        public GatewayRibbonLoadBalancingHttpClientImplTestBean(CloseableHttpClient secureHttpClient, IClientConfig config, ServerIntrospector serverIntrospector, InstanceInfoIndex instanceInfoIndex) {
+            super(secureHttpClient, config, serverIntrospector, instanceInfoIndex);
         }
 
         @Override
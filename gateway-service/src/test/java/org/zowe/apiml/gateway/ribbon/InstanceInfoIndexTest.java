@@ -0,0 +1,105 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.StatusChangeEvent;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstanceInfoIndexTest {
+
+    private EurekaClient discoveryClient;
+    private Applications applications;
+    private InstanceInfoIndex instanceInfoIndex;
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(EurekaClient.class);
+        applications = new Applications();
+        when(discoveryClient.getApplications()).thenReturn(applications);
+        when(discoveryClient.getApplication(anyString())).thenAnswer(x -> applications.getRegisteredApplications(x.getArgument(0)));
+        instanceInfoIndex = new InstanceInfoIndex(discoveryClient);
+    }
+
+    private InstanceInfo addInstance(String serviceId, String instanceId) {
+        InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+            .setAppName(serviceId)
+            .setVIPAddress(serviceId)
+            .setInstanceId(instanceId)
+            .setHostName("host")
+            .build();
+        Application application = applications.getRegisteredApplications(serviceId);
+        if (application == null) {
+            application = new Application(serviceId.toUpperCase());
+            applications.addApplication(application);
+        }
+        application.addInstance(instanceInfo);
+        return instanceInfo;
+    }
+
+    @Test
+    void givenIndex_whenCreated_thenListenerIsRegistered() {
+        verify(discoveryClient).registerEventListener(instanceInfoIndex);
+    }
+
+    @Test
+    void givenRefreshedRegistry_whenGet_thenReturnInstanceWithoutRegistryLookup() {
+        InstanceInfo instance1 = addInstance("service1", "host:service1:1");
+        InstanceInfo instance2 = addInstance("service1", "host:service1:2");
+        InstanceInfo sameId = addInstance("service2", "host:service1:1");
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
+
+        assertSame(instance1, instanceInfoIndex.get("service1", "host:service1:1"));
+        assertSame(instance2, instanceInfoIndex.get("SERVICE1", "host:service1:2"));
+        assertSame(sameId, instanceInfoIndex.get("service2", "host:service1:1"));
+        verify(discoveryClient, never()).getApplication(anyString());
+    }
+
+    @Test
+    void givenInstanceNotInIndex_whenGet_thenFindInRegistry() {
+        InstanceInfo instance = addInstance("service", "host:service:1");
+
+        assertSame(instance, instanceInfoIndex.get("service", "host:service:1"));
+        assertNull(instanceInfoIndex.get("service", "host:service:2"));
+        assertNull(instanceInfoIndex.get("unknown", "host:unknown:1"));
+        verify(discoveryClient, times(3)).getApplication(anyString());
+    }
+
+    @Test
+    void givenOtherEvent_whenOnEvent_thenIndexIsNotRebuilt() {
+        addInstance("service", "host:service:1");
+        instanceInfoIndex.onEvent(mock(StatusChangeEvent.class));
+
+        assertNotNull(instanceInfoIndex.get("service", "host:service:1"));
+        verify(discoveryClient, times(1)).getApplications();
+        verify(discoveryClient, times(1)).getApplication("service");
+    }
+
+    @Test
+    void givenRemovedInstance_whenRefreshed_thenIsNotInIndex() {
+        InstanceInfo instance = addInstance("service", "host:service:1");
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
+        assertSame(instance, instanceInfoIndex.get("service", "host:service:1"));
+
+        applications.getRegisteredApplications("service").removeInstance(instance);
+        instanceInfoIndex.onEvent(mock(CacheRefreshedEvent.class));
+
+        assertNull(instanceInfoIndex.get("service", "host:service:1"));
+    }
+
+}
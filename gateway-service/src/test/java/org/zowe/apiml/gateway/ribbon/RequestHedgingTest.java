@@ -0,0 +1,164 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestHedgingTest {
+
+    private HttpClient httpClient;
+    private HttpUriRequest primaryRequest;
+    private HttpUriRequest hedgedRequest;
+    private CountDownLatch primaryAborted;
+    private RequestHedging requestHedging;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpClient = mock(HttpClient.class);
+        primaryRequest = mock(HttpUriRequest.class);
+        hedgedRequest = mock(HttpUriRequest.class);
+
+        // the primary instance is stalled until the request is aborted
+        primaryAborted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            primaryAborted.countDown();
+            return null;
+        }).when(primaryRequest).abort();
+        when(httpClient.execute(primaryRequest)).thenAnswer(invocation -> {
+            if (!primaryAborted.await(5, TimeUnit.SECONDS)) return mock(CloseableHttpResponse.class);
+            throw new IOException("Request aborted");
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestHedging.destroy();
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private RequestHedging.Service createService(int budgetPercent, long minDelayMillis) {
+        requestHedging = new RequestHedging(budgetPercent, minDelayMillis);
+        RequestHedging.Service service = requestHedging.forService();
+        for (int i = 0; i < RequestHedging.MIN_SAMPLES; i++) {
+            service.recordLatency(TimeUnit.MILLISECONDS.toNanos(i < 95 ? 1 : 100));
+        }
+        return service;
+    }
+
+    @Test
+    void givenLatencies_whenGetDelay_thenUse95thPercentileOrMinimum() {
+        requestHedging = new RequestHedging(5, 20);
+        RequestHedging.Service service = requestHedging.forService();
+        assertEquals(-1, service.getDelayNanos());
+
+        for (int i = 1; i <= RequestHedging.MIN_SAMPLES; i++) {
+            service.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(95), service.getDelayNanos());
+
+        requestHedging.destroy();
+        service = createService(5, 20);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), service.getDelayNanos());
+    }
+
+    @Test
+    void givenStalledInstance_whenExecute_thenReturnHedgedResponseAndAbortPrimary() throws IOException {
+        RequestHedging.Service service = createService(100, 1);
+        HttpResponse hedgedResponse = mock(CloseableHttpResponse.class);
+        when(httpClient.execute(hedgedRequest)).thenReturn(hedgedResponse);
+
+        assertSame(hedgedResponse, service.execute(httpClient, primaryRequest, () -> hedgedRequest));
+        verify(primaryRequest).abort();
+    }
+
+    @Test
+    void givenHedgeWins_whenExecute_thenRecordAlsoLowerBoundOfPrimary() throws IOException {
+        RequestHedging.Service service = createService(100, 1);
+        when(httpClient.execute(hedgedRequest)).thenReturn(mock(CloseableHttpResponse.class));
+
+        service.execute(httpClient, primaryRequest, () -> hedgedRequest);
+
+        // the latency of the hedged request and the time the aborted primary request was running
+        assertEquals(RequestHedging.MIN_SAMPLES + 2, service.getSampleCount());
+    }
+
+    @Test
+    void givenFastInstance_whenExecute_thenDoNotHedge() throws IOException {
+        RequestHedging.Service service = createService(100, 5000);
+        HttpUriRequest fastRequest = mock(HttpUriRequest.class);
+        HttpResponse response = mock(CloseableHttpResponse.class);
+        when(httpClient.execute(fastRequest)).thenReturn(response);
+
+        assertSame(response, service.execute(httpClient, fastRequest, () -> hedgedRequest));
+        verify(httpClient, never()).execute(hedgedRequest);
+    }
+
+    @Test
+    void givenExhaustedBudget_whenExecute_thenDoNotHedge() throws IOException {
+        RequestHedging.Service service = createService(0, 1);
+        HttpResponse hedgedResponse = mock(CloseableHttpResponse.class);
+        when(httpClient.execute(hedgedRequest)).thenReturn(hedgedResponse);
+        // the primary request is not aborted by the hedged one, let it fail on its own
+        primaryAborted.countDown();
+
+        assertThrows(IOException.class, () -> service.execute(httpClient, primaryRequest, () -> hedgedRequest));
+        assertFalse(service.withdraw());
+        verify(httpClient, never()).execute(hedgedRequest);
+    }}
+
+    @Test
+    void givenPrimaryFinishedBeforeHedgeStarted_whenExecute_thenBudgetIsRefunded() throws IOException, InterruptedException {
+        RequestHedging.Service service = createService(100, 1);
+        CountDownLatch primaryReleased = new CountDownLatch(1);
+        HttpUriRequest slowRequest = mock(HttpUriRequest.class);
+        HttpResponse response = mock(CloseableHttpResponse.class);
+        when(httpClient.execute(slowRequest)).thenAnswer(invocation -> {
+            primaryReleased.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        // the primary request wins while the hedged request is being prepared
+        assertSame(response, service.execute(httpClient, slowRequest, () -> {
+            primaryReleased.countDown();
+            try {
+                waitFor(() -> service.getSampleCount() > RequestHedging.MIN_SAMPLES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return hedgedRequest;
+        }));
+
+        assertTrue(waitFor(service::withdraw));
+        verify(httpClient, never()).execute(hedgedRequest);
+    }
+
+}
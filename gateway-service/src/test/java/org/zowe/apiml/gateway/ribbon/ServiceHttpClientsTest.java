@@ -0,0 +1,105 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ribbon;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.product.web.ConnectionPools;
+import org.zowe.apiml.security.ConnectionPoolConfig;
+import org.zowe.apiml.security.HttpsFactory;
+import org.zowe.apiml.security.ObservableConnectionManager;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.*;
+
+class ServiceHttpClientsTest {
+
+    private EurekaClient discoveryClient;
+    private CloseableHttpClient sharedHttpClient;
+    private HttpsFactory httpsFactory;
+    private ConnectionPools connectionPools;
+    private ServiceHttpClients serviceHttpClients;
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(EurekaClient.class);
+        sharedHttpClient = mock(CloseableHttpClient.class);
+        httpsFactory = mock(HttpsFactory.class);
+        connectionPools = new ConnectionPools();
+        serviceHttpClients = new ServiceHttpClients(discoveryClient, sharedHttpClient, httpsFactory,
+            ConnectionPoolConfig.builder().build(), connectionPools);
+    }
+
+    private void register(String serviceId, Map<String, String> metadata) {
+        Application application = new Application(serviceId);
+        application.addInstance(InstanceInfo.Builder.newBuilder()
+            .setAppName(serviceId)
+            .setInstanceId("host:" + serviceId + ":10010")
+            .setHostName("host")
+            .setMetadata(metadata)
+            .build());
+        when(discoveryClient.getApplication(serviceId)).thenReturn(application);
+    }
+
+    @Test
+    void givenServiceWithoutPoolMetadata_whenGetHttpClient_thenReturnSharedClient() {
+        register("service", new HashMap<>());
+
+        assertSame(sharedHttpClient, serviceHttpClients.getHttpClient("service"));
+        assertSame(sharedHttpClient, serviceHttpClients.getHttpClient("unknown"));
+        verify(httpsFactory, never()).createConnectionManager(any());
+    }
+
+    @Test
+    void givenPoolMetadata_whenGetConnectionPoolConfig_thenOverrideGlobalSettings() {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(CONNECTION_POOL_MAX_PER_ROUTE, "50");
+        metadata.put(CONNECTION_POOL_TIME_TO_LIVE, " 60000 ");
+        metadata.put(CONNECTION_POOL_MAX_TOTAL, "invalid");
+        register("service", metadata);
+
+        ConnectionPoolConfig config = serviceHttpClients.getConnectionPoolConfig("service");
+        assertEquals(50, config.getMaxPerRoute());
+        assertEquals(60000, config.getTimeToLive());
+        assertEquals(100, config.getMaxTotal());
+        assertEquals(2000, config.getValidateAfterInactivity());
+    }
+
+    @Test
+    void givenPoolMetadata_whenGetHttpClient_thenCreateDedicatedClientOnce() throws IOException {
+        register("service", Collections.singletonMap(CONNECTION_POOL_MAX_PER_ROUTE, "50"));
+        ObservableConnectionManager connectionManager = mock(ObservableConnectionManager.class);
+        CloseableHttpClient dedicatedHttpClient = mock(CloseableHttpClient.class);
+        when(httpsFactory.createConnectionManager(any())).thenReturn(connectionManager);
+        when(httpsFactory.createSecureHttpClient(connectionManager, serviceHttpClients.getConnectionPoolConfig("service")))
+            .thenReturn(dedicatedHttpClient);
+
+        assertSame(dedicatedHttpClient, serviceHttpClients.getHttpClient("service"));
+        assertSame(dedicatedHttpClient, serviceHttpClients.getHttpClient("service"));
+        verify(httpsFactory, times(1)).createConnectionManager(any());
+        assertSame(connectionManager, connectionPools.get(ServiceHttpClients.POOL_NAME_PREFIX + "service"));
+
+        serviceHttpClients.destroy();
+        verify(dedicatedHttpClient).close();
+        verify(sharedHttpClient, never()).close();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.routing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.cloud.netflix.zuul.filters.discovery.SimpleServiceRouteMapper;
+import org.zowe.apiml.product.routing.RouteSnapshot;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ApimlRouteLocatorTest {
+
+    private DiscoveryClient discoveryClient;
+    private RouteSnapshotRegistry routeSnapshotRegistry;
+    private ApimlRouteLocator apimlRouteLocator;
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(DiscoveryClient.class);
+        routeSnapshotRegistry = new RouteSnapshotRegistry();
+        apimlRouteLocator = new ApimlRouteLocator("", discoveryClient, new ZuulProperties(), new SimpleServiceRouteMapper(), routeSnapshotRegistry);
+    }
+
+    private ServiceInstance createInstance(String serviceId, String instanceId, String...routes) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("apiml.service.title", instanceId);
+        for (int i = 0; i < routes.length; i += 2) {
+            metadata.put("apiml.routes.route" + i + ".gatewayUrl", routes[i]);
+            metadata.put("apiml.routes.route" + i + ".serviceUrl", routes[i + 1]);
+        }
+        return new DefaultServiceInstance(instanceId, serviceId, "localhost", 10010, true, metadata);
+    }
+
+    private void register(String serviceId, ServiceInstance...instances) {
+        when(discoveryClient.getInstances(serviceId)).thenReturn(Arrays.asList(instances));
+    }
+
+    @Test
+    void givenRegisteredServices_whenLocateRoutes_thenCreateRoutes() {
+        when(discoveryClient.getServices()).thenReturn(Arrays.asList("service1", "service2"));
+        register("service1", createInstance("service1", "service1-1", "api/v1", "/service1/api"));
+        register("service2", createInstance("service2", "service2-1"));
+
+        Map<String, ZuulProperties.ZuulRoute> routes = apimlRouteLocator.locateRoutes();
+
+        assertEquals("service1", routes.get("/api/v1/service1/**").getServiceId());
+        assertEquals("service2", routes.get("/service2/**").getServiceId());
+        RouteSnapshot snapshot = routeSnapshotRegistry.getSnapshot();
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(new HashSet<>(Arrays.asList("service1", "service2")), snapshot.getServiceIds());
+        assertEquals("/service1/api", snapshot.getRoutedServices("service1").findServiceByGatewayUrl("api/v1").getServiceUrl());
+    }
+
+    @Test
+    void givenUnchangedRouting_whenLocateRoutes_thenReuseRoutesOfService() {
+        when(discoveryClient.getServices()).thenReturn(Arrays.asList("service1", "service2"));
+        register("service1", createInstance("service1", "service1-1", "api/v1", "/service1/api"));
+        register("service2", createInstance("service2", "service2-1", "api/v1", "/service2/api"));
+        Map<String, ZuulProperties.ZuulRoute> routes1 = apimlRouteLocator.locateRoutes();
+        RouteSnapshot snapshot1 = routeSnapshotRegistry.getSnapshot();
+
+        // new instance with the same routing and changed other metadata of service1, routes of service2 are changed
+        register("service1",
+            createInstance("service1", "service1-1", "api/v1", "/service1/api"),
+            createInstance("service1", "service1-2", "api/v1", "/service1/api")
+        );
+        register("service2", createInstance("service2", "service2-1", "api/v2", "/service2/api"));
+        Map<String, ZuulProperties.ZuulRoute> routes2 = apimlRouteLocator.locateRoutes();
+
+        RouteSnapshot snapshot2 = routeSnapshotRegistry.getSnapshot();
+
+        assertEquals(snapshot1.getVersion() + 1, snapshot2.getVersion());
+        assertSame(snapshot1.getRoutedServices("service1"), snapshot2.getRoutedServices("service1"));
+        assertNotSame(snapshot1.getRoutedServices("service2"), snapshot2.getRoutedServices("service2"));
+        assertNotNull(routes1.get("/api/v1/service1/**"));
+        assertNotNull(routes2.get("/api/v1/service1/**"));
+        assertNotNull(routes1.get("/api/v1/service2/**"));
+        assertNull(routes2.get("/api/v1/service2/**"));
+        assertNotNull(routes2.get("/api/v2/service2/**"));
+    }
+
+    @Test
+    void givenUnchangedRouting_whenLocateRoutes_thenDoNotPublishSnapshot() {
+        when(discoveryClient.getServices()).thenReturn(Collections.singletonList("service1"));
+        register("service1", createInstance("service1", "service1-1", "api/v1", "/service1/api"));
+        apimlRouteLocator.locateRoutes();
+        RouteSnapshot snapshot = routeSnapshotRegistry.getSnapshot();
+
+        apimlRouteLocator.locateRoutes();
+
+        assertSame(snapshot, routeSnapshotRegistry.getSnapshot());
+    }
+
+    @Test
+    void givenMovedInstance_whenLocateRoutes_thenPublishNewAddresses() {
+        when(discoveryClient.getServices()).thenReturn(Collections.singletonList("service1"));
+        register("service1", createInstance("service1", "service1-1", "api/v1", "/service1/api"));
+        apimlRouteLocator.locateRoutes();
+        RouteSnapshot snapshot1 = routeSnapshotRegistry.getSnapshot();
+        assertEquals(Collections.singletonList("service1"), snapshot1.getServiceIdsByAddress("LOCALHOST:10010"));
+
+        register("service1", new DefaultServiceInstance("service1-1", "service1", "host2", 10011, true,
+            createInstance("service1", "service1-1", "api/v1", "/service1/api").getMetadata()));
+        apimlRouteLocator.locateRoutes();
+        RouteSnapshot snapshot2 = routeSnapshotRegistry.getSnapshot();
+
+        assertNotSame(snapshot1, snapshot2);
+        assertSame(snapshot1.getRoutedServices("service1"), snapshot2.getRoutedServices("service1"));
+        assertTrue(snapshot2.getServiceIdsByAddress("localhost:10010").isEmpty());
+        assertEquals(Collections.singletonList("service1"), snapshot2.getServiceIdsByAddress("host2:10011"));
+    }
+
+    @Test
+    void givenRemovedService_whenRegisteredAgain_thenPublishSnapshots() {
+        register("service1", createInstance("service1", "service1-1", "api/v1", "/service1/api"));
+        when(discoveryClient.getServices()).thenReturn(Collections.singletonList("service1"));
+        apimlRouteLocator.locateRoutes();
+
+        when(discoveryClient.getServices()).thenReturn(Collections.emptyList());
+        assertNull(apimlRouteLocator.locateRoutes().get("/api/v1/service1/**"));
+        assertNull(routeSnapshotRegistry.getRoutedServices("service1"));
+
+        when(discoveryClient.getServices()).thenReturn(Collections.singletonList("service1"));
+        assertNotNull(apimlRouteLocator.locateRoutes().get("/api/v1/service1/**"));
+        assertNotNull(routeSnapshotRegistry.getRoutedServices("service1"));
+        assertEquals(3, routeSnapshotRegistry.getSnapshot().getVersion());
+    }
+
+}
@@ -17,23 +17,25 @@ import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.gateway.security.service.token.InvalidatedTokenStore;
+import org.zowe.apiml.gateway.security.service.token.InvalidationBroadcaster;
+import org.zowe.apiml.gateway.security.service.token.JwtTokenIssuer;
+import org.zowe.apiml.gateway.security.service.token.JwtValidationCache;
 import org.zowe.apiml.security.SecurityUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.netflix.discovery.EurekaClient;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.mockito.Mock;
-import org.springframework.context.ApplicationContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
-import org.springframework.web.client.RestTemplate;
 
 import java.security.Key;
 import java.security.KeyPair;
 import java.security.PublicKey;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -47,17 +49,9 @@ public class SuccessfulQueryHandlerTest {
     private static final String DOMAIN = "this.com";
     private static final String LTPA = "ltpaToken";
 
-    @Mock
-    private ApplicationContext applicationContext;
-
     @Mock
     private JwtSecurityInitializer jwtSecurityInitializer;
 
-    @Mock
-    private RestTemplate restTemplate;
-
-    @Mock
-    private EurekaClient discoveryClient;
 
     @BeforeEach
     public void setup() {
@@ -73,7 +67,9 @@ public class SuccessfulQueryHandlerTest {
             privateKey = keyPair.getPrivate();
             publicKey = keyPair.getPublic();
         }
-        AuthenticationService authenticationService = new AuthenticationService(applicationContext, authConfigurationProperties, jwtSecurityInitializer, discoveryClient, restTemplate);
+        AuthenticationService authenticationService = new AuthenticationService(authConfigurationProperties, jwtSecurityInitializer,
+            new JwtValidationCache(authConfigurationProperties), mock(InvalidatedTokenStore.class), mock(InvalidationBroadcaster.class),
+            new JwtTokenIssuer(authConfigurationProperties, jwtSecurityInitializer));
         when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(algorithm);
         when(jwtSecurityInitializer.getJwtSecret()).thenReturn(privateKey);
         when(jwtSecurityInitializer.getJwtPublicKey()).thenReturn(publicKey);
@@ -20,29 +20,29 @@ import org.zowe.apiml.security.common.token.TokenAuthentication;
 import org.zowe.apiml.security.common.token.TokenExpireException;
 import org.zowe.apiml.security.common.token.TokenNotValidException;
 import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.security.service.token.InvalidatedTokenStore;
+import org.zowe.apiml.gateway.security.service.token.InvalidationBroadcaster;
+import org.zowe.apiml.gateway.security.service.token.JwtTokenIssuer;
+import org.zowe.apiml.gateway.security.service.token.JwtValidationCache;
 import org.zowe.apiml.security.SecurityUtils;
-import com.netflix.appinfo.ApplicationInfoManager;
-import com.netflix.appinfo.InstanceInfo;
-import com.netflix.discovery.EurekaClient;
-import com.netflix.discovery.shared.Application;
+import com.netflix.zuul.context.RequestContext;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.apache.commons.lang.time.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.context.ContextConfiguration;
-import org.springframework.web.client.RestTemplate;
 
 import javax.servlet.http.Cookie;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.security.Key;
 import java.security.KeyPair;
 import java.security.PublicKey;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -73,10 +73,7 @@ public class AuthenticationServiceTest {
     private JwtSecurityInitializer jwtSecurityInitializer;
 
     @Autowired
-    private RestTemplate restTemplate;
-
-    @Autowired
-    private EurekaClient discoveryClient;
+    private InvalidationBroadcaster invalidationBroadcaster;
 
     private void mockJwtSecurityInitializer() {
         KeyPair keyPair = SecurityUtils.generateKeyPair("RSA", 2048);
@@ -221,6 +218,61 @@ public class AuthenticationServiceTest {
         });
     }
 
+    @Test
+    public void shouldVerifyTokenOfZuulRequestJustOnce() {
+        String jwtToken = authService.createJwtToken(USER, DOMAIN, LTPA);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtToken);
+
+        RequestContext context = RequestContext.getCurrentContext();
+        context.clear();
+        context.setRequest(request);
+        try {
+            clearInvocations(jwtSecurityInitializer);
+
+            assertEquals(jwtToken, authService.getJwtTokenFromRequest(request).orElse(null));
+            assertEquals(USER, authService.parseJwtToken(jwtToken).getUserId());
+            assertEquals(LTPA, authService.getLtpaTokenFromJwtToken(jwtToken));
+            assertEquals(jwtToken, authService.getJwtTokenFromRequest(request).orElse(null));
+            assertEquals(DOMAIN, authService.parseJwtToken(jwtToken).getDomain());
+            verify(jwtSecurityInitializer, times(1)).getJwtPublicKey();
+
+            // token which does not belong to the request is verified as before
+            String otherToken = authService.createJwtToken("user02", DOMAIN, LTPA);
+            authService.parseJwtToken(otherToken);
+            verify(jwtSecurityInitializer, times(2)).getJwtPublicKey();
+
+            // another request does not use the context
+            context.setRequest(new MockHttpServletRequest());
+            assertFalse(authService.getJwtTokenFromRequest(context.getRequest()).isPresent());
+            authService.parseJwtToken(jwtToken);
+            verify(jwtSecurityInitializer, times(3)).getJwtPublicKey();
+        } finally {
+            context.unset();
+        }
+    }
+
+    @Test
+    public void shouldRememberInvalidTokenOfZuulRequest() {
+        String brokenToken = authService.createJwtToken(USER, DOMAIN, LTPA) + "not";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + brokenToken);
+
+        RequestContext context = RequestContext.getCurrentContext();
+        context.clear();
+        context.setRequest(request);
+        try {
+            clearInvocations(jwtSecurityInitializer);
+
+            assertTrue(authService.getJwtTokenFromRequest(request).isPresent());
+            assertThrows(TokenNotValidException.class, () -> authService.parseJwtToken(brokenToken));
+            assertThrows(TokenNotValidException.class, () -> authService.getLtpaTokenFromJwtToken(brokenToken));
+            verify(jwtSecurityInitializer, times(1)).getJwtPublicKey();
+        } finally {
+            context.unset();
+        }
+    }
+
     private String createExpiredJwtToken(Key secretKey) {
         long expiredTimeMillis = System.currentTimeMillis() - 1000;
 
@@ -231,49 +283,50 @@ public class AuthenticationServiceTest {
             .compact();
     }
 
-    private InstanceInfo createInstanceInfo(String instanceId, String hostName, int port, int securePort) {
-        InstanceInfo out = mock(InstanceInfo.class);
-        when(out.getInstanceId()).thenReturn(instanceId);
-        when(out.getHostName()).thenReturn(hostName);
-        when(out.getPort()).thenReturn(port);
-        when(out.getSecurePort()).thenReturn(securePort);
-        return out;
-    }
-
     @Test
     public void invalidateToken() {
         TokenAuthentication tokenAuthentication;
 
-        reset(discoveryClient);
-        reset(restTemplate);
+        reset(invalidationBroadcaster);
 
         String jwt1 = authService.createJwtToken("user1", "domain1", "ltpa1");
         assertFalse(authService.isInvalidated(jwt1));
         tokenAuthentication = authService.validateJwtToken(jwt1);
         assertTrue(tokenAuthentication.isAuthenticated());
 
-        InstanceInfo myInstance = mock(InstanceInfo.class);
-        when(myInstance.getInstanceId()).thenReturn("myInstance01");
-        ApplicationInfoManager applicationInfoManager = mock(ApplicationInfoManager.class);
-        when(applicationInfoManager.getInfo()).thenReturn(myInstance);
-        when(discoveryClient.getApplicationInfoManager()).thenReturn(applicationInfoManager);
-
-        Application application = mock(Application.class);
-        List<InstanceInfo> instances = Arrays.asList(
-            createInstanceInfo("instance02", "hostname1", 10000, 10433),
-            createInstanceInfo("myInstance01", "localhost", 10000, 10433),
-            createInstanceInfo("instance03", "hostname2", 10001, 0)
-        );
-        when(application.getInstances()).thenReturn(instances);
-        when(discoveryClient.getApplication("gateway")).thenReturn(application);
-
         authService.invalidateJwtToken(jwt1, true);
         assertTrue(authService.isInvalidated(jwt1));
         tokenAuthentication = authService.validateJwtToken(jwt1);
         assertFalse(tokenAuthentication.isAuthenticated());
-        verify(restTemplate, times(2)).delete(anyString(), (Object[]) any());
-        verify(restTemplate).delete("https://hostname1:10433/auth/invalidate/{}", jwt1);
-        verify(restTemplate).delete("http://hostname2:10001/auth/invalidate/{}", jwt1);
+        verify(invalidationBroadcaster, times(1)).broadcast(eq(jwt1), anyLong());
+
+        // already invalidated token is not distributed again
+        authService.invalidateJwtToken(jwt1, true);
+        verify(invalidationBroadcaster, times(1)).broadcast(anyString(), anyLong());
+    }
+
+    @Test
+    public void invalidateTokenFromAnotherInstance() {
+        reset(invalidationBroadcaster);
+
+        String jwt = authService.createJwtToken("user2", "domain2", "ltpa2");
+        assertTrue(authService.invalidateJwtToken(jwt, false));
+        assertTrue(authService.isInvalidated(jwt));
+        verify(invalidationBroadcaster, never()).broadcast(anyString(), anyLong());
+    }
+
+    @Test
+    public void invalidateExpiredOrNotValidToken() {
+        reset(invalidationBroadcaster);
+
+        String expired = createExpiredJwtToken(privateKey);
+        assertTrue(authService.invalidateJwtToken(expired, true));
+        assertFalse(authService.isInvalidated(expired));
+
+        assertTrue(authService.invalidateJwtToken("notValidToken", true));
+        assertFalse(authService.isInvalidated("notValidToken"));
+
+        verify(invalidationBroadcaster, never()).broadcast(anyString(), anyLong());
     }
 
     @Test
@@ -301,16 +354,23 @@ public class AuthenticationServiceTest {
         assertTrue(authService.validateJwtToken(jwtToken02).isAuthenticated());
         verify(jwtSecurityInitializer, times(2)).getJwtPublicKey();
 
+        // invalidation is stored in the validation cache, signature is not verified again
         assertFalse(authService.validateJwtToken(jwtToken01).isAuthenticated());
-        verify(jwtSecurityInitializer, times(3)).getJwtPublicKey();
+        verify(jwtSecurityInitializer, times(2)).getJwtPublicKey();
+    }
+
+    @Test
+    public void invalidatedTokenIsNotAuthenticatedWithoutPreviousValidation() {
+        String jwtToken = authService.createJwtToken("user03", "domain03", "ltpa03");
+
+        authService.invalidateJwtToken(jwtToken, false);
+        assertFalse(authService.validateJwtToken(jwtToken).isAuthenticated());
+        assertFalse(authService.validateJwtToken(jwtToken).isAuthenticated());
     }
 
     @Configuration
     public static class Context {
 
-        @Autowired
-        private ApplicationContext applicationContext;
-
         @Bean
         public AuthConfigurationProperties getAuthConfigurationProperties() {
             return new AuthConfigurationProperties();
@@ -322,18 +382,30 @@ public class AuthenticationServiceTest {
         }
 
         @Bean
-        public RestTemplate getRestTemplate() {
-            return mock(RestTemplate.class);
+        public InvalidationBroadcaster getInvalidationBroadcaster() {
+            return mock(InvalidationBroadcaster.class);
+        }
+
+        @Bean
+        public JwtValidationCache getJwtValidationCache() {
+            return new JwtValidationCache(getAuthConfigurationProperties());
+        }
+
+        @Bean
+        public InvalidatedTokenStore getInvalidatedTokenStore() throws IOException {
+            File directory = Files.createTempDirectory("invalidatedTokens").toFile();
+            directory.deleteOnExit();
+            return new InvalidatedTokenStore(directory);
         }
 
         @Bean
-        public EurekaClient getDiscoveryClient() {
-            return mock(EurekaClient.class);
+        public JwtTokenIssuer getJwtTokenIssuer() {
+            return new JwtTokenIssuer(getAuthConfigurationProperties(), getJwtSecurityInitializer());
         }
 
         @Bean
-        public AuthenticationService getAuthenticationService() {
-            return new AuthenticationService(applicationContext, getAuthConfigurationProperties(), getJwtSecurityInitializer(), getDiscoveryClient(), getRestTemplate());
+        public AuthenticationService getAuthenticationService() throws IOException {
+            return new AuthenticationService(getAuthConfigurationProperties(), getJwtSecurityInitializer(), getJwtValidationCache(), getInvalidatedTokenStore(), getInvalidationBroadcaster(), getJwtTokenIssuer());
         }
 
     }
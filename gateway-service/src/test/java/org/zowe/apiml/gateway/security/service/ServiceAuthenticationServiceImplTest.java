@@ -14,6 +14,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.zowe.apiml.cache.TypedCacheManager;
 import org.zowe.apiml.security.common.auth.Authentication;
 import org.zowe.apiml.security.common.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.token.QueryResponse;
@@ -27,7 +28,6 @@ import com.netflix.zuul.context.RequestContext;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
@@ -64,8 +64,6 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
     @Autowired
     private ServiceAuthenticationService serviceAuthenticationService;
 
-    @Autowired
-    private CacheManager cacheManager;
 
     /**
      * secondary instance to check protected methods
@@ -79,7 +77,7 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
         RequestContext.testSetCurrentContext(null);
         serviceAuthenticationService.evictCacheAllService();
 
-        serviceAuthenticationServiceImpl = new ServiceAuthenticationServiceImpl(discoveryClient, authenticationSchemeFactory, authenticationService, cacheManager);
+        serviceAuthenticationServiceImpl = new ServiceAuthenticationServiceImpl(discoveryClient, authenticationSchemeFactory, authenticationService, new TypedCacheManager());
     }
 
     @AfterEach
@@ -205,26 +203,31 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
 
         // multiple different instances
         reset(discoveryClient);
+        sas.evictCacheService("svr03");
         application = createApplication(ii1, ii2);
         when(discoveryClient.getApplication("svr03")).thenReturn(application);
         assertTrue(sas.getAuthenticationCommand("svr03", "jwt03") instanceof ServiceAuthenticationServiceImpl.LoadBalancerAuthenticationCommand);
 
         reset(discoveryClient);
+        sas.evictCacheService("svr03");
         application = createApplication(ii1, ii3);
         when(discoveryClient.getApplication("svr03")).thenReturn(application);
         assertTrue(sas.getAuthenticationCommand("svr03", "jwt03") instanceof ServiceAuthenticationServiceImpl.LoadBalancerAuthenticationCommand);
 
         reset(discoveryClient);
+        sas.evictCacheService("svr03");
         application = createApplication(ii1, ii4);
         when(discoveryClient.getApplication("svr03")).thenReturn(application);
         assertTrue(sas.getAuthenticationCommand("svr03", "jwt03") instanceof ServiceAuthenticationServiceImpl.LoadBalancerAuthenticationCommand);
 
         reset(discoveryClient);
+        sas.evictCacheService("svr03");
         application = createApplication(ii1, ii2, ii3, ii4);
         when(discoveryClient.getApplication("svr03")).thenReturn(application);
         assertTrue(sas.getAuthenticationCommand("svr03", "jwt03") instanceof ServiceAuthenticationServiceImpl.LoadBalancerAuthenticationCommand);
 
         reset(discoveryClient);
+        sas.evictCacheService("svr03");
         when(discoveryClient.getInstancesById("svr03")).thenReturn(Collections.singletonList(ii5));
         assertSame(AuthenticationCommand.EMPTY, sas.getAuthenticationCommand("svr03", "jwt03"));
 
@@ -317,29 +320,59 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
         verify(discoveryClient, times(1)).getApplication("service0001");
         verify(discoveryClient, never()).getApplication("service0002");
 
+        // authentication profile of service is indexed, other token does not require discovery client
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0001", "jwt02"));
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0002", "jwt01"));
-        verify(discoveryClient, times(2)).getApplication("service0001");
+        verify(discoveryClient, times(1)).getApplication("service0001");
         verify(discoveryClient, times(1)).getApplication("service0002");
 
         serviceAuthenticationService.evictCacheService("service0001");
 
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0001", "jwt01"));
-        verify(discoveryClient, times(3)).getApplication("service0001");
+        verify(discoveryClient, times(2)).getApplication("service0001");
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0001", "jwt02"));
-        verify(discoveryClient, times(4)).getApplication("service0001");
+        verify(discoveryClient, times(2)).getApplication("service0001");
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0002", "jwt01"));
         verify(discoveryClient, times(1)).getApplication("service0002");
 
         serviceAuthenticationService.evictCacheAllService();
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0001", "jwt01"));
-        verify(discoveryClient, times(5)).getApplication("service0001");
+        verify(discoveryClient, times(3)).getApplication("service0001");
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0001", "jwt02"));
-        verify(discoveryClient, times(6)).getApplication("service0001");
+        verify(discoveryClient, times(3)).getApplication("service0001");
         assertSame(command, serviceAuthenticationService.getAuthenticationCommand("service0002", "jwt01"));
         verify(discoveryClient, times(2)).getApplication("service0002");
     }
 
+    @Test
+    public void testServiceAuthenticationIndex() throws Exception {
+        Authentication a1 = new Authentication(AuthenticationScheme.HTTP_BASIC_PASSTICKET, "applid01");
+        Authentication a2 = new Authentication(AuthenticationScheme.ZOWE_JWT, null);
+        Application application = createApplication(createInstanceInfo("inst01", a1), createInstanceInfo("inst02", a1));
+        when(discoveryClient.getApplication("svr01")).thenReturn(application);
+
+        ServiceAuthenticationServiceImpl.ServiceAuthentication uniform = serviceAuthenticationServiceImpl.createServiceAuthentication("svr01");
+        assertTrue(uniform.isUniform());
+        assertEquals(a1, uniform.getAuthentication());
+
+        application = createApplication(createInstanceInfo("inst01", a1), createInstanceInfo("inst02", a2));
+        when(discoveryClient.getApplication("svr02")).thenReturn(application);
+        assertFalse(serviceAuthenticationServiceImpl.createServiceAuthentication("svr02").isUniform());
+
+        assertTrue(serviceAuthenticationServiceImpl.createServiceAuthentication("unknown").isEmpty());
+
+        // changed registry is visible only after eviction of the service
+        AbstractAuthenticationScheme scheme = mock(AbstractAuthenticationScheme.class);
+        when(authenticationSchemeFactory.getSchema(any())).thenReturn(scheme);
+        when(scheme.createCommand(any(), any())).thenReturn(AuthenticationCommand.EMPTY);
+        assertSame(AuthenticationCommand.EMPTY, serviceAuthenticationServiceImpl.getAuthenticationCommand("svr01", "jwt01"));
+        when(discoveryClient.getApplication("svr01")).thenReturn(application);
+        assertSame(AuthenticationCommand.EMPTY, serviceAuthenticationServiceImpl.getAuthenticationCommand("svr01", "jwt02"));
+        serviceAuthenticationServiceImpl.evictCacheService("SVR01");
+        assertTrue(serviceAuthenticationServiceImpl.getAuthenticationCommand("svr01", "jwt02") instanceof ServiceAuthenticationServiceImpl.LoadBalancerAuthenticationCommand);
+        verify(discoveryClient, times(3)).getApplication("svr01");
+    }
+
     @Test
     public void testNoApplication() throws Exception {
         when(discoveryClient.getApplication(any())).thenReturn(null);
@@ -386,8 +419,8 @@ public class ServiceAuthenticationServiceImplTest extends CurrentRequestContextT
         }
 
         @Bean
-        public ServiceAuthenticationService getServiceAuthenticationService(@Autowired CacheManager cacheManager) {
-            return new ServiceAuthenticationServiceImpl(getDiscoveryClient(), getAuthenticationSchemeFactory(), getAuthenticationService(), cacheManager);
+        public ServiceAuthenticationService getServiceAuthenticationService(@Autowired TypedCacheManager typedCacheManager) {
+            return new ServiceAuthenticationServiceImpl(getDiscoveryClient(), getAuthenticationSchemeFactory(), getAuthenticationService(), typedCacheManager);
         }
 
     }
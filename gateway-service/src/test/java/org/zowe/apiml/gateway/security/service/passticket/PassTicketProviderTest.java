@@ -0,0 +1,196 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.passticket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.zowe.apiml.passticket.PassTicketService.DefaultPassTicketImpl.UNKNOWN_USER;
+
+class PassTicketProviderTest {
+
+    private AuthConfigurationProperties authConfigurationProperties;
+    private PassTicketService passTicketService;
+    private PassTicketProvider passTicketProvider;
+
+    @BeforeEach
+    void setUp() {
+        authConfigurationProperties = new AuthConfigurationProperties();
+        passTicketService = spy(new PassTicketService());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (passTicketProvider != null) passTicketProvider.destroy();
+    }
+
+    private void createProvider(int timeout, int refreshAheadInSeconds) {
+        authConfigurationProperties.getPassTicket().setTimeout(timeout);
+        authConfigurationProperties.getPassTicket().setRefreshAheadInSeconds(refreshAheadInSeconds);
+        passTicketProvider = new PassTicketProvider(passTicketService, authConfigurationProperties);
+        passTicketProvider.afterPropertiesSet();
+    }
+
+    @Test
+    void givenValidTicket_whenGet_thenReturnCachedOne() throws Exception {
+        createProvider(540, 60);
+
+        PassTicketProvider.Ticket ticket1 = passTicketProvider.get("userA", "APPLID");
+        PassTicketProvider.Ticket ticket2 = passTicketProvider.get("userA", "APPLID");
+        PassTicketProvider.Ticket ticket3 = passTicketProvider.get("userB", "APPLID");
+
+        assertSame(ticket1, ticket2);
+        assertNotEquals(ticket1.getPassTicket(), ticket3.getPassTicket());
+        assertTrue(ticket1.getExpireAt() > System.currentTimeMillis() + 500_000L);
+        verify(passTicketService, times(1)).generate("userA", "APPLID");
+        verify(passTicketService, times(1)).generate("userB", "APPLID");
+        assertEquals(2, passTicketProvider.getGenerationCount());
+    }
+
+    @Test
+    void givenConcurrentRequests_whenGet_thenGenerateJustOnce() throws Exception {
+        CountDownLatch generating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            generating.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(passTicketService).generate(anyString(), anyString());
+        createProvider(540, 60);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PassTicketProvider.Ticket>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> passTicketProvider.get("userC", "APPLID")));
+            }
+            assertTrue(generating.await(10, TimeUnit.SECONDS));
+            release.countDown();
+
+            PassTicketProvider.Ticket first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<PassTicketProvider.Ticket> future : futures) {
+                assertSame(first, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(passTicketService, times(1)).generate("userC", "APPLID");
+    }
+
+    @Test
+    void givenUnknownUser_whenGet_thenThrowException() throws Exception {
+        createProvider(540, 60);
+
+        assertThrows(IRRPassTicketGenerationException.class, () -> passTicketProvider.get(UNKNOWN_USER, "APPLID"));
+        assertThrows(IRRPassTicketGenerationException.class, () -> passTicketProvider.get(UNKNOWN_USER, "APPLID"));
+
+        // failures are not cached
+        verify(passTicketService, times(2)).generate(UNKNOWN_USER, "APPLID");
+        assertEquals(2, passTicketProvider.getFailureCount());
+        assertEquals(0, passTicketProvider.getQueueDepth());
+        assertEquals(0, passTicketProvider.getCachedCount());
+    }
+
+    @Test
+    void givenFullQueue_whenGet_thenRejectImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(passTicketService).generate(anyString(), anyString());
+        authConfigurationProperties.getPassTicket().setMaxConcurrentGenerations(1);
+        authConfigurationProperties.getPassTicket().setMaxQueuedGenerations(1);
+        createProvider(540, 60);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the first generation is running, the second one waits in the queue
+            Future<PassTicketProvider.Ticket> running = executor.submit(() -> passTicketProvider.get("userF", "APPLID"));
+            verify(passTicketService, timeout(5000)).generate("userF", "APPLID");
+            Future<PassTicketProvider.Ticket> queued = executor.submit(() -> passTicketProvider.get("userG", "APPLID"));
+            for (int i = 0; (i < 500) && (passTicketProvider.getQueueDepth() == 0); i++) Thread.sleep(10);
+            assertEquals(1, passTicketProvider.getQueueDepth());
+
+            assertThrows(PassTicketProvider.UnavailableException.class, () -> passTicketProvider.get("userH", "APPLID"));
+            assertEquals(2, passTicketProvider.getCachedCount());
+
+            release.countDown();
+            assertNotNull(running.get(10, TimeUnit.SECONDS));
+            assertNotNull(queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(passTicketService, never()).generate("userH", "APPLID");
+    }
+
+    @Test
+    void givenSlowGeneration_whenGet_thenTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(passTicketService).generate(anyString(), anyString());
+        authConfigurationProperties.getPassTicket().setGenerationTimeoutInSeconds(1);
+        createProvider(540, 60);
+
+        assertThrows(PassTicketProvider.UnavailableException.class, () -> passTicketProvider.get("userI", "APPLID"));
+
+        // the generation was not cancelled, next request gets its result
+        release.countDown();
+        assertNotNull(passTicketProvider.get("userI", "APPLID"));
+        verify(passTicketService, times(1)).generate("userI", "APPLID");
+    }
+
+    @Test
+    void givenUsedTicket_whenExpirationIsNear_thenRefreshInBackground() throws Exception {
+        createProvider(2, 1);
+
+        PassTicketProvider.Ticket ticket = passTicketProvider.get("userD", "APPLID");
+        // the ticket is used again (cache hit), so it is worth to refresh it
+        assertSame(ticket, passTicketProvider.get("userD", "APPLID"));
+
+        // refresh is planned one second before the expiration
+        verify(passTicketService, timeout(3000).times(2)).generate("userD", "APPLID");
+        PassTicketProvider.Ticket refreshed = ticket;
+        for (int i = 0; (i < 100) && (refreshed == ticket); i++) {
+            Thread.sleep(10);
+            refreshed = passTicketProvider.get("userD", "APPLID");
+        }
+        assertNotEquals(ticket.getPassTicket(), refreshed.getPassTicket());
+        assertTrue(refreshed.getExpireAt() > ticket.getExpireAt());
+    }
+
+    @Test
+    void givenUnusedTicket_whenExpirationIsNear_thenForgetIt() throws Exception {
+        createProvider(2, 1);
+
+        passTicketProvider.get("userE", "APPLID");
+        verify(passTicketService, times(1)).generate("userE", "APPLID");
+
+        // the ticket was not used again, instead of refresh it is removed (before its expiration)
+        Thread.sleep(1500);
+        verify(passTicketService, times(1)).generate("userE", "APPLID");
+
+        passTicketProvider.get("userE", "APPLID");
+        verify(passTicketService, times(2)).generate("userE", "APPLID");
+    }
+
+}
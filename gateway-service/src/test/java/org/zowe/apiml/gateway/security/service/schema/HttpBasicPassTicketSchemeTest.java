@@ -9,9 +9,11 @@
  */
 package org.zowe.apiml.gateway.security.service.schema;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.zowe.apiml.gateway.security.service.AuthenticationException;
+import org.zowe.apiml.gateway.security.service.passticket.PassTicketProvider;
 import org.zowe.apiml.security.common.auth.Authentication;
 import org.zowe.apiml.security.common.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -31,12 +33,20 @@ import static org.junit.Assert.assertEquals;
 
 public class HttpBasicPassTicketSchemeTest extends CleanCurrentRequestContextTest {
     private final AuthConfigurationProperties authConfigurationProperties = new AuthConfigurationProperties();
+    private PassTicketProvider passTicketProvider;
     private HttpBasicPassTicketScheme httpBasicPassTicketScheme;
 
     @BeforeEach
     public void init() {
         PassTicketService passTicketService = new PassTicketService();
-        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(passTicketService, authConfigurationProperties);
+        passTicketProvider = new PassTicketProvider(passTicketService, authConfigurationProperties);
+        passTicketProvider.afterPropertiesSet();
+        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(passTicketProvider);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        passTicketProvider.destroy();
     }
 
     @Test
@@ -75,8 +85,10 @@ public class HttpBasicPassTicketSchemeTest extends CleanCurrentRequestContextTes
 
         calendar = Calendar.getInstance();
         calendar.add(Calendar.SECOND, authConfigurationProperties.getPassTicket().getTimeout());
-        // checking setup of expired time, JWT expired in future (more than hour), check if set date is similar to passticket timeout (5s)
-        assertEquals(0.0, Math.abs(calendar.getTime().getTime() - (long) ReflectionTestUtils.getField(ac, "expireAt")), 10.0);
+        // checking setup of expired time, JWT expired in future (more than hour), command expires with the PassTicket
+        long expireAt = (long) ReflectionTestUtils.getField(ac, "expireAt");
+        assertEquals(passTicketProvider.get("username", "applid").getExpireAt(), expireAt);
+        assertTrue(expireAt <= calendar.getTimeInMillis());
     }
 
     @Test
@@ -0,0 +1,69 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountingBloomFilterTest {
+
+    @Test
+    public void givenAddedHash_whenMightContain_thenTrue() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+
+        for (int i = 0; i < 100; i++) {
+            filter.add(TokenHash.of("token" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.mightContain(TokenHash.of("token" + i)));
+        }
+    }
+
+    @Test
+    public void givenRemovedHash_whenMightContain_thenFalse() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        TokenHash hash = TokenHash.of("token");
+
+        assertFalse(filter.mightContain(hash));
+        filter.add(hash);
+        assertTrue(filter.mightContain(hash));
+        filter.remove(hash);
+        assertFalse(filter.mightContain(hash));
+
+        // removing of missing value does not make counters negative
+        filter.remove(hash);
+        filter.add(hash);
+        assertTrue(filter.mightContain(hash));
+    }
+
+    @Test
+    public void givenExpectedInsertions_whenFilled_thenFalsePositiveRateIsLow() {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(TokenHash.of("added" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(TokenHash.of("other" + i))) falsePositives++;
+        }
+        assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+        assertTrue(filter.getNumberOfProbes() > 1);
+    }
+
+    @Test
+    public void givenWrongArguments_whenCreate_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(10, 1));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvalidatedTokenStoreTest {
+
+    private static final long FUTURE = System.currentTimeMillis() + 3600_000L;
+
+    private File directory;
+    private InvalidatedTokenStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("invalidatedTokens").toFile();
+        directory.deleteOnExit();
+        store = new InvalidatedTokenStore(directory);
+        store.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.destroy();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void givenInvalidatedToken_whenIsInvalidated_thenTrue() {
+        assertFalse(store.isInvalidated("token"));
+        assertFalse(store.isInvalidated(null));
+
+        assertTrue(store.invalidate("token", FUTURE));
+        assertFalse(store.invalidate("token", FUTURE));
+
+        assertTrue(store.isInvalidated("token"));
+        assertFalse(store.isInvalidated("token2"));
+    }
+
+    @Test
+    public void givenExpiredToken_whenInvalidate_thenNotStored() {
+        assertFalse(store.invalidate("token", System.currentTimeMillis() - 1));
+        assertFalse(store.isInvalidated("token"));
+    }
+
+    @Test
+    public void givenStoredTokens_whenRestart_thenLoadedFromLog() {
+        store.invalidate("token1", FUTURE);
+        store.invalidate("token2", FUTURE);
+        store.destroy();
+
+        store = new InvalidatedTokenStore(directory);
+        store.afterPropertiesSet();
+        assertTrue(store.isInvalidated("token1"));
+        assertTrue(store.isInvalidated("token2"));
+        assertFalse(store.isInvalidated("token3"));
+        assertEquals(2 * 5 * Long.BYTES, new File(directory, InvalidatedTokenStore.LOG_FILE_NAME).length());
+    }
+
+    @Test
+    public void givenExpiredRecords_whenPurge_thenRemovedAndLogCompacted() throws InterruptedException {
+        store.invalidate("shortLived", System.currentTimeMillis() + 50);
+        store.invalidate("longLived", FUTURE);
+        Thread.sleep(100);
+
+        store.purge();
+        assertFalse(store.isInvalidated("shortLived"));
+        assertTrue(store.isInvalidated("longLived"));
+        assertEquals(1, store.getInvalidated().size());
+        assertEquals(5 * Long.BYTES, new File(directory, InvalidatedTokenStore.LOG_FILE_NAME).length());
+    }
+
+    @Test
+    public void givenInvalidatedToken_whenModifyReturnedMap_thenRejected() {
+        store.invalidate("token", FUTURE);
+
+        assertThrows(UnsupportedOperationException.class, () -> store.getInvalidated().clear());
+        assertTrue(store.isInvalidated("token"));
+    }
+
+}
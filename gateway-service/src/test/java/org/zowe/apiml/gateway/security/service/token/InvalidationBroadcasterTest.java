@@ -0,0 +1,161 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class InvalidationBroadcasterTest {
+
+    private static final long FUTURE = System.currentTimeMillis() + 3600_000L;
+
+    private EurekaClient discoveryClient;
+    private RestTemplate restTemplate;
+    private Application application;
+    private List<InstanceInfo> instances;
+    private InvalidationBroadcaster broadcaster;
+
+    @BeforeEach
+    public void setUp() {
+        discoveryClient = mock(EurekaClient.class);
+        restTemplate = mock(RestTemplate.class);
+
+        InstanceInfo myInstance = mock(InstanceInfo.class);
+        when(myInstance.getInstanceId()).thenReturn("myInstance01");
+        ApplicationInfoManager applicationInfoManager = mock(ApplicationInfoManager.class);
+        when(applicationInfoManager.getInfo()).thenReturn(myInstance);
+        when(discoveryClient.getApplicationInfoManager()).thenReturn(applicationInfoManager);
+
+        instances = new ArrayList<>(Arrays.asList(
+            createInstanceInfo("instance02", "hostname1", 10000, 10433),
+            createInstanceInfo("myInstance01", "localhost", 10000, 10433),
+            createInstanceInfo("instance03", "hostname2", 10001, 0)
+        ));
+        application = mock(Application.class);
+        when(application.getInstances()).thenAnswer(invocation -> new ArrayList<>(instances));
+        when(discoveryClient.getApplication("gateway")).thenReturn(application);
+
+        broadcaster = new InvalidationBroadcaster(discoveryClient, restTemplate);
+        broadcaster.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        broadcaster.destroy();
+    }
+
+    private InstanceInfo createInstanceInfo(String instanceId, String hostName, int port, int securePort) {
+        InstanceInfo out = mock(InstanceInfo.class);
+        when(out.getInstanceId()).thenReturn(instanceId);
+        when(out.getHostName()).thenReturn(hostName);
+        when(out.getPort()).thenReturn(port);
+        when(out.getSecurePort()).thenReturn(securePort);
+        return out;
+    }
+
+    @Test
+    public void givenTokens_whenBroadcast_thenSentInBatchToAllPeers() {
+        assertTrue(broadcaster.broadcast("token1", FUTURE));
+        assertTrue(broadcaster.broadcast("token2", FUTURE));
+
+        verify(restTemplate, timeout(5000)).postForEntity("https://hostname1:10433/auth/invalidate", Arrays.asList("token1", "token2"), Void.class);
+        verify(restTemplate, timeout(5000)).postForEntity("http://hostname2:10001/auth/invalidate", Arrays.asList("token1", "token2"), Void.class);
+        verify(restTemplate, never()).postForEntity(eq("https://localhost:10433/auth/invalidate"), any(), eq(Void.class));
+    }
+
+    @Test
+    public void givenFailingPeer_whenBroadcast_thenRetried() {
+        when(restTemplate.postForEntity("https://hostname1:10433/auth/invalidate", Collections.singletonList("token"), Void.class))
+            .thenThrow(new ResourceAccessException("timeout"))
+            .thenReturn(null);
+
+        broadcaster.broadcast("token", FUTURE);
+
+        verify(restTemplate, timeout(5000).times(2)).postForEntity("https://hostname1:10433/auth/invalidate", Collections.singletonList("token"), Void.class);
+        verify(restTemplate, times(1)).postForEntity("http://hostname2:10001/auth/invalidate", Collections.singletonList("token"), Void.class);
+    }
+
+    @Test
+    public void givenOldPeer_whenBroadcast_thenSentOneByOne() {
+        when(restTemplate.postForEntity(eq("http://hostname2:10001/auth/invalidate"), any(), eq(Void.class)))
+            .thenThrow(new HttpClientErrorException(HttpStatus.METHOD_NOT_ALLOWED));
+
+        broadcaster.broadcast("token", FUTURE);
+
+        verify(restTemplate, timeout(5000)).delete("http://hostname2:10001/auth/invalidate/{}", "token");
+    }
+
+    @Test
+    public void givenNewPeer_whenRegistered_thenReceivesRecentInvalidations() {
+        broadcaster.broadcast("token", FUTURE);
+        verify(restTemplate, timeout(5000)).postForEntity("https://hostname1:10433/auth/invalidate", Collections.singletonList("token"), Void.class);
+
+        instances.add(createInstanceInfo("instance04", "hostname3", 10002, 10433));
+
+        verify(restTemplate, timeout(5000)).postForEntity("https://hostname3:10433/auth/invalidate", Collections.singletonList("token"), Void.class);
+        verify(restTemplate, times(1)).postForEntity("https://hostname1:10433/auth/invalidate", Collections.singletonList("token"), Void.class);
+        assertTrue(broadcaster.getDeliveryLags().containsKey("instance04"));
+    }
+
+    @Test
+    public void givenFullQueue_whenBroadcast_thenKeptInOverflowAndDispatchedFirst() throws InterruptedException {
+        InvalidationBroadcaster stopped = new InvalidationBroadcaster(discoveryClient, restTemplate);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        stopped.bindTo(registry);
+        for (int i = 0; i < InvalidationBroadcaster.QUEUE_CAPACITY; i++) {
+            assertTrue(stopped.broadcast("token" + i, FUTURE));
+        }
+
+        assertFalse(stopped.broadcast("overflow", FUTURE));
+        assertEquals(1, registry.get("apiml.gateway.invalidation.overflow").functionCounter().count());
+        assertEquals(InvalidationBroadcaster.QUEUE_CAPACITY + 1, registry.get("apiml.gateway.invalidation.queue").gauge().value());
+
+        List<InvalidationBroadcaster.Revocation> batch = stopped.nextBatch();
+        assertEquals("overflow", batch.get(0).getToken());
+        assertEquals(InvalidationBroadcaster.QUEUE_CAPACITY + 1 - batch.size(), registry.get("apiml.gateway.invalidation.queue").gauge().value());
+    }}
+
+    @Test
+    public void givenUnreachablePeer_whenManyInvalidations_thenNotExpiredAreKept() {
+        final long now = System.currentTimeMillis();
+        InvalidationBroadcaster.Peer peer = broadcaster.new Peer("instance05", now, "https://hostname5:10433");
+
+        List<InvalidationBroadcaster.Revocation> revocations = new ArrayList<>();
+        revocations.add(new InvalidationBroadcaster.Revocation("expired", now - 1, now - 120_000L));
+        revocations.add(new InvalidationBroadcaster.Revocation("oldest", FUTURE, now - 60_000L));
+        for (int i = 0; i < InvalidationBroadcaster.RECENT_LIMIT; i++) {
+            revocations.add(new InvalidationBroadcaster.Revocation("token" + i, FUTURE, now));
+        }
+        peer.enqueue(revocations);
+        peer.enqueue(Collections.singletonList(new InvalidationBroadcaster.Revocation("oldest", FUTURE, now)));
+
+        long lag = peer.getLag(now);
+        assertTrue(lag >= 60_000L && lag < 120_000L);
+    }
+
+}
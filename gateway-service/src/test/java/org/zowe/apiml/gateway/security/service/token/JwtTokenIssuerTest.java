@@ -0,0 +1,126 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.gateway.security.service.JwtSecurityInitializer;
+import org.zowe.apiml.security.SecurityUtils;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JwtTokenIssuerTest {
+
+    private static final long NOW = 1580000000123L;
+    private static final long EXPIRATION = NOW + 86400_000L;
+    private static final String ID = "0b8d4f6e-3c3a-4c8e-9a54-4b2f7f2d0e11";
+
+    private AuthConfigurationProperties authConfigurationProperties;
+    private JwtSecurityInitializer jwtSecurityInitializer;
+    private KeyPair keyPair;
+
+    @BeforeEach
+    public void setUp() {
+        authConfigurationProperties = new AuthConfigurationProperties();
+        jwtSecurityInitializer = mock(JwtSecurityInitializer.class);
+        keyPair = SecurityUtils.generateKeyPair("RSA", 2048);
+    }
+
+    private JwtTokenIssuer createIssuer(SignatureAlgorithm algorithm, Key key) {
+        when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(algorithm);
+        when(jwtSecurityInitializer.getJwtSecret()).thenReturn(key);
+        return new JwtTokenIssuer(authConfigurationProperties, jwtSecurityInitializer);
+    }
+
+    private void assertSameAsJjwt(JwtTokenIssuer issuer, SignatureAlgorithm algorithm, Key key, String username, String domain, String ltpa) {
+        assertEquals(
+            issuer.createJwtTokenByJjwt(username, domain, ltpa, NOW, EXPIRATION, ID, algorithm, key),
+            issuer.createJwtToken(username, domain, ltpa, NOW, EXPIRATION, ID)
+        );
+    }
+
+    @Test
+    public void givenRsaKey_whenCreateToken_thenSameAsJjwt() {
+        JwtTokenIssuer issuer = createIssuer(SignatureAlgorithm.RS256, keyPair.getPrivate());
+
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), "user", "domain", "LtpaToken2=abc+/=");
+        // the signature object is reused
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), "user2", "domain", "LtpaToken2=def");
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), "us\"er\\", "dom\n\u0001ain", "čž€😀</");
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), "user", null, null);
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), " ", "", "");
+    }
+
+    @Test
+    public void givenHmacKey_whenCreateToken_thenSameAsJjwt() {
+        Key key = new SecretKeySpec(new byte[64], SignatureAlgorithm.HS512.getJcaName());
+        JwtTokenIssuer issuer = createIssuer(SignatureAlgorithm.HS512, key);
+
+        assertSameAsJjwt(issuer, SignatureAlgorithm.HS512, key, "user", "domain", "ltpa");
+        assertSameAsJjwt(issuer, SignatureAlgorithm.HS512, key, "user2", "domain", "ltpa");
+    }
+
+    @Test
+    public void givenCustomIssuer_whenCreateToken_thenSameAsJjwt() {
+        authConfigurationProperties.getTokenProperties().setIssuer("My \"issuer\"");
+        JwtTokenIssuer issuer = createIssuer(SignatureAlgorithm.RS256, keyPair.getPrivate());
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), "user", "domain", "ltpa");
+
+        authConfigurationProperties.getTokenProperties().setIssuer(null);
+        issuer = createIssuer(SignatureAlgorithm.RS256, keyPair.getPrivate());
+        assertSameAsJjwt(issuer, SignatureAlgorithm.RS256, keyPair.getPrivate(), "user", "domain", "ltpa");
+    }
+
+    @Test
+    public void givenChangedKey_whenCreateToken_thenNewKeyIsUsed() {
+        JwtTokenIssuer issuer = createIssuer(SignatureAlgorithm.RS256, keyPair.getPrivate());
+        issuer.createJwtToken("user", "domain", "ltpa", NOW, EXPIRATION);
+
+        KeyPair newKeyPair = SecurityUtils.generateKeyPair("RSA", 2048);
+        when(jwtSecurityInitializer.getJwtSecret()).thenReturn(newKeyPair.getPrivate());
+
+        String token = issuer.createJwtToken("user", "domain", "ltpa", System.currentTimeMillis(), System.currentTimeMillis() + 60000);
+        Claims claims = Jwts.parser().setSigningKey(newKeyPair.getPublic()).parseClaimsJws(token).getBody();
+        assertEquals("user", claims.getSubject());
+        assertEquals("domain", claims.get(JwtTokenIssuer.DOMAIN_CLAIM_NAME));
+        assertEquals("ltpa", claims.get(JwtTokenIssuer.LTPA_CLAIM_NAME));
+        assertEquals("APIML", claims.getIssuer());
+        assertNotNull(claims.getId());
+    }
+
+    @Test
+    public void givenNullKey_whenCreateToken_thenException() {
+        JwtTokenIssuer issuer = createIssuer(SignatureAlgorithm.RS256, null);
+        assertThrows(IllegalArgumentException.class, () -> issuer.createJwtToken("user", "domain", "ltpa", NOW, EXPIRATION));
+    }
+
+    @Test
+    public void givenRandomId_thenItIsUuidVersion4() {
+        String id = JwtTokenIssuer.randomId();
+        UUID uuid = UUID.fromString(id);
+
+        assertEquals(36, id.length());
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertNotEquals(id, JwtTokenIssuer.randomId());
+    }
+
+}
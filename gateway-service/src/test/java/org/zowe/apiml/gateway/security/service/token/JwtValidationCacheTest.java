@@ -0,0 +1,98 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service.token;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtValidationCacheTest {
+
+    private static final long FUTURE = System.currentTimeMillis() + 3600_000L;
+
+    @Test
+    public void givenCachedToken_whenGet_thenHit() {
+        JwtValidationCache cache = new JwtValidationCache(10);
+
+        assertNull(cache.get("token"));
+        cache.put("token", "user", FUTURE, false);
+
+        JwtValidationCache.Entry entry = cache.get("token");
+        assertNotNull(entry);
+        assertEquals("user", entry.getSubject());
+        assertFalse(entry.isInvalidated());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void givenNullToken_whenGet_thenMiss() {
+        JwtValidationCache cache = new JwtValidationCache(10);
+
+        assertNull(cache.get(null));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void givenExpiredToken_whenGet_thenEvicted() {
+        JwtValidationCache cache = new JwtValidationCache(10);
+
+        cache.put("token", "user", System.currentTimeMillis() - 1, false);
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void givenCachedToken_whenInvalidate_thenEntryIsInvalidated() {
+        JwtValidationCache cache = new JwtValidationCache(10);
+
+        cache.invalidate("token");
+        assertEquals(0, cache.size());
+
+        cache.put("token", "user", FUTURE, false);
+        cache.invalidate("token");
+        assertTrue(cache.get("token").isInvalidated());
+        assertEquals("user", cache.get("token").getSubject());
+    }
+
+    @Test
+    public void givenFullCache_whenPut_thenSizeIsBounded() {
+        JwtValidationCache cache = new JwtValidationCache(100);
+
+        cache.put("expired", "user", System.currentTimeMillis() - 1, false);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("token" + i, "user", FUTURE, false);
+            assertTrue(cache.size() <= 100);
+        }
+
+        assertNull(cache.get("expired"));
+        assertTrue(cache.getEvictionCount() >= 900);
+    }
+
+    @Test
+    public void givenNonPositiveSize_whenCreate_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> new JwtValidationCache(0));
+    }
+
+    @Test
+    public void givenSameTokens_whenHash_thenEquals() {
+        TokenHash hash = TokenHash.of("token");
+
+        assertEquals(hash, TokenHash.of("token"));
+        assertEquals(hash.hashCode(), TokenHash.of("token").hashCode());
+        assertNotEquals(hash, TokenHash.of("token2"));
+        assertEquals(64, hash.toString().length());
+        assertThrows(IndexOutOfBoundsException.class, () -> hash.getPart(4));
+    }
+
+}
@@ -17,6 +17,7 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.zowe.apiml.product.routing.RouteSnapshotRegistry;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 
@@ -38,6 +39,7 @@ class WebSocketProxyServerHandlerTest {
     private SslContextFactoryProvider sslContextFactoryProvider;
     private WebSocketRoutedSessionFactory webSocketRoutedSessionFactory;
     private Map<String, WebSocketRoutedSession> routedSessions;
+    private RouteSnapshotRegistry routeSnapshotRegistry;
 
     @BeforeEach
     public void setup() {
@@ -45,10 +47,12 @@ class WebSocketProxyServerHandlerTest {
         sslContextFactoryProvider = mock(SslContextFactoryProvider.class);
         routedSessions = new HashMap<>();
         webSocketRoutedSessionFactory = mock(WebSocketRoutedSessionFactory.class);
+        routeSnapshotRegistry = new RouteSnapshotRegistry();
 
         underTest = new WebSocketProxyServerHandler(
             discoveryClient,
             sslContextFactoryProvider,
+            routeSnapshotRegistry,
             routedSessions,
             webSocketRoutedSessionFactory
         );
@@ -71,7 +75,7 @@ class WebSocketProxyServerHandlerTest {
             .thenReturn(new RoutedService("api-v1", "api/v1", "/api-v1/api/v1"));
         ServiceInstance foundService = validServiceInstance();
         when(discoveryClient.getInstances("api-v1")).thenReturn(Collections.singletonList(foundService));
-        underTest.addRoutedServices("api-v1", routesForSpecificValidService);
+        routeSnapshotRegistry.publish(Collections.singletonMap("api-v1", routesForSpecificValidService));
         when(webSocketRoutedSessionFactory.session(any(), any(), any())).thenReturn(mock(WebSocketRoutedSession.class));
 
         WebSocketSession establishedSession = mock(WebSocketSession.class);
@@ -151,7 +155,7 @@ class WebSocketProxyServerHandlerTest {
         RoutedServices routesForSpecificValidService = mock(RoutedServices.class);
         when(routesForSpecificValidService.findServiceByGatewayUrl("ws/v1"))
             .thenReturn(new RoutedService("api-v1", "api/v1", "/api-v1/api/v1"));
-        underTest.addRoutedServices("api-v1", routesForSpecificValidService);
+        routeSnapshotRegistry.publish(Collections.singletonMap("api-v1", routesForSpecificValidService));
 
         underTest.afterConnectionEstablished(establishedSession);
 